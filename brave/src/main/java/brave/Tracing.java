@@ -12,6 +12,7 @@ import brave.internal.Platform;
 import brave.internal.codec.IpLiteral;
 import brave.internal.handler.NoopAwareSpanHandler;
 import brave.internal.handler.OrphanTracker;
+import brave.internal.recorder.CoarseClock;
 import brave.internal.recorder.PendingSpans;
 import brave.propagation.B3Propagation;
 import brave.propagation.CurrentTraceContext;
@@ -23,6 +24,7 @@ import java.io.Closeable;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
@@ -120,6 +122,8 @@ public abstract class Tracing implements Closeable {
   public static final class Builder {
     final MutableSpan defaultSpan = new MutableSpan();
     Clock clock;
+    long coarseClockResolutionNanos, pendingSpanMaxAgeNanos;
+    int maxPendingSpans;
     Sampler sampler = Sampler.ALWAYS_SAMPLE;
     CurrentTraceContext currentTraceContext = CurrentTraceContext.Default.inheritable();
     boolean traceId128Bit = false, supportsJoin = true;
@@ -176,6 +180,10 @@ public abstract class Tracing implements Closeable {
      * The text representation of the primary IP address associated with this service. Ex.
      * 192.168.99.100 or 2001:db8::c001. Defaults to a link local IP.
      *
+     * <p>The default is read from the {@code BRAVE_LOCAL_IP} environment variable, if set.
+     * Otherwise, network interfaces are read in the background, and spans include the IP once
+     * known. Pass the address of the socket the application listens on to avoid this.
+     *
      * @see #localServiceName(String)
      * @see #localPort(int)
      * @since 5.2
@@ -215,6 +223,28 @@ public abstract class Tracing implements Closeable {
       return this;
     }
 
+    /**
+     * When positive, timestamps are read by a background thread every {@code resolution}, instead
+     * of on each span event. Defaults to zero, which reads the time on demand.
+     *
+     * <p>This trades timestamp precision for lower overhead, notably on virtualized hosts where
+     * {@link System#nanoTime()} is slow. A span event reads the last published timestamp, so can
+     * be late by up to the resolution. Durations shorter than the resolution may be zero. One
+     * millisecond is a reasonable resolution when most spans are remote calls.
+     *
+     * <p>The thread is stopped when {@linkplain Tracing#close() tracing is closed}. Timestamps
+     * come from the {@linkplain #clock(Clock) clock}, re-read once a minute, and never go
+     * backwards.
+     *
+     * @since 6.1
+     */
+    public Builder coarseClock(long resolution, TimeUnit unit) {
+      if (unit == null) throw new NullPointerException("unit == null");
+      if (resolution < 0) throw new IllegalArgumentException("resolution < 0");
+      this.coarseClockResolutionNanos = unit.toNanos(resolution);
+      return this;
+    }
+
     /**
      * Sampler is responsible for deciding if a particular trace should be "sampled", i.e. whether
      * the overhead of tracing will occur and/or if a trace will be reported to Zipkin.
@@ -337,6 +367,46 @@ public abstract class Tracing implements Closeable {
       return this;
     }
 
+    /**
+     * When positive, spans neither finished nor abandoned within this time are flushed with the
+     * annotation "brave.flush", and passed to span handlers with {@link
+     * SpanHandler.Cause#FLUSHED}. Defaults to zero, which only flushes spans when their trace
+     * context is garbage collected.
+     *
+     * <p>This bounds the memory held when application code leaks a trace context, for example by
+     * caching it. Spans are swept when new spans are created, at most once a second.
+     *
+     * <p>Set this well above the longest expected span duration. Finishing a {@link Span} that was
+     * flushed does nothing. However, looking up its context again, for example with {@link
+     * Tracer#toSpan(TraceContext)} or {@link Tracer#currentSpan()}, starts a new pending span with
+     * the same IDs and no start timestamp. Finishing that reports a second, partial span.
+     *
+     * @see #maxPendingSpans(int)
+     * @since 6.1
+     */
+    public Builder pendingSpanMaxAge(long maxAge, TimeUnit unit) {
+      if (unit == null) throw new NullPointerException("unit == null");
+      if (maxAge < 0) throw new IllegalArgumentException("maxAge < 0");
+      this.pendingSpanMaxAgeNanos = unit.toNanos(maxAge);
+      return this;
+    }
+
+    /**
+     * When positive, creating a span when more than this many are in progress flushes the oldest,
+     * until there are an eighth fewer. These are handled the same as for {@link
+     * #pendingSpanMaxAge(long, TimeUnit)}. Defaults to zero, which is unbounded.
+     *
+     * <p>This gives a ceiling for memory used by spans in progress. The count is checked without
+     * locking, so it can be briefly exceeded by concurrently created spans.
+     *
+     * @since 6.1
+     */
+    public Builder maxPendingSpans(int maxPendingSpans) {
+      if (maxPendingSpans < 0) throw new IllegalArgumentException("maxPendingSpans < 0");
+      this.maxPendingSpans = maxPendingSpans;
+      return this;
+    }
+
     public Tracing build() {
       return new Default(this);
     }
@@ -363,10 +433,17 @@ public abstract class Tracing implements Closeable {
     final CurrentTraceContext currentTraceContext;
     final Sampler sampler;
     final Clock clock;
+    @Nullable final CoarseClock coarseClock;
     final AtomicBoolean noop;
 
     Default(Builder builder) {
-      this.clock = builder.clock != null ? builder.clock : Platform.get().clock();
+      Clock clock = builder.clock != null ? builder.clock : Platform.get().clock();
+      if (builder.coarseClockResolutionNanos > 0) {
+        clock = coarseClock = CoarseClock.start(clock, builder.coarseClockResolutionNanos);
+      } else {
+        coarseClock = null;
+      }
+      this.clock = clock;
       this.propagationFactory = builder.propagationFactory;
       this.stringPropagation = builder.propagationFactory.get();
       this.currentTraceContext = builder.currentTraceContext;
@@ -374,9 +451,12 @@ public abstract class Tracing implements Closeable {
       this.noop = new AtomicBoolean();
 
       MutableSpan defaultSpan = new MutableSpan(builder.defaultSpan); // safe copy
-      // Lazy add localEndpoint.ip if not yet set
-      if (defaultSpan.localIp() == null) {
-        defaultSpan.localIp(Platform.get().linkLocalIp());
+      // Lazy add localEndpoint.ip if not yet set. Unless orphans are tracked, which compares spans
+      // to a fixed default, don't block on reading nics: PendingSpans adds the IP once resolved.
+      Platform platform = Platform.get();
+      if (defaultSpan.localIp() == null
+        && (builder.trackOrphans || platform.resolveLinkLocalIpAsync())) {
+        defaultSpan.localIp(platform.linkLocalIp());
       }
 
       Set<SpanHandler> spanHandlers = new LinkedHashSet<SpanHandler>(builder.spanHandlers);
@@ -392,7 +472,8 @@ public abstract class Tracing implements Closeable {
       this.tracer = new Tracer(
         builder.propagationFactory,
         spanHandler,
-        new PendingSpans(defaultSpan, clock, spanHandler, noop),
+        new PendingSpans(defaultSpan, clock, spanHandler, noop, builder.pendingSpanMaxAgeNanos,
+          builder.maxPendingSpans),
         builder.sampler,
         builder.currentTraceContext,
         builder.traceId128Bit || propagationFactory.requires128BitTraceId(),
@@ -435,6 +516,7 @@ public abstract class Tracing implements Closeable {
     @Override public void close() {
       // only set null if we are the outermost instance
       CURRENT.compareAndSet(this, null);
+      if (coarseClock != null) coarseClock.close();
     }
   }
 
@@ -0,0 +1,217 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.Tracing;
+import brave.internal.Nullable;
+import brave.internal.collect.WeakConcurrentMap;
+import brave.propagation.TraceContext;
+import java.lang.ref.Reference;
+
+/**
+ * Collapses consecutive sibling spans with the same name, kind and remote service name into one,
+ * before passing them to a delegate handler, such as one that reports to Zipkin.
+ *
+ * <p>For example, a request that makes 2,000 identical database calls would otherwise report
+ * 2,000 child spans. Instead, the delegate receives the first span, with its finish timestamp
+ * replaced by that of the last, and the following tags:
+ * <ul>
+ *   <li>{@value #TAG_COUNT}: the number of spans compressed</li>
+ *   <li>{@value #TAG_DURATION_SUM}: the sum of their durations in microseconds</li>
+ *   <li>{@value #TAG_DURATION_MIN}: the minimum duration in microseconds</li>
+ *   <li>{@value #TAG_DURATION_MAX}: the maximum duration in microseconds</li>
+ * </ul>
+ *
+ * <p>Only {@linkplain Cause#FINISHED finished} spans without children or errors are compressed.
+ * "Consecutive" is in order of finishing: a span that doesn't match ends the current run of
+ * siblings. Each parent holds at most one pending span, passed to the delegate when the run ends
+ * or the parent ends. This means these spans are reported late, but memory is bounded. If the
+ * parent's end never reaches this handler, for example as an earlier handler dropped it, the
+ * pending span is passed once the parent context is garbage collected.
+ *
+ * <p>This should be added to {@link Tracing.Builder#addSpanHandler(SpanHandler)} last, as spans it
+ * holds or compresses are invisible to handlers added after it.
+ *
+ * @since 6.1
+ */
+public final class CompressingSpanHandler extends SpanHandler {
+  /** @since 6.1 */
+  public static final String TAG_COUNT = "compressed.count";
+  /** @since 6.1 */
+  public static final String TAG_DURATION_SUM = "compressed.duration.sum";
+  /** @since 6.1 */
+  public static final String TAG_DURATION_MIN = "compressed.duration.min";
+  /** @since 6.1 */
+  public static final String TAG_DURATION_MAX = "compressed.duration.max";
+
+  /** @since 6.1 */
+  public static SpanHandler create(SpanHandler delegate) {
+    if (delegate == null) throw new NullPointerException("delegate == null");
+    return new CompressingSpanHandler(delegate);
+  }
+
+  final SpanHandler delegate;
+  /** Children of in-flight spans. Keys are weak, so are not leaked if a parent never ends. */
+  final ParentToChildren parentToChildren = new ParentToChildren();
+  /** The siblings of in-flight spans, as their end callback doesn't include the parent. */
+  final WeakConcurrentMap<TraceContext, Siblings> childToSiblings =
+    new WeakConcurrentMap<TraceContext, Siblings>();
+
+  CompressingSpanHandler(SpanHandler delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public boolean begin(TraceContext context, MutableSpan span, @Nullable TraceContext parent) {
+    if (parent != null && !context.isLocalRoot()) {
+      Siblings siblings = parentToChildren.getIfPresent(parent);
+      if (siblings == null) {
+        siblings = new Siblings();
+        Siblings previous = parentToChildren.putIfProbablyAbsent(parent, siblings);
+        if (previous != null) siblings = previous; // lost race
+      }
+      childToSiblings.putIfProbablyAbsent(context, siblings);
+    }
+    return delegate.begin(context, span, parent);
+  }
+
+  @Override public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+    // Pass any pending children before their parent.
+    Siblings children = parentToChildren.remove(context);
+    if (children != null) flush(children.drain(true));
+
+    Siblings siblings = childToSiblings.remove(context);
+    if (siblings == null || children != null || !isCompressible(span, cause)) {
+      if (siblings != null) flush(siblings.drain(false));
+      return forward(context, span, cause);
+    }
+
+    flush(siblings.add(context, span));
+    return false; // held or compressed until the run ends
+  }
+
+  /** Spans are compressed only when complete and uninteresting on their own. */
+  static boolean isCompressible(MutableSpan span, Cause cause) {
+    return cause == Cause.FINISHED
+      && span.startTimestamp() != 0L && span.finishTimestamp() != 0L
+      && span.error() == null && span.tag("error") == null;
+  }
+
+  boolean forward(TraceContext context, MutableSpan span, Cause cause) {
+    if (cause == Cause.ABANDONED && !delegate.handlesAbandoned()) return true;
+    return delegate.end(context, span, cause);
+  }
+
+  void flush(@Nullable Run run) {
+    if (run == null) return;
+    delegate.end(run.context, run.span, Cause.FINISHED);
+  }
+
+  @Override public boolean handlesAbandoned() {
+    return true; // so that pending children are passed when their parent is abandoned
+  }
+
+  @Override public String toString() {
+    return "CompressingSpanHandler{" + delegate + "}";
+  }
+
+  /** Passes any pending child when its parent was collected without ending here. */
+  final class ParentToChildren extends WeakConcurrentMap<TraceContext, Siblings> {
+    @Override protected void expungeStaleEntries() {
+      Reference<?> reference;
+      while ((reference = poll()) != null) {
+        Siblings children = removeStaleEntry(reference);
+        if (children != null) flush(children.drain(true));
+      }
+    }
+  }
+
+  /** The children of a span, guarded by this. */
+  final class Siblings {
+    @Nullable Run run;
+    boolean drained; // when the parent ended
+
+    /** Returns a run that ended because the input didn't match it, or null. */
+    @Nullable Run add(TraceContext context, MutableSpan span) {
+      Run ended;
+      synchronized (this) {
+        if (drained) return new Run(context, span); // the parent ended first, so don't hold
+        if (run != null && run.matches(span)) {
+          run.add(span);
+          ended = null;
+        } else {
+          ended = run;
+          run = new Run(context, span);
+        }
+      }
+      // Keep parity for handlers that count begin and end callbacks.
+      if (ended == null && delegate.handlesAbandoned()) {
+        delegate.end(context, span, Cause.ABANDONED);
+      }
+      return ended != null ? ended.finish() : null;
+    }
+
+    /** Returns the current run, if any, ending it. */
+    @Nullable Run drain(boolean parentEnded) {
+      Run result;
+      synchronized (this) {
+        result = run;
+        run = null;
+        if (parentEnded) drained = true;
+      }
+      return result != null ? result.finish() : null;
+    }
+  }
+
+  static final class Run {
+    final TraceContext context;
+    final MutableSpan span;
+    long lastFinishTimestamp, durationSum, durationMin, durationMax;
+    int count = 1;
+
+    Run(TraceContext context, MutableSpan span) {
+      this.context = context;
+      this.span = span;
+      this.lastFinishTimestamp = span.finishTimestamp();
+      durationSum = durationMin = durationMax = duration(span);
+    }
+
+    boolean matches(MutableSpan that) {
+      return equal(span.name(), that.name())
+        && span.kind() == that.kind()
+        && equal(span.remoteServiceName(), that.remoteServiceName());
+    }
+
+    void add(MutableSpan that) {
+      long duration = duration(that);
+      count++;
+      durationSum += duration;
+      if (duration < durationMin) durationMin = duration;
+      if (duration > durationMax) durationMax = duration;
+      if (that.finishTimestamp() > lastFinishTimestamp) {
+        lastFinishTimestamp = that.finishTimestamp();
+      }
+    }
+
+    /** Adds aggregate data to the first span, if any were compressed. */
+    Run finish() {
+      if (count == 1) return this;
+      span.finishTimestamp(lastFinishTimestamp);
+      span.tag(TAG_COUNT, String.valueOf(count));
+      span.tag(TAG_DURATION_SUM, String.valueOf(durationSum));
+      span.tag(TAG_DURATION_MIN, String.valueOf(durationMin));
+      span.tag(TAG_DURATION_MAX, String.valueOf(durationMax));
+      return this;
+    }
+
+    static long duration(MutableSpan span) {
+      return span.finishTimestamp() - span.startTimestamp();
+    }
+  }
+
+  static boolean equal(@Nullable Object a, @Nullable Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.Span.Kind;
+import brave.Tracing;
+import brave.internal.Nullable;
+import brave.propagation.TraceContext;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Aggregates {@linkplain Cause#FINISHED finished} spans into rate, error and duration (RED)
+ * metrics, grouped by local service name, span name, kind and whether there was an error.
+ *
+ * <p>Metrics are only accurate if this sees all spans, not just those sampled for reporting. Set
+ * {@link Tracing.Builder#alwaysSampleLocal()}, so that handlers see unsampled spans: reporters
+ * such as Zipkin's only report spans that are {@linkplain TraceContext#sampled() sampled}.
+ *
+ * <p>Recording doesn't lock or allocate, except on the first span of a series. Counts are striped
+ * by thread to reduce contention. Durations are recorded in a log-linear histogram: buckets double
+ * in width, and each is split into {@value #SUB_BUCKETS} linear sub-buckets, so percentiles are
+ * within 12.5% of the actual value.
+ *
+ * <p>Read metrics with {@link #snapshot()}, or via JMX after {@link #registerMBean(String)}.
+ *
+ * @since 6.1
+ */
+public final class MetricsSpanHandler extends SpanHandler {
+  static final int SUB_BUCKET_BITS = 3, SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  /** Longer durations, about 12 days, are recorded in the last bucket. */
+  static final long MAX_DURATION_MICROS = (1L << 40) - 1;
+  static final int BUCKET_COUNT = bucketIndex(MAX_DURATION_MICROS) + 1;
+  /** Slots per series: one for each kind, including null, with and without error. */
+  static final int KINDS = Kind.values().length + 1;
+
+  /** @since 6.1 */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /** @since 6.1 */
+  public static final class Builder {
+    int maxSeries = 1000;
+
+    /**
+     * Spans that would add a series beyond this are dropped, to bound memory in case of span
+     * names with variables in them. Defaults to 1000.
+     *
+     * @see #droppedSpans()
+     * @since 6.1
+     */
+    public Builder maxSeries(int maxSeries) {
+      if (maxSeries <= 0) throw new IllegalArgumentException("maxSeries <= 0");
+      this.maxSeries = maxSeries;
+      return this;
+    }
+
+    public MetricsSpanHandler build() {
+      return new MetricsSpanHandler(this);
+    }
+
+    Builder() {
+    }
+  }
+
+  final int maxSeries;
+  /** local service name -> span name -> series by kind and error */
+  final ConcurrentMap<String, ConcurrentMap<String, AtomicReferenceArray<Series>>> services =
+    new ConcurrentHashMap<String, ConcurrentMap<String, AtomicReferenceArray<Series>>>();
+  final AtomicInteger seriesCount = new AtomicInteger();
+  final AtomicLong droppedSpans = new AtomicLong();
+
+  MetricsSpanHandler(Builder builder) {
+    this.maxSeries = builder.maxSeries;
+  }
+
+  @Override public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+    if (cause != Cause.FINISHED) return true;
+    long startTimestamp = span.startTimestamp(), finishTimestamp = span.finishTimestamp();
+    if (startTimestamp == 0L || finishTimestamp == 0L) return true;
+
+    boolean error = span.error() != null || span.tag("error") != null;
+    Series series = series(span.localServiceName(), span.name(), span.kind(), error);
+    if (series == null) {
+      droppedSpans.incrementAndGet();
+    } else {
+      series.record(finishTimestamp - startTimestamp);
+    }
+    return true;
+  }
+
+  @Nullable Series series(@Nullable String localServiceName, @Nullable String name,
+    @Nullable Kind kind, boolean error) {
+    if (localServiceName == null) localServiceName = "";
+    if (name == null) name = "";
+
+    int slot = (kind != null ? kind.ordinal() + 1 : 0) * 2 + (error ? 1 : 0);
+    ConcurrentMap<String, AtomicReferenceArray<Series>> names = services.get(localServiceName);
+    AtomicReferenceArray<Series> slots = names != null ? names.get(name) : null;
+    Series series = slots != null ? slots.get(slot) : null;
+    if (series != null) return series;
+
+    // Reserve the series before inserting anything, so that dropped spans don't grow the maps.
+    if (seriesCount.incrementAndGet() > maxSeries) {
+      seriesCount.decrementAndGet();
+      return null;
+    }
+
+    if (names == null) {
+      names = new ConcurrentHashMap<String, AtomicReferenceArray<Series>>();
+      ConcurrentMap<String, AtomicReferenceArray<Series>> previous =
+        services.putIfAbsent(localServiceName, names);
+      if (previous != null) names = previous; // lost race
+    }
+
+    if (slots == null) {
+      slots = new AtomicReferenceArray<Series>(KINDS * 2);
+      AtomicReferenceArray<Series> previous = names.putIfAbsent(name, slots);
+      if (previous != null) slots = previous; // lost race
+    }
+
+    series = new Series(localServiceName, name, kind, error);
+    if (!slots.compareAndSet(slot, null, series)) {
+      seriesCount.decrementAndGet();
+      series = slots.get(slot); // lost race
+    }
+    return series;
+  }
+
+  /**
+   * Returns the count of spans not recorded because {@linkplain Builder#maxSeries(int) there were
+   * too many series}.
+   *
+   * @since 6.1
+   */
+  public long droppedSpans() {
+    return droppedSpans.get();
+  }
+
+  /**
+   * Returns the metrics recorded since this handler was created, ordered by local service name,
+   * span name, kind and error.
+   *
+   * <p>Values are read without locking, so a snapshot taken while recording may be a little
+   * inconsistent. For example, {@link Snapshot#count()} may not equal the sum of the histogram.
+   *
+   * @since 6.1
+   */
+  public List<Snapshot> snapshot() {
+    List<Snapshot> result = new ArrayList<Snapshot>();
+    for (ConcurrentMap<String, AtomicReferenceArray<Series>> names : services.values()) {
+      for (AtomicReferenceArray<Series> slots : names.values()) {
+        for (int i = 0; i < slots.length(); i++) {
+          Series series = slots.get(i);
+          if (series != null) result.add(series.snapshot());
+        }
+      }
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  /**
+   * Registers an MXBean, named "brave:type=MetricsSpanHandler,name={name}", on the platform
+   * MBean server. Close the result to unregister it.
+   *
+   * @throws IllegalStateException if the MXBean couldn't be registered, such as on a duplicate
+   * name.
+   * @since 6.1
+   */
+  public Closeable registerMBean(String name) {
+    if (name == null) throw new NullPointerException("name == null");
+    return Jmx.register(this, name); // lazy, as some platforms, such as Android, lack JMX
+  }
+
+  @Override public String toString() {
+    return "MetricsSpanHandler{}";
+  }
+
+  /**
+   * Attributes are keyed by "{localServiceName} {name} {kind}", with " error" appended for spans
+   * that failed. Durations are in microseconds.
+   *
+   * @see #registerMBean(String)
+   * @since 6.1
+   */
+  public interface MetricsMXBean {
+    long getDroppedSpans();
+
+    Map<String, Long> getCounts();
+
+    Map<String, Long> getDurationSums();
+
+    Map<String, Long> getDurationP50s();
+
+    Map<String, Long> getDurationP99s();
+  }
+
+  /**
+   * Immutable metrics of one series of spans.
+   *
+   * @since 6.1
+   */
+  public static final class Snapshot implements Comparable<Snapshot> {
+    final String localServiceName, name;
+    @Nullable final Kind kind;
+    final boolean error;
+    final long count, durationSum;
+    final long[] histogram;
+
+    Snapshot(String localServiceName, String name, @Nullable Kind kind, boolean error, long count,
+      long durationSum, long[] histogram) {
+      this.localServiceName = localServiceName;
+      this.name = name;
+      this.kind = kind;
+      this.error = error;
+      this.count = count;
+      this.durationSum = durationSum;
+      this.histogram = histogram;
+    }
+
+    /** Empty if the spans had no local service name. */
+    public String localServiceName() {
+      return localServiceName;
+    }
+
+    /** Empty if the spans had no name. */
+    public String name() {
+      return name;
+    }
+
+    @Nullable public Kind kind() {
+      return kind;
+    }
+
+    /** True if the spans had an {@linkplain MutableSpan#error() error} or "error" tag. */
+    public boolean error() {
+      return error;
+    }
+
+    public long count() {
+      return count;
+    }
+
+    public long durationSumMicros() {
+      return durationSum;
+    }
+
+    /**
+     * Returns the upper bound of the histogram bucket including the duration at the given
+     * quantile, such as 0.99, or zero if there are no spans.
+     */
+    public long durationQuantileMicros(double quantile) {
+      if (quantile < 0.0 || quantile > 1.0) {
+        throw new IllegalArgumentException("quantile must be between 0 and 1: " + quantile);
+      }
+      long total = 0;
+      for (long bucket : histogram) total += bucket;
+      if (total == 0) return 0L;
+      long rank = Math.max(1L, (long) Math.ceil(quantile * total)), seen = 0;
+      for (int i = 0; i < histogram.length; i++) {
+        seen += histogram[i];
+        if (seen >= rank) return bucketUpperBound(i);
+      }
+      return MAX_DURATION_MICROS;
+    }
+
+    String key() {
+      return localServiceName + " " + name + " " + kind + (error ? " error" : "");
+    }
+
+    @Override public int compareTo(Snapshot that) {
+      int result = localServiceName.compareTo(that.localServiceName);
+      if (result != 0) return result;
+      result = name.compareTo(that.name);
+      if (result != 0) return result;
+      int thisKind = kind != null ? kind.ordinal() + 1 : 0;
+      int thatKind = that.kind != null ? that.kind.ordinal() + 1 : 0;
+      if (thisKind != thatKind) return thisKind < thatKind ? -1 : 1;
+      return error == that.error ? 0 : error ? 1 : -1;
+    }
+
+    @Override public String toString() {
+      return "Snapshot{" + key() + ", count=" + count + ", durationSum=" + durationSum + "}";
+    }
+  }
+
+  static final class Series {
+    /** Stride of a stripe in longs: a cache line apart, to avoid false sharing. */
+    static final int STRIPE_WIDTH = 8;
+    static final int STRIPES = stripes();
+
+    static int stripes() {
+      int processors = Runtime.getRuntime().availableProcessors();
+      int result = 1;
+      while (result < processors && result < 64) result <<= 1;
+      return result;
+    }
+
+    final String localServiceName, name;
+    @Nullable final Kind kind;
+    final boolean error;
+    /**
+     * Histogram stripes are fewer, as each is {@link #BUCKET_COUNT} longs. {@link #BUCKET_COUNT}
+     * is a multiple of {@link #STRIPE_WIDTH}, so stripes don't share a cache line.
+     */
+    static final int HISTOGRAM_STRIPES = Math.min(STRIPES, 8);
+
+    /** Per stripe, the count then the sum of durations. */
+    final AtomicLongArray stripes = new AtomicLongArray(STRIPES * STRIPE_WIDTH);
+    /** Per stripe, the count of each bucket. */
+    final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_STRIPES * BUCKET_COUNT);
+
+    Series(String localServiceName, String name, @Nullable Kind kind, boolean error) {
+      this.localServiceName = localServiceName;
+      this.name = name;
+      this.kind = kind;
+      this.error = error;
+    }
+
+    void record(long durationMicros) {
+      if (durationMicros < 0L) durationMicros = 0L; // clock went backwards
+      long threadId = Thread.currentThread().getId();
+      int stripe = (int) (threadId & (STRIPES - 1)) * STRIPE_WIDTH;
+      stripes.incrementAndGet(stripe);
+      stripes.addAndGet(stripe + 1, durationMicros);
+      int histogramStripe = (int) (threadId & (HISTOGRAM_STRIPES - 1)) * BUCKET_COUNT;
+      histogram.incrementAndGet(histogramStripe + bucketIndex(durationMicros));
+    }
+
+    Snapshot snapshot() {
+      long count = 0, durationSum = 0;
+      for (int i = 0; i < STRIPES; i++) {
+        count += stripes.get(i * STRIPE_WIDTH);
+        durationSum += stripes.get(i * STRIPE_WIDTH + 1);
+      }
+      long[] buckets = new long[BUCKET_COUNT];
+      for (int i = 0; i < HISTOGRAM_STRIPES * BUCKET_COUNT; i++) {
+        buckets[i % BUCKET_COUNT] += histogram.get(i);
+      }
+      return new Snapshot(localServiceName, name, kind, error, count, durationSum, buckets);
+    }
+  }
+
+  /**
+   * Durations below {@link #SUB_BUCKETS} have their own bucket. Above that, each power of two is
+   * split into {@link #SUB_BUCKETS} buckets of equal width.
+   */
+  static int bucketIndex(long durationMicros) {
+    if (durationMicros > MAX_DURATION_MICROS) durationMicros = MAX_DURATION_MICROS;
+    if (durationMicros < SUB_BUCKETS) return (int) durationMicros;
+    int shift = 63 - Long.numberOfLeadingZeros(durationMicros) - SUB_BUCKET_BITS;
+    int subBucket = (int) (durationMicros >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long bucketLowerBound(int index) {
+    if (index < SUB_BUCKETS) return index;
+    int shift = index / SUB_BUCKETS - 1;
+    return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+  }
+
+  static long bucketUpperBound(int index) {
+    if (index == BUCKET_COUNT - 1) return MAX_DURATION_MICROS;
+    return bucketLowerBound(index + 1) - 1;
+  }
+
+  // Nested to defer loading JMX types until registerMBean is called.
+  static final class Jmx implements MetricsMXBean {
+    static Closeable register(MetricsSpanHandler handler, String name) {
+      final javax.management.MBeanServer server =
+        java.lang.management.ManagementFactory.getPlatformMBeanServer();
+      try {
+        final javax.management.ObjectName objectName = new javax.management.ObjectName(
+          "brave:type=MetricsSpanHandler,name=" + javax.management.ObjectName.quote(name));
+        server.registerMBean(
+          new javax.management.StandardMBean(new Jmx(handler), MetricsMXBean.class, true),
+          objectName);
+        return new Closeable() {
+          @Override public void close() {
+            try {
+              server.unregisterMBean(objectName);
+            } catch (Exception e) {
+              // already unregistered
+            }
+          }
+        };
+      } catch (Exception e) {
+        throw new IllegalStateException("couldn't register MXBean " + name, e);
+      }
+    }
+
+    final MetricsSpanHandler handler;
+
+    Jmx(MetricsSpanHandler handler) {
+      this.handler = handler;
+    }
+
+    @Override public long getDroppedSpans() {
+      return handler.droppedSpans();
+    }
+
+    @Override public Map<String, Long> getCounts() {
+      Map<String, Long> result = new LinkedHashMap<String, Long>();
+      for (Snapshot snapshot : handler.snapshot()) result.put(snapshot.key(), snapshot.count);
+      return result;
+    }
+
+    @Override public Map<String, Long> getDurationSums() {
+      Map<String, Long> result = new LinkedHashMap<String, Long>();
+      for (Snapshot snapshot : handler.snapshot()) {
+        result.put(snapshot.key(), snapshot.durationSum);
+      }
+      return result;
+    }
+
+    @Override public Map<String, Long> getDurationP50s() {
+      return quantiles(0.5);
+    }
+
+    @Override public Map<String, Long> getDurationP99s() {
+      return quantiles(0.99);
+    }
+
+    Map<String, Long> quantiles(double quantile) {
+      Map<String, Long> result = new LinkedHashMap<String, Long>();
+      for (Snapshot snapshot : handler.snapshot()) {
+        result.put(snapshot.key(), snapshot.durationQuantileMicros(quantile));
+      }
+      return result;
+    }
+  }
+}
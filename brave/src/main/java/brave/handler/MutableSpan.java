@@ -81,6 +81,8 @@ import static brave.internal.codec.JsonWriter.UTF_8;
  */
 public final class MutableSpan implements Cloneable {
   static final Object[] EMPTY_ARRAY = new Object[0];
+  static final long[] EMPTY_LONG_ARRAY = new long[0];
+  static final String[] EMPTY_STRING_ARRAY = new String[0];
   static final MutableSpan EMPTY = new MutableSpan();
 
   /** @since 5.4 */
@@ -128,13 +130,25 @@ public final class MutableSpan implements Cloneable {
   Throwable error;
 
   //
-  // The below use object arrays instead of ArrayList. The intent is not for safe sharing
-  // (copy-on-write), as this type is externally synchronized. In other words, this isn't
-  // copy-on-write. We just grow arrays as we need to similar to how ArrayList does it.
+  // The below use arrays instead of ArrayList. We grow arrays as we need to similar to how
+  // ArrayList does it. This type is externally synchronized, so arrays are edited in place unless
+  // shared with a copy, such as a span created from defaults. The copy-constructor shares them, so
+  // that creating a span is O(1) regardless of how many default tags there are. Whichever span is
+  // mutated first replaces its shared array with a private one.
   //
-  // tags [(key, value)] annotations [(timestamp, value)]
-  Object[] tags = EMPTY_ARRAY, annotations = EMPTY_ARRAY;
+  // tags [(key, value)]
+  Object[] tags = EMPTY_ARRAY;
+  // Annotations are parallel arrays, so that timestamps aren't boxed.
+  long[] annotationTimestamps = EMPTY_LONG_ARRAY;
+  String[] annotationValues = EMPTY_STRING_ARRAY;
   int tagCount, annotationCount;
+  boolean tagsShared, annotationsShared;
+  // Open-addressed table of tag positions plus one, so that zero means empty. Spans with many tags
+  // use this instead of scanning keys. It is null until needed and after tags are removed.
+  int[] tagIndex;
+
+  /** Above this count, tags are looked up by {@link #tagIndex} instead of scanning keys. */
+  static final int TAG_INDEX_THRESHOLD = 16;
 
   /** @since 5.4 */
   public MutableSpan() {
@@ -180,11 +194,21 @@ public final class MutableSpan implements Cloneable {
     remoteServiceName = toCopy.remoteServiceName;
     remoteIp = toCopy.remoteIp;
     remotePort = toCopy.remotePort;
-    // In case this is a default span, don't hold a reference to the same array!
-    tags = copy(toCopy.tags);
+    // Share arrays until either span mutates them. Only write the flag on first copy, as a default
+    // span is copied by many threads.
+    tags = toCopy.tags;
     tagCount = toCopy.tagCount;
-    annotations = copy(toCopy.annotations);
+    if (tags.length > 0) {
+      tagsShared = true;
+      if (!toCopy.tagsShared) toCopy.tagsShared = true;
+    }
+    annotationTimestamps = toCopy.annotationTimestamps;
+    annotationValues = toCopy.annotationValues;
     annotationCount = toCopy.annotationCount;
+    if (annotationTimestamps.length > 0) {
+      annotationsShared = true;
+      if (!toCopy.annotationsShared) toCopy.annotationsShared = true;
+    }
     error = toCopy.error;
   }
 
@@ -594,7 +618,7 @@ public final class MutableSpan implements Cloneable {
     // IndexOutOfBoundsException(i) is Java 9+
     if (i < 0) throw new IndexOutOfBoundsException("i < 0");
     if (i >= annotationCount) throw new IndexOutOfBoundsException("i >= annotationCount");
-    return (Long) annotations[i * 2];
+    return annotationTimestamps[i];
   }
 
   /**
@@ -609,7 +633,7 @@ public final class MutableSpan implements Cloneable {
     // IndexOutOfBoundsException(i) is Java 9+
     if (i < 0) throw new IndexOutOfBoundsException("i < 0");
     if (i >= annotationCount) throw new IndexOutOfBoundsException("i >= annotationCount");
-    return (String) annotations[i * 2 + 1];
+    return annotationValues[i];
   }
 
   /**
@@ -620,7 +644,12 @@ public final class MutableSpan implements Cloneable {
    * @since 5.12
    */
   public Collection<Map.Entry<Long, String>> annotations() {
-    return UnsafeArrayMap.<Long, String>newBuilder().build(annotations).entrySet();
+    Object[] entries = new Object[annotationCount * 2];
+    for (int i = 0; i < annotationCount; i++) {
+      entries[i * 2] = annotationTimestamps[i];
+      entries[i * 2 + 1] = annotationValues[i];
+    }
+    return UnsafeArrayMap.<Long, String>newBuilder().build(entries).entrySet();
   }
 
   /**
@@ -642,9 +671,8 @@ public final class MutableSpan implements Cloneable {
    * @since 5.4
    */
   public <T> void forEachAnnotation(AnnotationConsumer<T> annotationConsumer, T target) {
-    for (int i = 0, length = annotationCount * 2; i < length; i += 2) {
-      long timestamp = (Long) annotations[i];
-      annotationConsumer.accept(target, timestamp, annotations[i + 1].toString());
+    for (int i = 0; i < annotationCount; i++) {
+      annotationConsumer.accept(target, annotationTimestamps[i], annotationValues[i]);
     }
   }
 
@@ -665,16 +693,20 @@ public final class MutableSpan implements Cloneable {
    * @since 5.4
    */
   public void forEachAnnotation(AnnotationUpdater annotationUpdater) {
-    for (int i = 0, length = annotationCount * 2; i < length; i += 2) {
-      String value = annotations[i + 1].toString();
-      String newValue = annotationUpdater.update((Long) annotations[i], value);
+    for (int i = 0; i < annotationCount; i++) {
+      String value = annotationValues[i];
+      String newValue = annotationUpdater.update(annotationTimestamps[i], value);
+      if (value.equals(newValue)) continue;
+      unshareAnnotations();
       if (newValue != null) {
-        update(annotations, i, newValue);
+        annotationValues[i] = newValue;
       } else {
-        remove(annotations, i);
-        length -= 2;
+        int toShift = annotationCount - i - 1;
+        System.arraycopy(annotationTimestamps, i + 1, annotationTimestamps, i, toShift);
+        System.arraycopy(annotationValues, i + 1, annotationValues, i, toShift);
         annotationCount--;
-        i -= 2;
+        annotationValues[annotationCount] = null;
+        i--;
       }
     }
   }
@@ -688,8 +720,8 @@ public final class MutableSpan implements Cloneable {
    */
   public boolean containsAnnotation(String value) {
     if (value == null) throw new NullPointerException("value == null");
-    for (int i = 0, length = annotationCount * 2; i < length; i += 2) {
-      if (value.equals(annotations[i + 1])) return true;
+    for (int i = 0; i < annotationCount; i++) {
+      if (value.equals(annotationValues[i])) return true;
     }
     return false;
   }
@@ -704,8 +736,16 @@ public final class MutableSpan implements Cloneable {
   public void annotate(long timestamp, String value) {
     if (value == null) throw new NullPointerException("value == null");
     if (timestamp == 0L) return; // silently ignore data Zipkin would drop
-    annotations =
-      add(annotations, annotationCount * 2, timestamp, value); // Annotations are always add.
+    if (annotationCount == annotationTimestamps.length) { // Annotations are always add.
+      int newLength = annotationCount == 0 ? 2 : annotationCount * 2;
+      annotationTimestamps = Arrays.copyOf(annotationTimestamps, newLength);
+      annotationValues = Arrays.copyOf(annotationValues, newLength);
+      annotationsShared = false;
+    } else {
+      unshareAnnotations();
+    }
+    annotationTimestamps[annotationCount] = timestamp;
+    annotationValues[annotationCount] = value;
     annotationCount++;
   }
 
@@ -767,10 +807,8 @@ public final class MutableSpan implements Cloneable {
   @Nullable public String tag(String key) {
     if (key == null) throw new NullPointerException("key == null");
     if (key.isEmpty()) throw new IllegalArgumentException("key is empty");
-    for (int i = 0, length = tagCount * 2; i < length; i += 2) {
-      if (key.equals(tags[i])) return (String) tags[i + 1];
-    }
-    return null;
+    int i = indexOfTag(key);
+    return i != -1 ? (String) tags[i + 1] : null;
   }
 
   /**
@@ -789,15 +827,14 @@ public final class MutableSpan implements Cloneable {
   @Nullable public String removeTag(String key) {
     if (key == null) throw new NullPointerException("key == null");
     if (key.isEmpty()) throw new IllegalArgumentException("key is empty");
-    for (int i = 0, length = tagCount * 2; i < length; i += 2) {
-      if (key.equals(tags[i])) {
-        String value = (String) tags[i + 1];
-        remove(tags, i);
-        tagCount--;
-        return value;
-      }
-    }
-    return null;
+    int i = indexOfTag(key);
+    if (i == -1) return null;
+    String value = (String) tags[i + 1];
+    unshareTags();
+    remove(tags, i);
+    tagCount--;
+    tagIndex = null; // positions after i shifted
+    return value;
   }
 
   /**
@@ -842,12 +879,15 @@ public final class MutableSpan implements Cloneable {
     for (int i = 0, length = tagCount * 2; i < length; i += 2) {
       String value = (String) tags[i + 1];
       String newValue = tagUpdater.update((String) tags[i], value);
+      if (value.equals(newValue)) continue;
+      unshareTags();
       if (newValue != null) {
-        update(tags, i, newValue);
+        tags[i + 1] = newValue;
       } else {
         remove(tags, i);
         length -= 2;
         tagCount--;
+        tagIndex = null; // positions after i shifted
         i -= 2;
       }
     }
@@ -863,17 +903,66 @@ public final class MutableSpan implements Cloneable {
     if (key == null) throw new NullPointerException("key == null");
     if (key.isEmpty()) throw new IllegalArgumentException("key is empty");
     if (value == null) throw new NullPointerException("value of " + key + " == null");
-    int i = 0;
-    for (int length = tagCount * 2; i < length; i += 2) {
-      if (key.equals(tags[i])) {
-        update(tags, i, value);
-        return;
+    int i = indexOfTag(key);
+    if (i != -1) {
+      if (value.equals(tags[i + 1])) return;
+      unshareTags();
+      tags[i + 1] = value;
+      return;
+    }
+    if (tagCount * 2 < tags.length) {
+      unshareTags(); // add writes in place
+    } else {
+      tagsShared = false; // add grows into a new array
+    }
+    tags = add(tags, tagCount * 2, key, value);
+    if (tagIndex != null) {
+      if ((tagCount + 1) * 2 > tagIndex.length) {
+        tagIndex = null; // rebuild larger on next lookup
+      } else {
+        indexTag(tagIndex, key, tagCount);
       }
     }
-    tags = add(tags, i, key, value);
     tagCount++;
   }
 
+  /** Returns the position of the key in {@link #tags} or -1 if absent. */
+  int indexOfTag(String key) {
+    if (tagCount <= TAG_INDEX_THRESHOLD) {
+      for (int i = 0, length = tagCount * 2; i < length; i += 2) {
+        if (key.equals(tags[i])) return i;
+      }
+      return -1;
+    }
+    if (tagIndex == null) tagIndex = newTagIndex(tags, tagCount);
+    int mask = tagIndex.length - 1;
+    for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+      int entry = tagIndex[slot];
+      if (entry == 0) return -1;
+      int i = (entry - 1) * 2;
+      if (key.equals(tags[i])) return i;
+    }
+  }
+
+  /** Sizes the table between 2x and 4x the tag count, so probe sequences stay short. */
+  static int[] newTagIndex(Object[] tags, int tagCount) {
+    int[] result = new int[Integer.highestOneBit(tagCount * 4)];
+    for (int i = 0; i < tagCount; i++) indexTag(result, (String) tags[i * 2], i);
+    return result;
+  }
+
+  static void indexTag(int[] tagIndex, String key, int position) {
+    int mask = tagIndex.length - 1;
+    int slot = hash(key) & mask;
+    while (tagIndex[slot] != 0) slot = (slot + 1) & mask;
+    tagIndex[slot] = position + 1;
+  }
+
+  static int hash(String key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
   static final ZipkinJsonV2 JSON_ENCODER = new ZipkinJsonV2(Tags.ERROR);
 
   @Override public String toString() {
@@ -914,7 +1003,7 @@ public final class MutableSpan implements Cloneable {
     h *= 1000003;
     h ^= entriesHashCode(tags, tagCount);
     h *= 1000003;
-    h ^= entriesHashCode(annotations, annotationCount);
+    h ^= annotationsHashCode(annotationTimestamps, annotationValues, annotationCount);
     h *= 1000003;
     h ^= error == null ? 0 : error.hashCode();
     return h;
@@ -943,14 +1032,15 @@ public final class MutableSpan implements Cloneable {
       && equal(remoteIp, that.remoteIp)
       && remotePort == that.remotePort
       && entriesEqual(tags, tagCount, that.tags, that.tagCount)
-      && entriesEqual(annotations, annotationCount, that.annotations, that.annotationCount)
+      && annotationsEqual(that)
       && equal(error, that.error);
   }
 
   static Object[] add(Object[] input, int i, Object key, Object value) {
     Object[] result;
     if (i == input.length) {
-      result = Arrays.copyOf(input, i + 2); // grow for one more entry
+      // Grow for one more entry, unless there are many, as copying each time would add up.
+      result = Arrays.copyOf(input, i < TAG_INDEX_THRESHOLD * 2 ? i + 2 : i * 2);
     } else {
       result = input;
     }
@@ -959,10 +1049,19 @@ public final class MutableSpan implements Cloneable {
     return result;
   }
 
-  // this is externally synchronized, so we can edit it directly
-  static void update(Object[] input, int i, Object value) {
-    if (value.equals(input[i + 1])) return;
-    input[i + 1] = value;
+  /** Call before editing {@link #tags} in place, in case they are shared with a copy. */
+  void unshareTags() {
+    if (!tagsShared) return;
+    tags = Arrays.copyOf(tags, tags.length);
+    tagsShared = false;
+  }
+
+  /** Call before editing annotations in place, in case they are shared with a copy. */
+  void unshareAnnotations() {
+    if (!annotationsShared) return;
+    annotationTimestamps = Arrays.copyOf(annotationTimestamps, annotationTimestamps.length);
+    annotationValues = Arrays.copyOf(annotationValues, annotationValues.length);
+    annotationsShared = false;
   }
 
   // This shifts and back-fills nulls so that we don't thrash copying arrays
@@ -977,8 +1076,25 @@ public final class MutableSpan implements Cloneable {
     input[i] = input[i + 1] = null;
   }
 
-  static Object[] copy(Object[] input) {
-    return input.length > 0 ? Arrays.copyOf(input, input.length) : EMPTY_ARRAY;
+  boolean annotationsEqual(MutableSpan that) {
+    if (annotationCount != that.annotationCount) return false;
+    for (int i = 0; i < annotationCount; i++) {
+      if (annotationTimestamps[i] != that.annotationTimestamps[i]) return false;
+      if (!annotationValues[i].equals(that.annotationValues[i])) return false;
+    }
+    return true;
+  }
+
+  /** Same result as {@link #entriesHashCode(Object[], int)} of boxed (timestamp, value) pairs */
+  static int annotationsHashCode(long[] timestamps, String[] values, int count) {
+    int h = 1000003;
+    for (int i = 0; i < count; i++) {
+      h ^= (int) (timestamps[i] ^ (timestamps[i] >>> 32));
+      h *= 1000003;
+      h ^= values[i].hashCode();
+      h *= 1000003;
+    }
+    return h;
   }
 
   static boolean entriesEqual(Object[] left, int leftCount, Object[] right, int rightCount) {
@@ -0,0 +1,283 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.Clock;
+import brave.Tags;
+import brave.Tracing;
+import brave.internal.Platform;
+import brave.internal.codec.HexCodec;
+import brave.propagation.TraceContext;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps recently ended spans in memory, so that an admin endpoint can serve them during an
+ * incident, before they reach the tracing backend or when they weren't sampled at all.
+ *
+ * <p>Spans are stored encoded, by default as Zipkin v2 JSON, instead of as {@link MutableSpan}
+ * objects. This keeps heap use predictable: the oldest spans are evicted when the total encoded
+ * size exceeds {@link Builder#maxBytes(int)} or they are older than {@link Builder#maxAge(long,
+ * TimeUnit)}. Spans are indexed by trace ID and by name.
+ *
+ * <p>To include spans not sampled for reporting, set {@link Tracing.Builder#alwaysSampleLocal()}.
+ * Encoding happens on the calling thread, so this costs about as much as reporting each span.
+ *
+ * @since 6.1
+ */
+public final class RecentTracesSpanHandler extends SpanHandler {
+  /** Approximate heap used by each stored span besides its encoded bytes, including indexes. */
+  static final int ENTRY_OVERHEAD = 128;
+
+  /** @since 6.1 */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /** @since 6.1 */
+  public static final class Builder {
+    MutableSpanBytesEncoder encoder = MutableSpanBytesEncoder.zipkinJsonV2(Tags.ERROR);
+    Clock clock = Platform.get().clock();
+    int maxBytes = 8 * 1024 * 1024;
+    long maxAgeMicros = TimeUnit.MINUTES.toMicros(5);
+
+    /** Defaults to Zipkin v2 JSON. */
+    public Builder encoder(MutableSpanBytesEncoder encoder) {
+      if (encoder == null) throw new NullPointerException("encoder == null");
+      this.encoder = encoder;
+      return this;
+    }
+
+    /** Used to evict spans older than {@link #maxAge}. Defaults to the platform clock. */
+    public Builder clock(Clock clock) {
+      if (clock == null) throw new NullPointerException("clock == null");
+      this.clock = clock;
+      return this;
+    }
+
+    /**
+     * Approximate bound of heap used. Encoded spans count as their size, plus a fixed overhead.
+     * Defaults to 8 MiB.
+     */
+    public Builder maxBytes(int maxBytes) {
+      if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes <= 0");
+      this.maxBytes = maxBytes;
+      return this;
+    }
+
+    /** Spans older than this are evicted. Defaults to 5 minutes. */
+    public Builder maxAge(long maxAge, TimeUnit unit) {
+      if (unit == null) throw new NullPointerException("unit == null");
+      if (maxAge <= 0) throw new IllegalArgumentException("maxAge <= 0");
+      this.maxAgeMicros = unit.toMicros(maxAge);
+      return this;
+    }
+
+    public RecentTracesSpanHandler build() {
+      return new RecentTracesSpanHandler(this);
+    }
+
+    Builder() {
+    }
+  }
+
+  final MutableSpanBytesEncoder encoder;
+  final Clock clock;
+  final int maxBytes;
+  final long maxAgeMicros;
+
+  // All fields below are guarded by this.
+  /** Spans in the order they ended, which is the order of eviction. */
+  final ArrayDeque<Entry> entries = new ArrayDeque<Entry>();
+  /** Trace ID (lower 64 bits) to the spans in that trace, oldest first. */
+  final Map<Long, ArrayDeque<Entry>> traceIdIndex = new HashMap<Long, ArrayDeque<Entry>>();
+  /** Span name to the spans of that name, oldest first. */
+  final Map<String, ArrayDeque<Entry>> nameIndex = new HashMap<String, ArrayDeque<Entry>>();
+  long bytes;
+
+  RecentTracesSpanHandler(Builder builder) {
+    this.encoder = builder.encoder;
+    this.clock = builder.clock;
+    this.maxBytes = builder.maxBytes;
+    this.maxAgeMicros = builder.maxAgeMicros;
+  }
+
+  @Override public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+    if (cause == Cause.ABANDONED) return true;
+
+    long timestamp = span.finishTimestamp();
+    if (timestamp == 0L) timestamp = clock.currentTimeMicroseconds();
+    long duration = span.startTimestamp() != 0L && span.finishTimestamp() != 0L
+      ? span.finishTimestamp() - span.startTimestamp() : 0L;
+    String name = span.name() != null ? span.name() : "";
+    byte[] encoded = encoder.encode(span); // outside the lock
+    if (encoded.length + ENTRY_OVERHEAD > maxBytes) return true; // too big to ever fit
+
+    Entry entry = new Entry(context.traceIdHigh(), context.traceId(), name, timestamp, duration,
+      encoded);
+    synchronized (this) {
+      evict(timestamp - maxAgeMicros, maxBytes - entry.size());
+      entries.addLast(entry);
+      bytes += entry.size();
+      index(traceIdIndex, context.traceId(), entry);
+      index(nameIndex, name, entry);
+    }
+    return true;
+  }
+
+  static <K> void index(Map<K, ArrayDeque<Entry>> index, K key, Entry entry) {
+    ArrayDeque<Entry> entries = index.get(key);
+    if (entries == null) index.put(key, entries = new ArrayDeque<Entry>());
+    entries.addLast(entry);
+  }
+
+  /** Evicts spans older than the timestamp, then the oldest until there is room. */
+  void evict(long oldestTimestamp, long maxBytes) {
+    Entry oldest;
+    while ((oldest = entries.peekFirst()) != null
+      && (oldest.timestamp < oldestTimestamp || bytes > maxBytes)) {
+      entries.removeFirst();
+      bytes -= oldest.size();
+      // Index lists are in the same order, so the oldest is first in each.
+      unindex(traceIdIndex, oldest.traceId);
+      unindex(nameIndex, oldest.name);
+    }
+  }
+
+  static <K> void unindex(Map<K, ArrayDeque<Entry>> index, K key) {
+    ArrayDeque<Entry> entries = index.get(key);
+    entries.removeFirst();
+    if (entries.isEmpty()) index.remove(key);
+  }
+
+  /**
+   * Returns the encoded spans of a trace, in the order they ended, or an empty list if none are
+   * stored or the trace ID is invalid.
+   *
+   * @param traceId 16 or 32 character lower-hex, as in {@link TraceContext#traceIdString()}.
+   * @since 6.1
+   */
+  public List<byte[]> trace(String traceId) {
+    if (traceId == null) throw new NullPointerException("traceId == null");
+    int length = traceId.length();
+    if (length != 16 && length != 32) return Collections.emptyList();
+    long traceIdHigh = length == 32 ? HexCodec.lenientLowerHexToUnsignedLong(traceId, 0, 16) : 0L;
+    long traceIdLow = HexCodec.lenientLowerHexToUnsignedLong(traceId, length - 16, length);
+    if (traceIdLow == 0L) return Collections.emptyList();
+
+    List<byte[]> result = new ArrayList<byte[]>();
+    synchronized (this) {
+      evictExpired();
+      ArrayDeque<Entry> entries = traceIdIndex.get(traceIdLow);
+      if (entries == null) return result;
+      for (Entry entry : entries) {
+        // A 64-bit trace ID matches regardless of high bits, as it may be a downgraded ID.
+        if (length == 16 || entry.traceIdHigh == traceIdHigh) result.add(entry.encoded);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns up to {@code limit} encoded spans with the given name, longest duration first.
+   *
+   * @since 6.1
+   */
+  public List<byte[]> slowest(String spanName, int limit) {
+    if (spanName == null) throw new NullPointerException("spanName == null");
+    if (limit <= 0) throw new IllegalArgumentException("limit <= 0");
+    Entry[] candidates = candidates(spanName);
+    Arrays.sort(candidates, LONGEST_FIRST);
+    List<byte[]> result = new ArrayList<byte[]>(Math.min(limit, candidates.length));
+    for (int i = 0; i < candidates.length && i < limit; i++) result.add(candidates[i].encoded);
+    return result;
+  }
+
+  /**
+   * Returns the encoded spans with the given name whose duration is at or above the given
+   * quantile, such as 0.99, longest duration first.
+   *
+   * @since 6.1
+   */
+  public List<byte[]> slowerThanQuantile(String spanName, double quantile) {
+    if (spanName == null) throw new NullPointerException("spanName == null");
+    if (quantile < 0.0 || quantile > 1.0) {
+      throw new IllegalArgumentException("quantile must be between 0 and 1: " + quantile);
+    }
+    Entry[] candidates = candidates(spanName);
+    if (candidates.length == 0) return Collections.emptyList();
+    Arrays.sort(candidates, LONGEST_FIRST);
+    // The rank counted from the longest duration, so that at least one span is returned.
+    int count = Math.max(1, (int) Math.ceil((1.0 - quantile) * candidates.length));
+    List<byte[]> result = new ArrayList<byte[]>(count);
+    for (int i = 0; i < count; i++) result.add(candidates[i].encoded);
+    return result;
+  }
+
+  /**
+   * Returns the names of stored spans, for example to list endpoints in an admin page.
+   *
+   * @since 6.1
+   */
+  public Set<String> spanNames() {
+    synchronized (this) {
+      evictExpired();
+      return new TreeSet<String>(nameIndex.keySet());
+    }
+  }
+
+  Entry[] candidates(String spanName) {
+    synchronized (this) {
+      evictExpired();
+      ArrayDeque<Entry> entries = nameIndex.get(spanName);
+      if (entries == null) return new Entry[0];
+      return entries.toArray(new Entry[0]);
+    }
+  }
+
+  void evictExpired() {
+    evict(clock.currentTimeMicroseconds() - maxAgeMicros, maxBytes);
+  }
+
+  @Override public String toString() {
+    return "RecentTracesSpanHandler{}";
+  }
+
+  static final Comparator<Entry> LONGEST_FIRST = new Comparator<Entry>() {
+    @Override public int compare(Entry left, Entry right) {
+      return left.duration == right.duration ? 0 : left.duration > right.duration ? -1 : 1;
+    }
+  };
+
+  static final class Entry {
+    final long traceIdHigh, traceId;
+    final String name;
+    final long timestamp, duration;
+    final byte[] encoded;
+
+    Entry(long traceIdHigh, long traceId, String name, long timestamp, long duration,
+      byte[] encoded) {
+      this.traceIdHigh = traceIdHigh;
+      this.traceId = traceId;
+      this.name = name;
+      this.timestamp = timestamp;
+      this.duration = duration;
+      this.encoded = encoded;
+    }
+
+    int size() {
+      return encoded.length + ENTRY_OVERHEAD;
+    }
+  }
+}
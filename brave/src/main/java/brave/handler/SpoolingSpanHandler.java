@@ -0,0 +1,394 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.Tags;
+import brave.internal.Nullable;
+import brave.internal.Platform;
+import brave.propagation.TraceContext;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Appends encoded spans to files in a directory, so that they survive collector outages and
+ * application restarts without growing the heap. A separate task, such as a reporter thread,
+ * {@linkplain #nextBatch(int) reads batches} and {@linkplain Batch#commit() commits} them once
+ * sent.
+ *
+ * <h3>Format</h3>
+ * Spans are appended to memory-mapped segment files of {@link Builder#segmentBytes(int)} each,
+ * named by a sequence number. A record is its length, a CRC32 of the encoded span, then the span.
+ * A zero length marks the end of a segment. Segments are deleted once committed.
+ *
+ * <h3>Durability</h3>
+ * Records are visible to the operating system as soon as they are appended, so they survive the
+ * application crashing. They aren't forced to disk until {@link #close()}, so the last records may
+ * be lost on power failure. On restart, a segment is read until the first record with an invalid
+ * checksum, which is where writing resumes. The read position is saved on commit, so a batch read
+ * but not committed before a crash is read again: delivery is at least once.
+ *
+ * <h3>Backpressure</h3>
+ * When segments waiting to be read would exceed {@link Builder#maxBytes(long)}, new spans are
+ * dropped and {@linkplain #droppedSpans() counted}, the same as a full in-memory queue.
+ *
+ * <p>Only one instance may use a directory at a time.
+ *
+ * @since 6.1
+ */
+public final class SpoolingSpanHandler extends SpanHandler implements Closeable {
+  static final String SEGMENT_SUFFIX = ".spool", READ_POSITION_FILE = "read-position";
+  static final int RECORD_HEADER = 8; // length and CRC32
+
+  /** @since 6.1 */
+  public static Builder newBuilder(File directory) {
+    if (directory == null) throw new NullPointerException("directory == null");
+    return new Builder(directory);
+  }
+
+  /** @since 6.1 */
+  public static final class Builder {
+    final File directory;
+    MutableSpanBytesEncoder encoder = MutableSpanBytesEncoder.zipkinJsonV2(Tags.ERROR);
+    int segmentBytes = 8 * 1024 * 1024;
+    long maxBytes = 256L * 1024 * 1024;
+
+    Builder(File directory) {
+      this.directory = directory;
+    }
+
+    /** Defaults to Zipkin v2 JSON. */
+    public Builder encoder(MutableSpanBytesEncoder encoder) {
+      if (encoder == null) throw new NullPointerException("encoder == null");
+      this.encoder = encoder;
+      return this;
+    }
+
+    /**
+     * Size of each segment file. Spans larger than this are dropped. Defaults to 8 MiB.
+     */
+    public Builder segmentBytes(int segmentBytes) {
+      if (segmentBytes <= RECORD_HEADER) {
+        throw new IllegalArgumentException("segmentBytes <= " + RECORD_HEADER);
+      }
+      this.segmentBytes = segmentBytes;
+      return this;
+    }
+
+    /** Disk budget for segments. Defaults to 256 MiB. */
+    public Builder maxBytes(long maxBytes) {
+      if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes <= 0");
+      this.maxBytes = maxBytes;
+      return this;
+    }
+
+    /**
+     * Creates the directory if needed and recovers any segments in it.
+     *
+     * @throws IOException if the directory or its segments couldn't be read.
+     */
+    public SpoolingSpanHandler build() throws IOException {
+      if (maxBytes < segmentBytes) throw new IllegalArgumentException("maxBytes < segmentBytes");
+      return new SpoolingSpanHandler(this);
+    }
+  }
+
+  final File directory;
+  final MutableSpanBytesEncoder encoder;
+  final int segmentBytes;
+  final long maxSegments;
+  final AtomicLong droppedSpans = new AtomicLong();
+
+  // All fields below are guarded by this.
+  final RandomAccessFile readPositionFile;
+  /** The first segment not yet committed, and the committed offset in it. */
+  long readSegment;
+  int readOffset;
+  /** The segment being appended to, or null before the first span. */
+  @Nullable MappedByteBuffer writeBuffer;
+  long writeSegment = -1;
+  boolean closed;
+
+  SpoolingSpanHandler(Builder builder) throws IOException {
+    directory = builder.directory;
+    encoder = builder.encoder;
+    segmentBytes = builder.segmentBytes;
+    maxSegments = builder.maxBytes / builder.segmentBytes;
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("couldn't create " + directory);
+    }
+
+    readPositionFile = new RandomAccessFile(new File(directory, READ_POSITION_FILE), "rw");
+    long[] segments = segments();
+    if (readPositionFile.length() >= 12) {
+      readPositionFile.seek(0);
+      readSegment = readPositionFile.readLong();
+      readOffset = readPositionFile.readInt();
+    }
+    if (segments.length == 0 || readSegment < segments[0] || readSegment > last(segments)) {
+      readSegment = segments.length > 0 ? segments[0] : 0L;
+      readOffset = 0;
+    }
+    for (long segment : segments) {
+      if (segment < readSegment) delete(segment); // committed, but not deleted before a crash
+    }
+    if (segments.length > 0) { // resume writing after the last valid record
+      writeSegment = last(segments);
+      writeBuffer = map(writeSegment);
+      writeBuffer.position(validLength(writeBuffer));
+      if (readSegment == writeSegment && readOffset > writeBuffer.position()) {
+        readOffset = writeBuffer.position(); // torn records are never read
+      }
+    }
+  }
+
+  @Override public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+    if (cause == Cause.ABANDONED) return true;
+    byte[] encoded = encoder.encode(span); // outside the lock
+    if (!append(encoded)) droppedSpans.incrementAndGet();
+    return true;
+  }
+
+  synchronized boolean append(byte[] encoded) {
+    if (closed || RECORD_HEADER + encoded.length > segmentBytes) return false;
+    try {
+      MappedByteBuffer buffer = writeBuffer;
+      if (buffer == null || buffer.remaining() < RECORD_HEADER + encoded.length) {
+        if (writeSegment + 1 - readSegment >= maxSegments) return false; // over budget
+        buffer = writeBuffer = map(++writeSegment);
+      }
+      int position = buffer.position();
+      CRC32 crc = new CRC32();
+      crc.update(encoded);
+      // Write the length last, so that a reader never sees a partial record.
+      buffer.position(position + RECORD_HEADER);
+      buffer.put(encoded);
+      buffer.putInt(position + 4, (int) crc.getValue());
+      buffer.putInt(position, encoded.length);
+      return true;
+    } catch (IOException e) {
+      Platform.get().log("error appending to spool {0}", directory, e);
+      return false;
+    }
+  }
+
+  /**
+   * Returns the count of spans not spooled because the disk budget was exceeded or there was an
+   * error writing.
+   *
+   * @since 6.1
+   */
+  public long droppedSpans() {
+    return droppedSpans.get();
+  }
+
+  /**
+   * Reads up to {@code maxSpans} encoded spans after the last commit, or returns an empty batch.
+   *
+   * <p>Until {@link Batch#commit()}, subsequent calls return the same spans. This allows retrying
+   * a batch that couldn't be sent. Only one task should read and commit batches.
+   *
+   * @since 6.1
+   */
+  public Batch nextBatch(int maxSpans) throws IOException {
+    if (maxSpans <= 0) throw new IllegalArgumentException("maxSpans <= 0");
+    long segment, lastSegment;
+    int offset, lastSegmentEnd;
+    synchronized (this) { // snapshot positions, so that reading files doesn't block appends
+      segment = readSegment;
+      offset = readOffset;
+      lastSegment = writeSegment;
+      lastSegmentEnd = writeBuffer != null ? writeBuffer.position() : 0;
+    }
+
+    List<byte[]> spans = new ArrayList<byte[]>();
+    while (spans.size() < maxSpans && segment <= lastSegment) {
+      int end = segment == lastSegment ? lastSegmentEnd : segmentBytes;
+      offset = read(segment, offset, end, maxSpans, spans);
+      if (segment == lastSegment) break; // records appended after the snapshot are read next time
+      if (spans.size() < maxSpans) { // reached the end of a full segment
+        segment++;
+        offset = 0;
+      }
+    }
+    return new Batch(spans, segment, offset);
+  }
+
+  /**
+   * Reads records before {@code end} into the list until it has {@code maxSpans}, returning the
+   * offset after.
+   */
+  int read(long segment, int offset, int end, int maxSpans, List<byte[]> spans)
+    throws IOException {
+    RandomAccessFile file = new RandomAccessFile(segmentFile(segment), "r");
+    try {
+      FileChannel channel = file.getChannel();
+      ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+      while (spans.size() < maxSpans && offset + RECORD_HEADER <= end) {
+        header.clear();
+        readFully(channel, header, offset);
+        int length = header.getInt(0), checksum = header.getInt(4);
+        if (length <= 0 || offset + RECORD_HEADER + length > end) break;
+        byte[] encoded = new byte[length];
+        readFully(channel, ByteBuffer.wrap(encoded), offset + RECORD_HEADER);
+        if (checksum != checksum(encoded)) break; // torn write
+        spans.add(encoded);
+        offset += RECORD_HEADER + length;
+      }
+      return offset;
+    } finally {
+      file.close();
+    }
+  }
+
+  synchronized void commit(long segment, int offset) throws IOException {
+    if (segment < readSegment || (segment == readSegment && offset <= readOffset)) return;
+    readPositionFile.seek(0);
+    readPositionFile.writeLong(segment);
+    readPositionFile.writeInt(offset);
+    for (long s = readSegment; s < segment; s++) delete(s);
+    readSegment = segment;
+    readOffset = offset;
+  }
+
+  /**
+   * Stops accepting spans, and forces those appended and the read position to disk. Commit any
+   * batch read before calling this, as it can't be committed after.
+   */
+  @Override public synchronized void close() throws IOException {
+    if (closed) return;
+    closed = true;
+    if (writeBuffer != null) writeBuffer.force();
+    try {
+      readPositionFile.getFD().sync();
+    } finally {
+      readPositionFile.close();
+    }
+  }
+
+  @Override public String toString() {
+    return "SpoolingSpanHandler{" + directory + "}";
+  }
+
+  /**
+   * Encoded spans read from the spool. {@linkplain #commit() Commit} once they are sent.
+   *
+   * @since 6.1
+   */
+  public final class Batch {
+    final List<byte[]> spans;
+    final long segment;
+    final int offset;
+
+    Batch(List<byte[]> spans, long segment, int offset) {
+      this.spans = Collections.unmodifiableList(spans);
+      this.segment = segment;
+      this.offset = offset;
+    }
+
+    /** Encoded spans in the order they were appended. */
+    public List<byte[]> spans() {
+      return spans;
+    }
+
+    public boolean isEmpty() {
+      return spans.isEmpty();
+    }
+
+    /**
+     * Saves the read position after this batch, and deletes segments fully read.
+     *
+     * @throws IOException if the read position couldn't be saved.
+     */
+    public void commit() throws IOException {
+      SpoolingSpanHandler.this.commit(segment, offset);
+    }
+  }
+
+  MappedByteBuffer map(long segment) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(segmentFile(segment), "rw");
+    try {
+      // Mapping past the end extends the file with zeros, which read as end markers.
+      return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+    } finally {
+      file.close(); // the mapping remains valid
+    }
+  }
+
+  /** Returns the length of valid records in the segment. */
+  static int validLength(MappedByteBuffer buffer) {
+    int offset = 0, limit = buffer.limit();
+    while (offset + RECORD_HEADER <= limit) {
+      int length = buffer.getInt(offset);
+      if (length <= 0 || offset + RECORD_HEADER + length > limit) break;
+      byte[] encoded = new byte[length];
+      ByteBuffer record = buffer.duplicate();
+      record.position(offset + RECORD_HEADER);
+      record.get(encoded);
+      if (buffer.getInt(offset + 4) != checksum(encoded)) break;
+      offset += RECORD_HEADER + length;
+    }
+    return offset;
+  }
+
+  static int checksum(byte[] encoded) {
+    CRC32 crc = new CRC32();
+    crc.update(encoded);
+    return (int) crc.getValue();
+  }
+
+  static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+    throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) throw new IOException("unexpected end of segment");
+    }
+  }
+
+  long[] segments() {
+    String[] names = directory.list();
+    if (names == null) return new long[0];
+    long[] result = new long[names.length];
+    int count = 0;
+    for (String name : names) {
+      if (!name.endsWith(SEGMENT_SUFFIX)) continue;
+      try {
+        long segment = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        result[count++] = segment;
+      } catch (NumberFormatException e) {
+        // not a segment
+      }
+    }
+    result = Arrays.copyOf(result, count);
+    Arrays.sort(result);
+    return result;
+  }
+
+  File segmentFile(long segment) {
+    // Zero-padded, so that a directory listing is in order.
+    return new File(directory, String.format("%019d", segment) + SEGMENT_SUFFIX);
+  }
+
+  void delete(long segment) {
+    File file = segmentFile(segment);
+    if (file.exists() && !file.delete()) {
+      Platform.get().log("couldn't delete spool segment {0}", file, null);
+    }
+  }
+
+  static long last(long[] segments) {
+    return segments[segments.length - 1];
+  }
+}
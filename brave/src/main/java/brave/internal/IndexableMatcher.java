@@ -0,0 +1,30 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal;
+
+import brave.sampler.Matcher;
+import brave.sampler.ParameterizedSampler;
+
+/**
+ * Implemented by matchers that compare a single string attribute of the input, such as an HTTP
+ * path. This allows {@link ParameterizedSampler} to look up rules by that attribute, instead of
+ * evaluating all of them in order.
+ */
+public interface IndexableMatcher<P> extends Matcher<P> {
+  /**
+   * Name of the attribute compared, such as "http.path". Matchers of the same attribute must
+   * {@linkplain #attributeValue(Object) read} it the same way.
+   */
+  String attribute();
+
+  /** Reads the attribute from the input, or returns null if absent. */
+  @Nullable String attributeValue(P parameters);
+
+  /** The value compared to the attribute. Never empty. */
+  String value();
+
+  /** True if the attribute must start with the {@link #value()}, as opposed to equal it. */
+  boolean isPrefix();
+}
@@ -6,12 +6,14 @@ package brave.internal;
 
 import brave.Clock;
 import brave.Tracer;
+import brave.internal.codec.IpLiteral;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
 import java.security.SecureRandom;
 import java.util.Enumeration;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
@@ -26,7 +28,15 @@ import java.util.logging.Logger;
 public abstract class Platform implements Clock {
   private static final Platform PLATFORM = findPlatform();
 
+  /**
+   * Environment variable that overrides the {@link #linkLocalIp()}, such as one set to the pod IP
+   * in Kubernetes. This avoids reading network interfaces, which is slow on hosts with many.
+   */
+  static final String LOCAL_IP_ENV = "BRAVE_LOCAL_IP";
+
   volatile String linkLocalIp;
+  volatile boolean linkLocalIpResolved; // true even if there is no link local IP
+  final AtomicBoolean linkLocalIpDiscoveryStarted = new AtomicBoolean();
 
   /** Returns the same value as {@link System#nanoTime()}. */
   @Nullable public abstract long nanoTime();
@@ -35,18 +45,58 @@ public abstract class Platform implements Clock {
   /** Guards {@link InetSocketAddress#getHostString()}, as it isn't available until Java 7 */
   @Nullable public abstract String getHostString(InetSocketAddress socket);
 
+  /**
+   * Returns the {@link #LOCAL_IP_ENV environment variable}, or the first site local address of a
+   * network interface. This blocks on the first call, unless {@link #resolveLinkLocalIpAsync()}
+   * completed.
+   */
   @Nullable public String linkLocalIp() {
     // uses synchronized variant of double-checked locking as getting the endpoint can be expensive
-    if (linkLocalIp != null) return linkLocalIp;
+    if (linkLocalIpResolved) return linkLocalIp;
     synchronized (this) {
-      if (linkLocalIp == null) {
+      if (!linkLocalIpResolved) {
         linkLocalIp = produceLinkLocalIp();
+        linkLocalIpResolved = true;
       }
     }
     return linkLocalIp;
   }
 
+  /**
+   * Returns true if {@link #linkLocalIp()} won't block. Otherwise, starts resolving it on a daemon
+   * thread, unless already started, and returns false.
+   *
+   * <p>The {@link #LOCAL_IP_ENV environment variable} is read synchronously, as it is cheap.
+   */
+  public boolean resolveLinkLocalIpAsync() {
+    if (linkLocalIpResolved) return true;
+    String environmentIp = environmentIp();
+    if (environmentIp != null) {
+      publishLinkLocalIp(environmentIp);
+      return true;
+    }
+    if (!linkLocalIpDiscoveryStarted.compareAndSet(false, true)) return false;
+    Thread thread = new Thread(new Runnable() {
+      @Override public void run() {
+        // Scan outside the lock, so that callers of this method never block on a slow host.
+        publishLinkLocalIp(produceLinkLocalIp());
+      }
+    }, "brave-link-local-ip");
+    thread.setDaemon(true);
+    thread.start();
+    return false;
+  }
+
+  /** Writes the IP before the flag, so readers of {@link #linkLocalIpResolved} see the IP. */
+  void publishLinkLocalIp(@Nullable String ip) {
+    if (linkLocalIpResolved) return; // a concurrent linkLocalIp() won: it produced the same value
+    linkLocalIp = ip;
+    linkLocalIpResolved = true;
+  }
+
   String produceLinkLocalIp() {
+    String environmentIp = environmentIp();
+    if (environmentIp != null) return environmentIp;
     try {
       Enumeration<NetworkInterface> nics = NetworkInterface.getNetworkInterfaces();
       while (nics.hasMoreElements()) {
@@ -64,6 +114,22 @@ public abstract class Platform implements Clock {
     return null;
   }
 
+  @Nullable String environmentIp() {
+    String ip = getenv(LOCAL_IP_ENV);
+    if (ip == null) return null;
+    String result = IpLiteral.ipOrNull(ip);
+    if (result == null) log("ignoring invalid IP in " + LOCAL_IP_ENV + ": {0}", ip, null);
+    return result;
+  }
+
+  @Nullable String getenv(String name) {
+    try {
+      return System.getenv(name);
+    } catch (SecurityException e) {
+      return null;
+    }
+  }
+
   public AssertionError assertionError(String message, Throwable cause) {
     AssertionError error = new AssertionError(message);
     error.initCause(cause);
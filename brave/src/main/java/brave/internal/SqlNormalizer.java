@@ -0,0 +1,148 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Normalizes SQL into a bounded "sql.query" tag, when the MySQL connection property {@value
+ * #NORMALIZE_PROPERTY} is "true". This is shared by the MySQL instrumentation modules.
+ *
+ * <p>Normalization replaces string and numeric literals with '?', collapses whitespace and stops
+ * after {@value #MAX_LENGTH_PROPERTY} characters (default {@value #DEFAULT_MAX_LENGTH}). Hence, a
+ * large batched INSERT is not copied into the span. The span name and tag value of recently seen
+ * statements are kept in a small LRU cache, so that repeated statements share the same strings.
+ */
+public final class SqlNormalizer {
+  static final String NORMALIZE_PROPERTY = "zipkinSqlNormalize";
+  static final String MAX_LENGTH_PROPERTY = "zipkinSqlMaxLength";
+  static final int DEFAULT_MAX_LENGTH = 1024;
+  static final int MAX_CACHED_STATEMENTS = 128;
+
+  /** Returns a normalizer if enabled by connection properties, or null. */
+  @Nullable public static SqlNormalizer create(Properties properties) {
+    if (properties == null) return null;
+    if (!"true".equalsIgnoreCase(properties.getProperty(NORMALIZE_PROPERTY))) return null;
+    int maxLength = DEFAULT_MAX_LENGTH;
+    String maxLengthString = properties.getProperty(MAX_LENGTH_PROPERTY);
+    if (maxLengthString != null && !maxLengthString.isEmpty()) {
+      try {
+        maxLength = Integer.parseInt(maxLengthString);
+      } catch (NumberFormatException e) {
+        // use the default
+      }
+    }
+    return new SqlNormalizer(maxLength > 0 ? maxLength : DEFAULT_MAX_LENGTH);
+  }
+
+  /** The span name and "sql.query" tag of a normalized statement. */
+  public static final class Statement {
+    public final String name, query;
+
+    Statement(String name, String query) {
+      this.name = name;
+      this.query = query;
+    }
+  }
+
+  final int maxLength;
+  final Map<String, Statement> cache =
+    new LinkedHashMap<String, Statement>(16, 0.75f, true /* LRU */) {
+      @Override protected boolean removeEldestEntry(Map.Entry<String, Statement> eldest) {
+        return size() > MAX_CACHED_STATEMENTS;
+      }
+    };
+
+  SqlNormalizer(int maxLength) {
+    this.maxLength = maxLength;
+  }
+
+  public Statement normalize(String sql) {
+    String query = normalizeSql(sql, maxLength);
+    synchronized (cache) {
+      Statement result = cache.get(query);
+      if (result == null) {
+        result = new Statement(spanName(query), query);
+        cache.put(query, result);
+      }
+      return result;
+    }
+  }
+
+  /** Returns the first word of the statement, which allows single-word names like COMMIT. */
+  public static String spanName(String sql) {
+    int spaceIndex = sql.indexOf(' ');
+    return spaceIndex == -1 ? sql : sql.substring(0, spaceIndex);
+  }
+
+  /** Reads no more of the input than needed to write {@code maxLength} characters. */
+  static String normalizeSql(String sql, int maxLength) {
+    int length = sql.length();
+    StringBuilder result = new StringBuilder(Math.min(length, maxLength));
+    boolean pendingSpace = false;
+    for (int i = 0; i < length && result.length() < maxLength; i++) {
+      char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        pendingSpace = result.length() > 0;
+        continue;
+      }
+      if (pendingSpace) {
+        result.append(' ');
+        pendingSpace = false;
+        if (result.length() == maxLength) break;
+      }
+      if (c == '\'' || c == '"') { // MySQL accepts both as string quotes by default
+        i = endOfString(sql, i, c);
+        result.append('?');
+      } else if (c == '`') { // keep quoted identifiers
+        int end = sql.indexOf('`', i + 1);
+        if (end == -1) end = length - 1;
+        int toAppend = Math.min(end + 1 - i, maxLength - result.length());
+        result.append(sql, i, i + toAppend);
+        i = end;
+      } else if (isDigit(c) && (i == 0 || !isIdentifierPart(sql.charAt(i - 1)))) {
+        while (i + 1 < length && isNumberPart(sql.charAt(i + 1))) i++;
+        result.append('?');
+      } else {
+        result.append(c);
+      }
+    }
+    return result.toString();
+  }
+
+  /** Returns the index of the quote that closes the string starting at {@code start}. */
+  static int endOfString(String sql, int start, char quote) {
+    int length = sql.length();
+    for (int i = start + 1; i < length; i++) {
+      char c = sql.charAt(i);
+      if (c == '\\') {
+        i++; // skip the escaped character
+      } else if (c == quote) {
+        if (i + 1 < length && sql.charAt(i + 1) == quote) {
+          i++; // doubled quote
+        } else {
+          return i;
+        }
+      }
+    }
+    return length - 1;
+  }
+
+  static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /** Includes decimals, exponents and hex literals like 0x1F. */
+  static boolean isNumberPart(char c) {
+    return isDigit(c) || c == '.' || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')
+      || c == 'x' || c == 'X' || c == 'e' || c == 'E';
+  }
+
+  static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+}
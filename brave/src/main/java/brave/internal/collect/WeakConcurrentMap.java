@@ -60,6 +60,11 @@ public class WeakConcurrentMap<K, V> extends ReferenceQueue<K> implements Iterab
     return target.remove(key);
   }
 
+  /** Returns the number of entries, including any whose keys were collected but not expunged. */
+  public int size() {
+    return target.size();
+  }
+
   /** Iterates over the entries in this map. */
   @Override
   public Iterator<Map.Entry<K, V>> iterator() {
@@ -0,0 +1,92 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal.recorder;
+
+import brave.Clock;
+import brave.internal.Platform;
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A clock that reads the time on a background thread, at a fixed resolution, so that callers only
+ * read a volatile field.
+ *
+ * <p>Like {@link TickClock}, timestamps are the epoch time read once, plus ticks of {@link
+ * Platform#nanoTime()}. The difference is that this is shared by all traces in the process, so it
+ * is re-anchored to the epoch clock once a minute to avoid drift. Published timestamps never go
+ * backwards: if the epoch clock steps back, they are held until it catches up.
+ *
+ * <p>As {@link PendingSpans} already uses a tick-based clock for each trace, it uses this directly
+ * instead of wrapping it in a {@link TickClock}.
+ */
+public final class CoarseClock implements Clock, Closeable {
+  static final long REANCHOR_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  /** Starts a daemon thread that updates the time every {@code resolutionNanos}. */
+  public static CoarseClock start(Clock epochClock, long resolutionNanos) {
+    if (epochClock == null) throw new NullPointerException("epochClock == null");
+    if (resolutionNanos <= 0) {
+      throw new IllegalArgumentException("resolutionNanos <= 0: " + resolutionNanos);
+    }
+    CoarseClock result = new CoarseClock(Platform.get(), epochClock, resolutionNanos);
+    Thread ticker = new Thread(result.new Ticker(), "brave-coarse-clock");
+    ticker.setDaemon(true);
+    result.ticker = ticker;
+    ticker.start();
+    return result;
+  }
+
+  final Platform platform;
+  final Clock epochClock;
+  final long resolutionNanos;
+  TickClock anchor; // only accessed by the ticker thread after construction
+  volatile long currentTimeMicroseconds;
+  volatile boolean closed;
+  Thread ticker;
+
+  CoarseClock(Platform platform, Clock epochClock, long resolutionNanos) {
+    this.platform = platform;
+    this.epochClock = epochClock;
+    this.resolutionNanos = resolutionNanos;
+    reanchor();
+    currentTimeMicroseconds = anchor.baseEpochMicros;
+  }
+
+  @Override public long currentTimeMicroseconds() {
+    return currentTimeMicroseconds;
+  }
+
+  void reanchor() {
+    anchor = new TickClock(platform, epochClock.currentTimeMicroseconds(), platform.nanoTime());
+  }
+
+  /** Publishes the current time, re-anchoring to the epoch clock if due. */
+  void tick() {
+    if (platform.nanoTime() - anchor.baseTickNanos >= REANCHOR_NANOS) reanchor();
+    long now = anchor.currentTimeMicroseconds();
+    if (now > currentTimeMicroseconds) currentTimeMicroseconds = now;
+  }
+
+  /** Stops the background thread. Subsequent reads return the last published time. */
+  @Override public void close() {
+    closed = true;
+    Thread ticker = this.ticker;
+    if (ticker != null) LockSupport.unpark(ticker);
+  }
+
+  final class Ticker implements Runnable {
+    @Override public void run() {
+      while (!closed) {
+        LockSupport.parkNanos(this, resolutionNanos);
+        tick();
+      }
+    }
+  }
+
+  @Override public String toString() {
+    return "CoarseClock{resolutionNanos=" + resolutionNanos + "}";
+  }
+}
@@ -21,13 +21,16 @@ import java.lang.ref.WeakReference;
  */
 public final class PendingSpan extends WeakReference<TraceContext> {
   final MutableSpan span;
-  final TickClock clock;
+  final Clock clock;
   final TraceContext handlerContext;
+  /** {@link brave.internal.Platform#nanoTime()} when created, or zero if not needed. */
+  final long createdNanos;
 
-  PendingSpan(TraceContext context, MutableSpan span, TickClock clock) {
+  PendingSpan(TraceContext context, MutableSpan span, Clock clock, long createdNanos) {
     super(context);
     this.span = span;
     this.clock = clock;
+    this.createdNanos = createdNanos;
     this.handlerContext = InternalPropagation.instance.shallowCopy(context);
   }
 
@@ -14,6 +14,12 @@ import brave.internal.Platform;
 import brave.internal.collect.WeakConcurrentMap;
 import brave.propagation.TraceContext;
 import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -25,21 +31,76 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * <p>Spans are weakly referenced by their owning context. When the keys are collected, they are
  * transferred to a queue, waiting to be reported. A call to modify any span will implicitly flush
  * orphans to Zipkin. Spans in this state will have a "brave.flush" annotation added to them.
+ *
+ * <p>A context that is never collected, for example as application code caches it, would otherwise
+ * keep its span pending forever. Optionally, spans older than a max age, or the oldest when there
+ * are more than a max count, are flushed with the same annotation. This is also stolen from
+ * callers: a sweep happens when a span is created and is due, at most one at a time.
  */
 public final class PendingSpans extends WeakConcurrentMap<TraceContext, PendingSpan> {
-  final MutableSpan defaultSpan;
+  static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
   final Platform platform;
+  volatile MutableSpan defaultSpan; // replaced when the link local IP is resolved
+  volatile boolean awaitingLinkLocalIp;
   final Clock clock;
   final SpanHandler spanHandler;
   final AtomicBoolean noop;
+  final long maxAgeNanos; // zero means no limit
+  final int maxSpans; // zero means no limit
+  final long sweepIntervalNanos;
+  volatile long nextSweepNanos;
+  final AtomicBoolean sweeping = new AtomicBoolean();
+
+  public PendingSpans(MutableSpan defaultSpan, Clock clock, SpanHandler spanHandler,
+    AtomicBoolean noop) {
+    this(defaultSpan, clock, spanHandler, noop, 0L, 0);
+  }
 
+  /**
+   * @param maxAgeNanos spans pending longer than this are flushed. Zero means no limit.
+   * @param maxSpans when there are more pending spans than this, the oldest are flushed. Zero
+   * means no limit.
+   */
   public PendingSpans(MutableSpan defaultSpan, Clock clock, SpanHandler spanHandler,
+    AtomicBoolean noop, long maxAgeNanos, int maxSpans) {
+    this(Platform.get(), defaultSpan, clock, spanHandler, noop, maxAgeNanos, maxSpans);
+  }
+
+  PendingSpans(Platform platform, MutableSpan defaultSpan, Clock clock, SpanHandler spanHandler,
     AtomicBoolean noop) {
-    this.platform = Platform.get();
+    this(platform, defaultSpan, clock, spanHandler, noop, 0L, 0);
+  }
+
+  PendingSpans(Platform platform, MutableSpan defaultSpan, Clock clock, SpanHandler spanHandler,
+    AtomicBoolean noop, long maxAgeNanos, int maxSpans) {
+    if (maxAgeNanos < 0L) throw new IllegalArgumentException("maxAgeNanos < 0");
+    if (maxSpans < 0) throw new IllegalArgumentException("maxSpans < 0");
+    this.platform = platform;
     this.defaultSpan = defaultSpan;
+    this.awaitingLinkLocalIp = defaultSpan.localIp() == null;
     this.clock = clock;
     this.spanHandler = spanHandler;
     this.noop = noop;
+    this.maxAgeNanos = maxAgeNanos;
+    this.maxSpans = maxSpans;
+    this.sweepIntervalNanos = Math.min(maxAgeNanos, SWEEP_INTERVAL_NANOS);
+    if (maxAgeNanos != 0L) nextSweepNanos = platform.nanoTime() + sweepIntervalNanos;
+  }
+
+  /**
+   * Link local IP discovery can be slow, so {@link brave.Tracing} doesn't block on it. Instead, the
+   * default span is replaced with one including the IP, once resolved.
+   */
+  MutableSpan maybeAddLinkLocalIp() {
+    MutableSpan defaultSpan = this.defaultSpan;
+    if (!platform.resolveLinkLocalIpAsync()) return defaultSpan; // still resolving
+    awaitingLinkLocalIp = false;
+    String linkLocalIp = platform.linkLocalIp(); // doesn't block once resolved
+    if (linkLocalIp == null) return defaultSpan;
+    MutableSpan withLinkLocalIp = new MutableSpan(defaultSpan);
+    withLinkLocalIp.localIp(linkLocalIp);
+    return this.defaultSpan = withLinkLocalIp;
   }
 
   /**
@@ -58,11 +119,12 @@ public final class PendingSpans extends WeakConcurrentMap<TraceContext, PendingS
     PendingSpan result = get(context);
     if (result != null) return result;
 
+    MutableSpan defaultSpan = awaitingLinkLocalIp ? maybeAddLinkLocalIp() : this.defaultSpan;
     MutableSpan span = new MutableSpan(context, defaultSpan);
     PendingSpan parentSpan = parent != null ? get(parent) : null;
 
     // save overhead calculating time if the parent is in-progress (usually is)
-    TickClock clock;
+    Clock clock;
     if (parentSpan != null) {
       TraceContext parentContext = parentSpan.context();
       if (parentContext != null) parent = parentContext;
@@ -70,11 +132,15 @@ public final class PendingSpans extends WeakConcurrentMap<TraceContext, PendingS
       if (start) span.startTimestamp(clock.currentTimeMicroseconds());
     } else {
       long currentTimeMicroseconds = this.clock.currentTimeMicroseconds();
-      clock = new TickClock(platform, currentTimeMicroseconds, platform.nanoTime());
+      // A coarse clock is already tick-based and cheap to read, so needn't be wrapped.
+      clock = this.clock instanceof CoarseClock ? this.clock
+        : new TickClock(platform, currentTimeMicroseconds, platform.nanoTime());
       if (start) span.startTimestamp(currentTimeMicroseconds);
     }
 
-    PendingSpan newSpan = new PendingSpan(context, span, clock);
+    boolean bounded = maxAgeNanos != 0L || maxSpans != 0;
+    long createdNanos = bounded ? platform.nanoTime() : 0L;
+    PendingSpan newSpan = new PendingSpan(context, span, clock, createdNanos);
     // Probably absent because we already checked with get() at the entrance of this method
     PendingSpan previousSpan = putIfProbablyAbsent(context, newSpan);
     if (previousSpan != null) return previousSpan; // lost race
@@ -85,9 +151,65 @@ public final class PendingSpans extends WeakConcurrentMap<TraceContext, PendingS
 
     spanHandler.begin(newSpan.handlerContext, newSpan.span, parentSpan != null
       ? parentSpan.handlerContext : null);
+    if (bounded) maybeSweep(createdNanos);
     return newSpan;
   }
 
+  /** Flushes spans past the max age, when due, and the oldest spans when over the max count. */
+  void maybeSweep(long nanoTime) {
+    boolean ageDue = maxAgeNanos != 0L && nanoTime - nextSweepNanos >= 0L;
+    if (!ageDue && (maxSpans == 0 || size() <= maxSpans)) return;
+    if (!sweeping.compareAndSet(false, true)) return; // another caller is sweeping
+    try {
+      if (ageDue) {
+        nextSweepNanos = nanoTime + sweepIntervalNanos;
+        flushOlderThan(nanoTime - maxAgeNanos);
+      }
+      if (maxSpans != 0 && size() > maxSpans) flushOldest();
+    } finally {
+      sweeping.set(false);
+    }
+  }
+
+  void flushOlderThan(long deadlineNanos) {
+    for (Map.Entry<TraceContext, PendingSpan> entry : this) {
+      if (entry.getValue().createdNanos - deadlineNanos < 0L) flushStale(entry.getKey());
+    }
+  }
+
+  /**
+   * Flushes the oldest spans until there are 1/8th fewer than the max count, so that a process
+   * steadily at the max doesn't sort on each new span.
+   */
+  void flushOldest() {
+    List<Map.Entry<TraceContext, PendingSpan>> entries =
+      new ArrayList<Map.Entry<TraceContext, PendingSpan>>(size());
+    for (Map.Entry<TraceContext, PendingSpan> entry : this) entries.add(entry);
+    Collections.sort(entries, OLDEST_FIRST);
+    int excess = entries.size() - (maxSpans - maxSpans / 8);
+    for (int i = 0; i < excess; i++) flushStale(entries.get(i).getKey());
+  }
+
+  /** Unlike {@link #flush(TraceContext)}, this adds an annotation, as it is likely a bug. */
+  void flushStale(TraceContext context) {
+    PendingSpan last = remove(context);
+    if (last == null) return; // lost race with finish
+    // The span is still in use by the application, so lock it like RealSpan does when mutating.
+    synchronized (last.span) {
+      last.span.annotate(last.clock.currentTimeMicroseconds(), "brave.flush");
+      spanHandler.end(last.handlerContext, last.span, Cause.FLUSHED);
+    }
+  }
+
+  static final Comparator<Map.Entry<TraceContext, PendingSpan>> OLDEST_FIRST =
+    new Comparator<Map.Entry<TraceContext, PendingSpan>>() {
+      @Override public int compare(Map.Entry<TraceContext, PendingSpan> left,
+        Map.Entry<TraceContext, PendingSpan> right) {
+        long diff = left.getValue().createdNanos - right.getValue().createdNanos; // wraps safely
+        return diff < 0L ? -1 : diff > 0L ? 1 : 0;
+      }
+    };
+
   /** @see brave.Span#abandon() */
   public void abandon(TraceContext context) {
     PendingSpan last = remove(context);
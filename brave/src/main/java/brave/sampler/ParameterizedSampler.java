@@ -17,6 +17,10 @@ import java.util.Map;
  * If all calls to a java method should have the same sample rate, consider {@link
  * DeclarativeSampler} instead.
  *
+ * <p>Rules are evaluated in order. When there are many rules, those using matchers such as {@code
+ * brave.http.HttpRequestMatchers.pathStartsWith} are indexed, so that finding the first match
+ * doesn't require evaluating all of them.
+ *
  * @param <P> The type that encloses parameters associated with a sample rate. For example, this
  * could be a pair of http and method.
  * @see Matcher
@@ -73,14 +77,22 @@ public final class ParameterizedSampler<P> implements SamplerFunction<P> {
     }
   }
 
+  /** Below this count, evaluating rules in order is as fast as looking them up. */
+  static final int MIN_INDEXED_RULES = 8;
+
   final R<P>[] rules; // array avoids Map overhead at runtime
+  final Matcher<P>[] matchers;
+  @Nullable final RuleIndex<P> index;
 
   ParameterizedSampler(Builder<P> builder) {
     this.rules = new R[builder.rules.size()];
+    this.matchers = new Matcher[rules.length];
     int i = 0;
     for (Map.Entry<Matcher<P>, Sampler> rule : builder.rules.entrySet()) {
+      matchers[i] = rule.getKey();
       rules[i++] = new R<P>(rule.getKey(), rule.getValue());
     }
+    this.index = rules.length >= MIN_INDEXED_RULES ? RuleIndex.create(matchers) : null;
   }
 
   /**
@@ -90,6 +102,11 @@ public final class ParameterizedSampler<P> implements SamplerFunction<P> {
    */
   @Override public @Nullable Boolean trySample(P parameters) {
     if (parameters == null) return null;
+    if (index != null) {
+      int rule = index.firstMatch(parameters, matchers);
+      if (rule == -1) return null;
+      return rules[rule].sampler.isSampled(0L); // counting sampler ignores the input
+    }
     for (R<P> rule : rules) {
       if (rule.matcher.matches(parameters)) {
         return rule.sampler.isSampled(0L); // counting sampler ignores the input
@@ -0,0 +1,203 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.sampler;
+
+import brave.internal.IndexableMatcher;
+import brave.internal.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the first rule of a {@link ParameterizedSampler} that matches, without evaluating all rules
+ * in order.
+ *
+ * <p>The most common {@link IndexableMatcher#attribute() attribute} among rules is indexed in a
+ * character trie. Looking up the rules for an input walks the trie along the attribute's value, so
+ * costs O(length of the value) instead of O(rules). A rule can be indexed if its matcher is an
+ * {@link IndexableMatcher} of that attribute or {@linkplain Matchers#and(Matcher[]) and} including
+ * one. Remaining conditions of the latter are evaluated after lookup. Other rules are opaque, and
+ * evaluated in order as before.
+ *
+ * <p>As rules are numbered in declaration order, the first that matches is the one with the lowest
+ * number. Each list of candidate rules is in ascending order, so is only scanned until a match or
+ * a rule numbered higher than the best so far.
+ */
+final class RuleIndex<P> {
+  static final int[] EMPTY = {};
+
+  /** Returns null if no rule can be indexed. */
+  @Nullable static <P> RuleIndex<P> create(Matcher<P>[] matchers) {
+    String attribute = mostCommonAttribute(matchers);
+    if (attribute == null) return null;
+
+    IndexableMatcher<P> reader = null;
+    Matcher<P>[] residuals = new Matcher[matchers.length];
+    List<Integer> opaque = new ArrayList<Integer>();
+    Node root = new Node();
+    for (int i = 0; i < matchers.length; i++) {
+      Matcher<P> matcher = matchers[i];
+      IndexableMatcher<P> indexed = null;
+      if (matcher instanceof IndexableMatcher) {
+        if (attribute.equals(((IndexableMatcher<P>) matcher).attribute())) {
+          indexed = (IndexableMatcher<P>) matcher;
+        }
+      } else if (matcher instanceof Matchers.And) {
+        Matcher<P>[] and = ((Matchers.And<P>) matcher).matchers;
+        int index = indexOf(and, attribute);
+        if (index != -1) {
+          indexed = (IndexableMatcher<P>) and[index];
+          residuals[i] = without(and, index);
+        }
+      }
+      if (indexed == null) {
+        opaque.add(i);
+        continue;
+      }
+      if (reader == null) reader = indexed;
+      root.add(indexed.value(), indexed.isPrefix(), i);
+    }
+
+    int[] opaqueRules = new int[opaque.size()];
+    for (int i = 0; i < opaqueRules.length; i++) opaqueRules[i] = opaque.get(i);
+    return new RuleIndex<P>(reader, root, residuals, opaqueRules);
+  }
+
+  @Nullable static String mostCommonAttribute(Matcher<?>[] matchers) {
+    Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+    for (Matcher<?> matcher : matchers) {
+      if (matcher instanceof IndexableMatcher) {
+        increment(counts, ((IndexableMatcher<?>) matcher).attribute());
+      } else if (matcher instanceof Matchers.And) {
+        for (Matcher<?> m : ((Matchers.And<?>) matcher).matchers) {
+          if (!(m instanceof IndexableMatcher)) continue;
+          increment(counts, ((IndexableMatcher<?>) m).attribute());
+        }
+      }
+    }
+    String result = null;
+    int max = 0;
+    for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+      if (entry.getValue() > max) {
+        result = entry.getKey();
+        max = entry.getValue();
+      }
+    }
+    return result;
+  }
+
+  static void increment(Map<String, Integer> counts, String attribute) {
+    Integer count = counts.get(attribute);
+    counts.put(attribute, count == null ? 1 : count + 1);
+  }
+
+  static int indexOf(Matcher<?>[] matchers, String attribute) {
+    for (int i = 0; i < matchers.length; i++) {
+      if (matchers[i] instanceof IndexableMatcher
+        && attribute.equals(((IndexableMatcher<?>) matchers[i]).attribute())) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  static <P> Matcher<P> without(Matcher<P>[] matchers, int index) {
+    Matcher<P>[] result = new Matcher[matchers.length - 1];
+    System.arraycopy(matchers, 0, result, 0, index);
+    System.arraycopy(matchers, index + 1, result, index, result.length - index);
+    return Matchers.and(result);
+  }
+
+  final IndexableMatcher<P> reader;
+  final Node root;
+  /** Conditions left to evaluate after lookup, by rule. Null when lookup implies a match. */
+  final Matcher<P>[] residuals;
+  final int[] opaqueRules;
+
+  RuleIndex(IndexableMatcher<P> reader, Node root, Matcher<P>[] residuals, int[] opaqueRules) {
+    this.reader = reader;
+    this.root = root;
+    this.residuals = residuals;
+    this.opaqueRules = opaqueRules;
+  }
+
+  /** Returns the number of the first rule that matches, or -1. */
+  int firstMatch(P parameters, Matcher<P>[] matchers) {
+    int best = matchers.length;
+    String value = reader.attributeValue(parameters);
+    if (value != null) {
+      Node node = root;
+      for (int i = 0, length = value.length(); ; i++) {
+        best = firstMatch(node.prefixRules, residuals, parameters, best);
+        if (i == length) {
+          best = firstMatch(node.exactRules, residuals, parameters, best);
+          break;
+        }
+        node = node.child(value.charAt(i));
+        if (node == null) break;
+      }
+    }
+    best = firstMatch(opaqueRules, matchers, parameters, best);
+    return best == matchers.length ? -1 : best;
+  }
+
+  static <P> int firstMatch(int[] rules, Matcher<P>[] matchers, P parameters, int best) {
+    for (int rule : rules) {
+      if (rule >= best) break;
+      Matcher<P> matcher = matchers[rule];
+      if (matcher == null || matcher.matches(parameters)) return rule;
+    }
+    return best;
+  }
+
+  /** Children are sorted by character, as a trie is read much more often than it is built. */
+  static final class Node {
+    char[] keys = {};
+    Node[] children = {};
+    int[] prefixRules = EMPTY, exactRules = EMPTY;
+
+    void add(String value, boolean prefix, int rule) {
+      Node node = this;
+      for (int i = 0, length = value.length(); i < length; i++) {
+        node = node.childOrAdd(value.charAt(i));
+      }
+      if (prefix) {
+        node.prefixRules = append(node.prefixRules, rule);
+      } else {
+        node.exactRules = append(node.exactRules, rule);
+      }
+    }
+
+    @Nullable Node child(char key) {
+      int i = Arrays.binarySearch(keys, key);
+      return i >= 0 ? children[i] : null;
+    }
+
+    Node childOrAdd(char key) {
+      int i = Arrays.binarySearch(keys, key);
+      if (i >= 0) return children[i];
+      i = -(i + 1); // insertion point
+      char[] newKeys = new char[keys.length + 1];
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(keys, 0, newKeys, 0, i);
+      System.arraycopy(children, 0, newChildren, 0, i);
+      newKeys[i] = key;
+      newChildren[i] = new Node();
+      System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+      System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+      keys = newKeys;
+      children = newChildren;
+      return newChildren[i];
+    }
+
+    static int[] append(int[] rules, int rule) {
+      int[] result = Arrays.copyOf(rules, rules.length + 1);
+      result[rules.length] = rule;
+      return result;
+    }
+  }
+}
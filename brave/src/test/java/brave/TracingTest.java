@@ -14,11 +14,13 @@ import brave.propagation.TraceContext;
 import brave.sampler.Sampler;
 import brave.test.TestSpanHandler;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 
 class TracingTest {
@@ -59,11 +61,12 @@ class TracingTest {
   }
 
   @Test void localEndpointDefaults() {
+    String linkLocalIp = Platform.get().linkLocalIp(); // resolve, so that build doesn't defer it
     Tracing tracing = Tracing.newBuilder().build();
     assertThat(tracing).extracting("tracer.pendingSpans.defaultSpan.localServiceName")
       .isEqualTo("unknown");
     assertThat(tracing).extracting("tracer.pendingSpans.defaultSpan.localIp")
-      .isEqualTo(Platform.get().linkLocalIp());
+      .isEqualTo(linkLocalIp);
   }
 
   @Test void localServiceNamePreservesCase() {
@@ -155,6 +158,76 @@ class TracingTest {
       .isGreaterThanOrEqualTo(spans.get(0).startTimestamp());
   }
 
+  @Test void coarseClock() throws InterruptedException {
+    Tracing tracing = Tracing.newBuilder()
+      .coarseClock(1, TimeUnit.MILLISECONDS)
+      .addSpanHandler(spans)
+      .build();
+    try {
+      brave.Span parent = tracing.tracer().newTrace().name("parent").start();
+      Thread.sleep(10);
+      tracing.tracer().newChild(parent.context()).name("child").start().finish();
+      parent.finish();
+
+      assertThat(tracing.clock(parent.context()))
+        .isSameAs(((Tracing.Default) tracing).coarseClock);
+    } finally {
+      tracing.close();
+    }
+
+    assertThat(spans.get(0).startTimestamp())
+      .isGreaterThan(spans.get(1).startTimestamp());
+    assertThat(spans.get(1).finishTimestamp())
+      .isGreaterThanOrEqualTo(spans.get(0).finishTimestamp());
+  }
+
+  @Test void maxPendingSpans() {
+    try (Tracing tracing = Tracing.newBuilder()
+      .maxPendingSpans(1)
+      .addSpanHandler(spans)
+      .build()) {
+      brave.Span leaked = tracing.tracer().newTrace().name("leaked").start();
+      tracing.tracer().newTrace().name("next").start().finish();
+      leaked.finish(); // already flushed
+    }
+
+    assertThat(spans).extracting(MutableSpan::name).containsExactly("leaked", "next");
+    assertThat(spans.get(0).containsAnnotation("brave.flush")).isTrue();
+  }
+
+  @Test void pendingSpanMaxAge() throws InterruptedException {
+    try (Tracing tracing = Tracing.newBuilder()
+      .pendingSpanMaxAge(1, TimeUnit.NANOSECONDS)
+      .addSpanHandler(spans)
+      .build()) {
+      brave.Span leaked = tracing.tracer().newTrace().name("leaked").start();
+      Thread.sleep(1);
+      tracing.tracer().newTrace().name("next").start().finish(); // sweeps the leaked span
+
+      leaked.finish(); // already flushed, so dropped
+      assertThat(spans).extracting(MutableSpan::name).containsExactly("leaked", "next");
+
+      // Looking up the context again makes a new pending span, reported as a partial duplicate.
+      tracing.tracer().toSpan(leaked.context()).finish();
+    }
+
+    assertThat(spans).extracting(MutableSpan::id)
+      .containsExactly(spans.get(0).id(), spans.get(1).id(), spans.get(0).id());
+    assertThat(spans.get(0).containsAnnotation("brave.flush")).isTrue();
+    assertThat(spans.get(0).startTimestamp()).isNotZero();
+    assertThat(spans.get(2).containsAnnotation("brave.flush")).isFalse();
+    assertThat(spans.get(2).name()).isNull();
+    assertThat(spans.get(2).startTimestamp()).isZero();
+    assertThat(spans.get(2).finishTimestamp()).isNotZero();
+  }
+
+  @Test void pendingSpanLimits_invalid() {
+    assertThatThrownBy(() -> Tracing.newBuilder().maxPendingSpans(-1))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> Tracing.newBuilder().pendingSpanMaxAge(-1, TimeUnit.SECONDS))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
   @Test void spanHandler_doesntRecordWhenUnsampled() {
     try (Tracing tracing = Tracing.newBuilder()
       .addSpanHandler(spans)
@@ -0,0 +1,171 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.GarbageCollectors;
+import brave.ScopedSpan;
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.propagation.StrictCurrentTraceContext;
+import brave.propagation.TraceContext;
+import brave.test.TestSpanHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static brave.handler.CompressingSpanHandler.TAG_COUNT;
+import static brave.handler.CompressingSpanHandler.TAG_DURATION_MAX;
+import static brave.handler.CompressingSpanHandler.TAG_DURATION_MIN;
+import static brave.handler.CompressingSpanHandler.TAG_DURATION_SUM;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CompressingSpanHandlerTest {
+  TestSpanHandler spans = new TestSpanHandler();
+  Tracing tracing = Tracing.newBuilder()
+    .currentTraceContext(StrictCurrentTraceContext.create())
+    .addSpanHandler(CompressingSpanHandler.create(spans))
+    .build();
+  Tracer tracer = tracing.tracer();
+
+  @AfterEach void close() {
+    tracing.close();
+  }
+
+  @Test void compressesConsecutiveSiblings() {
+    Span parent = tracer.newTrace().name("parent").start(1L);
+    client(parent.context(), "get", "redis", 10L, 12L);
+    client(parent.context(), "get", "redis", 13L, 18L);
+    client(parent.context(), "get", "redis", 19L, 22L);
+    assertThat(spans).isEmpty(); // held until the run or parent ends
+
+    parent.finish(30L);
+
+    assertThat(spans).hasSize(2);
+    MutableSpan compressed = spans.get(0);
+    assertThat(compressed.name()).isEqualTo("get");
+    assertThat(compressed.parentId()).isEqualTo(parent.context().spanIdString());
+    assertThat(compressed.startTimestamp()).isEqualTo(10L);
+    assertThat(compressed.finishTimestamp()).isEqualTo(22L);
+    assertThat(compressed.tags()).containsOnly(
+      entry(TAG_COUNT, "3"),
+      entry(TAG_DURATION_SUM, "10"),
+      entry(TAG_DURATION_MIN, "2"),
+      entry(TAG_DURATION_MAX, "5")
+    );
+    assertThat(spans.get(1).name()).isEqualTo("parent");
+  }
+
+  @Test void singleSpanUnchanged() {
+    Span parent = tracer.newTrace().name("parent").start(1L);
+    client(parent.context(), "get", "redis", 10L, 12L);
+    parent.finish(30L);
+
+    assertThat(spans.get(0).finishTimestamp()).isEqualTo(12L);
+    assertThat(spans.get(0).tags()).isEmpty();
+  }
+
+  @Test void differentSiblingEndsRun() {
+    Span parent = tracer.newTrace().name("parent").start(1L);
+    client(parent.context(), "get", "redis", 10L, 12L);
+    client(parent.context(), "get", "redis", 13L, 14L);
+    client(parent.context(), "set", "redis", 15L, 16L);
+    client(parent.context(), "get", "mysql", 17L, 18L);
+    client(parent.context(), "get", "redis", 19L, 20L);
+    parent.finish(30L);
+
+    assertThat(spans).extracting(MutableSpan::name, s -> s.tag(TAG_COUNT))
+      .containsExactly(
+        tuple("get", "2"),
+        tuple("set", null),
+        tuple("get", null),
+        tuple("get", null),
+        tuple("parent", null)
+      );
+    assertThat(spans.get(2).remoteServiceName()).isEqualTo("mysql");
+  }
+
+  @Test void errorsNotCompressed() {
+    Span parent = tracer.newTrace().name("parent").start(1L);
+    client(parent.context(), "get", "redis", 10L, 12L);
+    tracer.newChild(parent.context()).name("get").remoteServiceName("redis")
+      .start(13L).error(new RuntimeException()).finish(14L);
+    client(parent.context(), "get", "redis", 15L, 16L);
+    client(parent.context(), "get", "redis", 17L, 18L);
+    parent.finish(30L);
+
+    assertThat(spans).extracting(s -> s.tag(TAG_COUNT))
+      .containsExactly(null, null, "2", null);
+    assertThat(spans.get(1).error()).isNotNull();
+  }
+
+  @Test void spansWithChildrenNotCompressed() {
+    ScopedSpan parent = tracer.startScopedSpan("parent");
+    for (int i = 0; i < 2; i++) {
+      ScopedSpan child = tracer.startScopedSpan("child");
+      tracer.startScopedSpan("grandchild").finish();
+      child.finish();
+    }
+    parent.finish();
+
+    assertThat(spans).extracting(MutableSpan::name)
+      .containsExactly("grandchild", "child", "grandchild", "child", "parent");
+  }
+
+  @Test void childFinishedAfterParentNotHeld() {
+    Span parent = tracer.newTrace().name("parent").start(1L);
+    Span child = tracer.newChild(parent.context()).name("get").start(10L);
+    parent.finish(20L);
+
+    child.finish(30L);
+
+    assertThat(spans).extracting(MutableSpan::name).containsExactly("parent", "get");
+  }
+
+  @Test void abandonedParentPassesChildren() {
+    Span parent = tracer.newTrace().name("parent").start(1L);
+    client(parent.context(), "get", "redis", 10L, 12L);
+    parent.abandon();
+
+    assertThat(spans).extracting(MutableSpan::name).containsExactly("get");
+  }
+
+  @Test void parentNeverEnded_passesChildrenWhenCollected() {
+    tracing.close();
+    tracing = Tracing.newBuilder()
+      .currentTraceContext(StrictCurrentTraceContext.create())
+      .addSpanHandler(new SpanHandler() { // drops the parent before it reaches the compressor
+        @Override public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+          return !"parent".equals(span.name());
+        }
+      })
+      .addSpanHandler(CompressingSpanHandler.create(spans))
+      .build();
+    tracer = tracing.tracer();
+
+    finishParentWithChildren();
+    assertThat(spans).isEmpty(); // held, as the parent didn't end here
+
+    GarbageCollectors.blockOnGC();
+    client(tracer.newTrace().context(), "get", "redis", 1L, 2L); // triggers expunge
+
+    assertThat(spans).extracting(MutableSpan::name, s -> s.tag(TAG_COUNT))
+      .contains(tuple("get", "2"));
+  }
+
+  /** Separate from the test method so that the parent context can be garbage collected. */
+  void finishParentWithChildren() {
+    Span parent = tracer.newTrace().name("parent").start(1L);
+    client(parent.context(), "get", "redis", 10L, 12L);
+    client(parent.context(), "get", "redis", 13L, 14L);
+    parent.finish(20L);
+  }
+
+  void client(TraceContext parent, String name, String remoteServiceName, long start, long end) {
+    tracer.newChild(parent).kind(Span.Kind.CLIENT).name(name).remoteServiceName(remoteServiceName)
+      .start(start).finish(end);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.Span.Kind;
+import brave.Tracer;
+import brave.Tracing;
+import brave.handler.MetricsSpanHandler.Snapshot;
+import brave.propagation.StrictCurrentTraceContext;
+import brave.sampler.Sampler;
+import brave.test.TestSpanHandler;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import javax.management.JMX;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static brave.handler.MetricsSpanHandler.BUCKET_COUNT;
+import static brave.handler.MetricsSpanHandler.MAX_DURATION_MICROS;
+import static brave.handler.MetricsSpanHandler.bucketIndex;
+import static brave.handler.MetricsSpanHandler.bucketLowerBound;
+import static brave.handler.MetricsSpanHandler.bucketUpperBound;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+class MetricsSpanHandlerTest {
+  MetricsSpanHandler metrics = MetricsSpanHandler.newBuilder().build();
+  TestSpanHandler spans = new TestSpanHandler();
+  Tracing tracing = Tracing.newBuilder()
+    .localServiceName("favstar")
+    .currentTraceContext(StrictCurrentTraceContext.create())
+    .sampler(Sampler.NEVER_SAMPLE)
+    .alwaysSampleLocal()
+    .addSpanHandler(metrics)
+    .addSpanHandler(spans)
+    .build();
+  Tracer tracer = tracing.tracer();
+
+  @AfterEach void close() {
+    tracing.close();
+  }
+
+  @Test void recordsUnsampledSpans() {
+    tracer.nextSpan().name("get").kind(Kind.SERVER).start(1L).finish(11L);
+    tracer.nextSpan().name("get").kind(Kind.SERVER).start(1L).finish(31L);
+    tracer.nextSpan().name("get").kind(Kind.SERVER).start(1L).error(new RuntimeException())
+      .finish(101L);
+    tracer.nextSpan().name("get").kind(Kind.CLIENT).start(1L).finish(2L);
+
+    assertThat(metrics.snapshot())
+      .extracting(Snapshot::localServiceName, Snapshot::name, Snapshot::kind, Snapshot::error,
+        Snapshot::count, Snapshot::durationSumMicros)
+      .containsExactly(
+        tuple("favstar", "get", Kind.CLIENT, false, 1L, 1L),
+        tuple("favstar", "get", Kind.SERVER, false, 2L, 40L),
+        tuple("favstar", "get", Kind.SERVER, true, 1L, 100L)
+      );
+  }
+
+  @Test void ignoresUnfinished() {
+    tracer.nextSpan().name("get").start(1L).flush();
+    tracer.nextSpan().name("get").start(1L).abandon();
+
+    assertThat(metrics.snapshot()).isEmpty();
+  }
+
+  @Test void maxSeries() {
+    metrics = MetricsSpanHandler.newBuilder().maxSeries(2).build();
+    for (String name : new String[] {"a", "b", "c", "a"}) {
+      MutableSpan span = new MutableSpan();
+      span.localServiceName(name);
+      span.name(name);
+      span.startTimestamp(1L);
+      span.finishTimestamp(2L);
+      metrics.end(null, span, SpanHandler.Cause.FINISHED);
+    }
+
+    assertThat(metrics.snapshot()).extracting(Snapshot::name, Snapshot::count)
+      .containsExactly(tuple("a", 2L), tuple("b", 1L));
+    assertThat(metrics.droppedSpans()).isEqualTo(1L);
+    assertThat(metrics.services).containsOnlyKeys("a", "b"); // dropped spans don't add entries
+  }
+
+  @Test void durationQuantileMicros() {
+    for (int i = 1; i <= 100; i++) {
+      tracer.nextSpan().name("get").start(1L).finish(1L + i * 10L);
+    }
+
+    Snapshot snapshot = metrics.snapshot().get(0);
+    assertThat(snapshot.durationQuantileMicros(0.0)).isEqualTo(10L);
+    assertThat(snapshot.durationQuantileMicros(0.5)).isBetween(500L, 500L + 500L / 8);
+    assertThat(snapshot.durationQuantileMicros(0.99)).isBetween(990L, 990L + 990L / 8);
+    assertThat(snapshot.durationQuantileMicros(1.0)).isBetween(1000L, 1000L + 1000L / 8);
+    assertThatThrownBy(() -> snapshot.durationQuantileMicros(1.5))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test void histogram_sumsStripes() throws Exception {
+    MetricsSpanHandler.Series series = new MetricsSpanHandler.Series("", "get", null, false);
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(() -> series.record(10L));
+      threads[i].start();
+    }
+    for (Thread thread : threads) thread.join();
+
+    Snapshot snapshot = series.snapshot();
+    assertThat(snapshot.count()).isEqualTo(4L);
+    assertThat(snapshot.histogram[bucketIndex(10L)]).isEqualTo(4L);
+  }
+
+  @Test void buckets_contiguous() {
+    assertThat(bucketIndex(0L)).isZero();
+    assertThat(bucketIndex(MAX_DURATION_MICROS)).isEqualTo(BUCKET_COUNT - 1);
+    assertThat(bucketIndex(Long.MAX_VALUE)).isEqualTo(BUCKET_COUNT - 1);
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      assertThat(bucketIndex(bucketLowerBound(i))).isEqualTo(i);
+      assertThat(bucketIndex(bucketUpperBound(i))).isEqualTo(i);
+      // log-linear: the width of a bucket is at most an eighth of its lower bound
+      assertThat(bucketUpperBound(i) - bucketLowerBound(i))
+        .isLessThanOrEqualTo(Math.max(0L, bucketLowerBound(i) / 8));
+    }
+  }
+
+  @Test void registerMBean() throws Exception {
+    tracer.nextSpan().name("get").kind(Kind.SERVER).start(1L).finish(11L);
+
+    ObjectName name = new ObjectName("brave:type=MetricsSpanHandler,name=\"test\"");
+    try (Closeable registration = metrics.registerMBean("test")) {
+      MetricsSpanHandler.MetricsMXBean mxBean = JMX.newMXBeanProxy(
+        ManagementFactory.getPlatformMBeanServer(), name, MetricsSpanHandler.MetricsMXBean.class);
+      assertThat(mxBean.getCounts()).containsExactly(entry("favstar get SERVER", 1L));
+      assertThat(mxBean.getDurationSums()).containsExactly(entry("favstar get SERVER", 10L));
+    }
+    assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name)).isFalse();
+  }
+}
@@ -158,15 +158,45 @@ public class MutableSpanTest {
     );
   }
 
+  @Test void tags_manyTags() {
+    MutableSpan span = new MutableSpan();
+    int count = MutableSpan.TAG_INDEX_THRESHOLD * 4;
+    for (int i = 0; i < count; i++) span.tag("k" + i, "v" + i);
+
+    assertThat(span.tagIndex).isNotNull();
+    assertThat(span.tag("k" + (count - 1))).isEqualTo("v" + (count - 1));
+    assertThat(span.tag("missing")).isNull();
+
+    span.tag("k3", "updated");
+    assertThat(span.tagCount()).isEqualTo(count);
+    assertThat(span.tagKeyAt(3)).isEqualTo("k3");
+    assertThat(span.tagValueAt(3)).isEqualTo("updated");
+
+    assertThat(span.removeTag("k0")).isEqualTo("v0");
+    assertThat(span.tagIndex).isNull();
+    assertThat(span.tag("k0")).isNull();
+    assertThat(span.tag("k1")).isEqualTo("v1");
+    assertThat(span.tagKeyAt(0)).isEqualTo("k1");
+
+    span.forEachTag((key, value) -> key.equals("k5") ? null : value);
+    assertThat(span.tag("k5")).isNull();
+    assertThat(span.tag("k6")).isEqualTo("v6");
+
+    // insertion order is retained
+    span.tag("k0", "v0");
+    List<String> keys = new ArrayList<>();
+    span.forEachTag((target, key, value) -> target.add(key), keys);
+    assertThat(keys).hasSize(count - 1).startsWith("k1", "k2", "k3", "k4", "k6").endsWith("k0");
+  }
+
   @Test void annotations_copyOnWrite() {
     MutableSpan span = new MutableSpan();
     span.annotate(1L, "ws");
 
-    // this shows the copy-constructor copies internal arrays.
+    // this shows the copy-constructor shares internal arrays until they are mutated.
     MutableSpan span2 = new MutableSpan(span);
-    assertThat(span2.annotations)
-        .isNotSameAs(span.annotations)
-        .isEqualTo(span.annotations);
+    assertThat(span2.annotationTimestamps).isSameAs(span.annotationTimestamps);
+    assertThat(span2.annotationValues).isSameAs(span.annotationValues);
 
     span.annotate(2L, "wr");
     assertThat(span.annotations()).containsExactly(
@@ -581,6 +611,36 @@ public class MutableSpanTest {
     }
   }
 
+  @Test void contextConstructor_sharesDefaultsUntilMutated() {
+    TraceContext context = TraceContext.newBuilder().traceId(1L).spanId(2L).build();
+    MutableSpan defaults = new MutableSpan();
+    defaults.tag("region", "us-east-1");
+    defaults.tag("cluster", "prod");
+    defaults.annotate(1L, "foo");
+
+    MutableSpan span1 = new MutableSpan(context, defaults);
+    MutableSpan span2 = new MutableSpan(context, defaults);
+    assertThat(span1.tags).isSameAs(defaults.tags).isSameAs(span2.tags);
+
+    span1.tag("region", "us-west-2");
+    span1.removeTag("cluster");
+    span2.tag("version", "1.0");
+    span2.forEachAnnotation((timestamp, value) -> null);
+
+    assertThat(span1.tags()).containsExactly(entry("region", "us-west-2"));
+    assertThat(span2.tags()).containsExactly(
+      entry("region", "us-east-1"), entry("cluster", "prod"), entry("version", "1.0"));
+    assertThat(span2.annotationCount()).isZero();
+    assertThat(defaults.tags()).containsExactly(
+      entry("region", "us-east-1"), entry("cluster", "prod"));
+    assertThat(defaults.annotations()).containsExactly(entry(1L, "foo"));
+
+    // defaults are also protected from their own mutations
+    MutableSpan span3 = new MutableSpan(context, defaults);
+    defaults.tag("cluster", "staging");
+    assertThat(span3.tag("cluster")).isEqualTo("prod");
+  }
+
   @Test void copyConstructor() {
     for (Supplier<MutableSpan> constructor : PERMUTATIONS) {
       MutableSpan span = constructor.get();
@@ -593,10 +653,10 @@ public class MutableSpanTest {
     span.tag("http.path", "/api");
     span.tag("clnt/finagle.version", "6.45.0");
 
-    // this shows the copy-constructor copies internal arrays.
+    // this shows the copy-constructor shares internal arrays until they are mutated.
     MutableSpan span2 = new MutableSpan(span);
-    assertThat(span2.annotations).isNotSameAs(span.annotations);
-    assertThat(span2.tags).isNotSameAs(span.tags);
+    assertThat(span2.annotationTimestamps).isSameAs(span.annotationTimestamps);
+    assertThat(span2.tags).isSameAs(span.tags);
     assertEqualWithSameHashCode(span, span2);
 
     span.annotate(1000L, "redacted");
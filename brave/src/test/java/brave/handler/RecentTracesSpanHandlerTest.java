@@ -0,0 +1,127 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.propagation.StrictCurrentTraceContext;
+import brave.sampler.Sampler;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentTracesSpanHandlerTest {
+  AtomicLong clock = new AtomicLong(1000L);
+  RecentTracesSpanHandler handler = RecentTracesSpanHandler.newBuilder()
+    .clock(clock::get)
+    .maxAge(1, TimeUnit.SECONDS)
+    .build();
+  Tracing tracing = Tracing.newBuilder()
+    .currentTraceContext(StrictCurrentTraceContext.create())
+    .sampler(Sampler.NEVER_SAMPLE)
+    .alwaysSampleLocal()
+    .addSpanHandler(handler)
+    .build();
+  Tracer tracer = tracing.tracer();
+
+  @AfterEach void close() {
+    tracing.close();
+  }
+
+  @Test void trace() {
+    Span root = tracer.newTrace().name("root").start(1000L);
+    tracer.newChild(root.context()).name("child").start(1001L).finish(1002L);
+    root.finish(1003L);
+    tracer.newTrace().name("other").start(1000L).finish(1001L);
+
+    assertThat(names(handler.trace(root.context().traceIdString())))
+      .containsExactly("child", "root");
+    assertThat(handler.trace("000000000000000" + "1")).isEmpty();
+    assertThat(handler.trace("invalid")).isEmpty();
+  }
+
+  @Test void trace_128bit() {
+    tracing.close();
+    tracing = Tracing.newBuilder().traceId128Bit(true).addSpanHandler(handler).build();
+    Span root = tracing.tracer().newTrace().name("root").start(1000L);
+    root.finish(1001L);
+
+    String traceId = root.context().traceIdString();
+    assertThat(traceId).hasSize(32);
+    assertThat(names(handler.trace(traceId))).containsExactly("root");
+    assertThat(names(handler.trace(traceId.substring(16)))).containsExactly("root");
+    assertThat(handler.trace("1" + traceId.substring(1))).isEmpty();
+  }
+
+  @Test void slowest() {
+    for (long duration : new long[] {5L, 50L, 10L, 40L}) {
+      tracer.newTrace().name("get /users").tag("duration", String.valueOf(duration))
+        .start(1000L).finish(1000L + duration);
+    }
+    tracer.newTrace().name("get /").start(1000L).finish(1100L);
+
+    assertThat(tags(handler.slowest("get /users", 2))).containsExactly("50", "40");
+    assertThat(tags(handler.slowerThanQuantile("get /users", 0.5))).containsExactly("50", "40");
+    assertThat(tags(handler.slowerThanQuantile("get /users", 0.99))).containsExactly("50");
+    assertThat(handler.slowest("post /users", 2)).isEmpty();
+    assertThat(handler.spanNames()).containsExactly("get /", "get /users");
+  }
+
+  @Test void evictsExpired() {
+    tracer.newTrace().name("old").start(1000L).finish(1001L);
+    clock.set(1001L + TimeUnit.SECONDS.toMicros(1) + 1L);
+    tracer.newTrace().name("new").start(clock.get()).finish(clock.get());
+
+    assertThat(handler.spanNames()).containsExactly("new");
+    assertThat(handler.traceIdIndex).hasSize(1);
+  }
+
+  @Test void evictsOldestOverMaxBytes() {
+    byte[] encoded = MutableSpanBytesEncoder.zipkinJsonV2(brave.Tags.ERROR)
+      .encode(new MutableSpan());
+    handler = RecentTracesSpanHandler.newBuilder()
+      .clock(clock::get)
+      .maxBytes(3 * (encoded.length + 20 + RecentTracesSpanHandler.ENTRY_OVERHEAD))
+      .build();
+
+    for (int i = 0; i < 10; i++) {
+      MutableSpan span = new MutableSpan();
+      span.name("span" + i);
+      handler.end(tracer.newTrace().context(), span, SpanHandler.Cause.FINISHED);
+    }
+
+    assertThat(handler.spanNames()).containsExactly("span7", "span8", "span9");
+    assertThat(handler.bytes).isLessThanOrEqualTo(handler.maxBytes);
+  }
+
+  @Test void ignoresAbandoned() {
+    tracer.newTrace().name("abandoned").start(1000L).abandon();
+
+    assertThat(handler.spanNames()).isEmpty();
+  }
+
+  static List<String> names(List<byte[]> spans) {
+    return spans.stream().map(RecentTracesSpanHandlerTest::json)
+      .map(json -> json.replaceAll(".*\"name\":\"([^\"]+)\".*", "$1"))
+      .collect(Collectors.toList());
+  }
+
+  static List<String> tags(List<byte[]> spans) {
+    return spans.stream().map(RecentTracesSpanHandlerTest::json)
+      .map(json -> json.replaceAll(".*\"duration\":\"([^\"]+)\".*", "$1"))
+      .collect(Collectors.toList());
+  }
+
+  static String json(byte[] bytes) {
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.handler.SpanHandler.Cause;
+import brave.handler.SpoolingSpanHandler.Batch;
+import brave.propagation.TraceContext;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpoolingSpanHandlerTest {
+  /** Encodes only the name, to make sizes predictable. */
+  static final MutableSpanBytesEncoder NAME_ENCODER = new MutableSpanBytesEncoder() {
+    @Override public int sizeInBytes(MutableSpan input) {
+      return encode(input).length;
+    }
+
+    @Override public byte[] encode(MutableSpan input) {
+      return input.name().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override public byte[] encodeList(List<MutableSpan> input) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public int encodeList(List<MutableSpan> spans, byte[] out, int pos) {
+      throw new UnsupportedOperationException();
+    }
+  };
+
+  TraceContext context = TraceContext.newBuilder().traceId(1L).spanId(2L).build();
+  @TempDir File directory;
+  SpoolingSpanHandler spool;
+
+  @AfterEach void close() throws IOException {
+    if (spool != null) spool.close();
+  }
+
+  SpoolingSpanHandler open(int segmentBytes, long maxBytes) throws IOException {
+    return spool = SpoolingSpanHandler.newBuilder(directory)
+      .encoder(NAME_ENCODER)
+      .segmentBytes(segmentBytes)
+      .maxBytes(maxBytes)
+      .build();
+  }
+
+  void append(String... names) {
+    for (String name : names) {
+      MutableSpan span = new MutableSpan();
+      span.name(name);
+      spool.end(context, span, Cause.FINISHED);
+    }
+  }
+
+  static List<String> names(Batch batch) {
+    return batch.spans().stream().map(b -> new String(b, StandardCharsets.UTF_8))
+      .collect(Collectors.toList());
+  }
+
+  @Test void empty() throws IOException {
+    open(64, 1024);
+
+    assertThat(spool.nextBatch(10).isEmpty()).isTrue();
+  }
+
+  @Test void readsInBatches() throws IOException {
+    open(64, 1024);
+    append("a", "b", "c");
+
+    Batch batch = spool.nextBatch(2);
+    assertThat(names(batch)).containsExactly("a", "b");
+    batch.commit();
+
+    append("d");
+    batch = spool.nextBatch(10);
+    assertThat(names(batch)).containsExactly("c", "d");
+    batch.commit();
+
+    assertThat(spool.nextBatch(10).isEmpty()).isTrue();
+  }
+
+  @Test void uncommittedBatchIsReadAgain() throws IOException {
+    open(64, 1024);
+    append("a", "b");
+
+    assertThat(names(spool.nextBatch(10))).containsExactly("a", "b");
+    assertThat(names(spool.nextBatch(10))).containsExactly("a", "b");
+  }
+
+  @Test void rotatesSegments_deletesCommitted() throws IOException {
+    open(RECORD(5) * 2, 1024); // two records per segment
+    append("span0", "span1", "span2", "span3", "span4");
+    assertThat(spool.segments()).containsExactly(0L, 1L, 2L);
+
+    Batch batch = spool.nextBatch(3);
+    assertThat(names(batch)).containsExactly("span0", "span1", "span2");
+    batch.commit();
+    assertThat(spool.segments()).containsExactly(1L, 2L);
+
+    batch = spool.nextBatch(10);
+    assertThat(names(batch)).containsExactly("span3", "span4");
+    batch.commit();
+    assertThat(spool.segments()).containsExactly(2L);
+  }
+
+  @Test void dropsOverBudget() throws IOException {
+    open(RECORD(5) * 2, RECORD(5) * 4); // two segments of two records
+    append("span0", "span1", "span2", "span3", "span4");
+    assertThat(spool.droppedSpans()).isEqualTo(1L);
+
+    Batch batch = spool.nextBatch(3); // frees the first segment
+    batch.commit();
+    append("span5");
+
+    assertThat(names(spool.nextBatch(10))).containsExactly("span3", "span5");
+  }
+
+  @Test void dropsSpansLargerThanSegment() throws IOException {
+    open(RECORD(5), 1024);
+    append("too long");
+
+    assertThat(spool.droppedSpans()).isEqualTo(1L);
+    assertThat(spool.nextBatch(10).isEmpty()).isTrue();
+  }
+
+  @Test void survivesRestart() throws IOException {
+    open(RECORD(5) * 2, 1024);
+    append("span0", "span1", "span2");
+    spool.nextBatch(1).commit();
+    spool.close();
+
+    open(RECORD(5) * 2, 1024);
+    append("span3");
+
+    assertThat(names(spool.nextBatch(10))).containsExactly("span1", "span2", "span3");
+  }
+
+  /** Simulates a crash while the last record was being written. */
+  @Test void tornRecordIsNotRead_writingResumesThere() throws IOException {
+    open(64, 1024);
+    append("span0", "span1");
+    spool.close();
+
+    try (RandomAccessFile segment = new RandomAccessFile(spool.segmentFile(0), "rw")) {
+      segment.seek(RECORD(5) + SpoolingSpanHandler.RECORD_HEADER);
+      segment.write('X'); // corrupt the payload of span1
+    }
+
+    open(64, 1024);
+    assertThat(names(spool.nextBatch(10))).containsExactly("span0");
+
+    append("span2");
+    assertThat(names(spool.nextBatch(10))).containsExactly("span0", "span2");
+  }
+
+  @Test void concurrentAppends() throws Exception {
+    open(4096, 1024 * 1024);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int thread = 0; thread < 4; thread++) {
+      int t = thread;
+      executor.execute(() -> {
+        for (int i = 0; i < 1000; i++) append("t" + t + "-" + i);
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    List<String> read = new ArrayList<>();
+    for (Batch batch; !(batch = spool.nextBatch(100)).isEmpty(); batch.commit()) {
+      read.addAll(names(batch));
+    }
+    assertThat(read).hasSize(4000).doesNotHaveDuplicates();
+    assertThat(spool.droppedSpans()).isZero();
+  }
+
+  @Test void readsWhileAppending() throws Exception {
+    open(4096, 1024 * 1024);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.execute(() -> {
+      for (int i = 0; i < 4000; i++) append("s" + i);
+    });
+    executor.shutdown();
+
+    List<String> read = new ArrayList<>();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (read.size() < 4000 && System.nanoTime() < deadline) {
+      Batch batch = spool.nextBatch(100);
+      read.addAll(names(batch));
+      batch.commit();
+    }
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(read).hasSize(4000);
+
+    for (int i = 0; i < 4000; i++) assertThat(read.get(i)).isEqualTo("s" + i);
+    assertThat(spool.nextBatch(100).isEmpty()).isTrue();
+  }
+
+  static int RECORD(int payload) {
+    return SpoolingSpanHandler.RECORD_HEADER + payload;
+  }
+}
@@ -10,21 +10,26 @@ import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.when;
@@ -78,6 +83,113 @@ class PlatformTest {
     assertThat(platform.linkLocalIp()).isSameAs(platform.linkLocalIp());
   }
 
+  @Test void linkLocalIp_cachesNull() {
+    AtomicInteger produced = new AtomicInteger();
+    Platform platform = new Platform.Jre7() {
+      @Override String produceLinkLocalIp() {
+        produced.incrementAndGet();
+        return null;
+      }
+    };
+
+    assertThat(platform.linkLocalIp()).isNull();
+    assertThat(platform.linkLocalIp()).isNull();
+    assertThat(produced).hasValue(1);
+  }
+
+  @Test void produceLinkLocalIp_environment() {
+    Platform platform = new Platform.Jre7() {
+      @Override String getenv(String name) {
+        return Platform.LOCAL_IP_ENV.equals(name) ? "10.1.2.3" : null;
+      }
+    };
+
+    assertThat(platform.produceLinkLocalIp()).isEqualTo("10.1.2.3");
+  }
+
+  @Test void produceLinkLocalIp_environmentInvalid() {
+    try (MockedStatic<NetworkInterface> mb = mockStatic(NetworkInterface.class)) {
+      Enumeration<NetworkInterface> nics = nicsWithAddress(null);
+      mb.when(NetworkInterface::getNetworkInterfaces).thenReturn(nics);
+
+      Platform platform = new Platform.Jre7() {
+        @Override String getenv(String name) {
+          return "localhost";
+        }
+      };
+
+      assertThat(platform.produceLinkLocalIp()).isNull();
+    }
+  }
+
+  @Test void resolveLinkLocalIpAsync_environmentDoesntStartThread() {
+    Platform platform = new Platform.Jre7() {
+      @Override String getenv(String name) {
+        return "10.1.2.3";
+      }
+    };
+
+    assertThat(platform.resolveLinkLocalIpAsync()).isTrue();
+    assertThat(platform.linkLocalIpDiscoveryStarted).isFalse();
+    assertThat(platform.linkLocalIp()).isEqualTo("10.1.2.3");
+  }
+
+  @Test void resolveLinkLocalIpAsync_resolvesInBackground() throws Exception {
+    CountDownLatch resolving = new CountDownLatch(1);
+    Platform platform = new Platform.Jre7() {
+      @Override String getenv(String name) {
+        return null;
+      }
+
+      @Override String produceLinkLocalIp() {
+        try {
+          resolving.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return "192.168.0.1";
+      }
+    };
+
+    assertThat(platform.resolveLinkLocalIpAsync()).isFalse();
+    assertThat(platform.resolveLinkLocalIpAsync()).isFalse(); // doesn't start another thread
+    assertThat(platform.linkLocalIp).isNull();
+
+    resolving.countDown();
+    while (!platform.resolveLinkLocalIpAsync()) Thread.sleep(1); // published by the thread
+    assertThat(platform.linkLocalIp).isEqualTo("192.168.0.1");
+  }
+
+  /** The scan must not hold a lock the per-span path takes. */
+  @Test void resolveLinkLocalIpAsync_doesntBlockWhileResolving() throws Exception {
+    CountDownLatch scanning = new CountDownLatch(1), resolving = new CountDownLatch(1);
+    Platform platform = new Platform.Jre7() {
+      @Override String getenv(String name) {
+        return null;
+      }
+
+      @Override String produceLinkLocalIp() {
+        scanning.countDown();
+        try {
+          resolving.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return "192.168.0.1";
+      }
+    };
+
+    try {
+      assertThat(platform.resolveLinkLocalIpAsync()).isFalse();
+      assertThat(scanning.await(10, TimeUnit.SECONDS)).isTrue();
+
+      assertTimeoutPreemptively(Duration.ofSeconds(10),
+        () -> assertThat(platform.resolveLinkLocalIpAsync()).isFalse());
+    } finally {
+      resolving.countDown();
+    }
+  }
+
   @Test void produceLinkLocalIp_exceptionReadingNics() {
     try (MockedStatic<NetworkInterface> mb = mockStatic(NetworkInterface.class)) {
       mb.when(NetworkInterface::getNetworkInterfaces).thenThrow(SocketException.class);
@@ -0,0 +1,93 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal;
+
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+
+import static brave.internal.SqlNormalizer.MAX_LENGTH_PROPERTY;
+import static brave.internal.SqlNormalizer.NORMALIZE_PROPERTY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlNormalizerTest {
+  Properties properties = new Properties();
+
+  @Test void create_disabledByDefault() {
+    assertThat(SqlNormalizer.create(properties)).isNull();
+    assertThat(SqlNormalizer.create(null)).isNull();
+  }
+
+  @Test void create_maxLength() {
+    properties.setProperty(NORMALIZE_PROPERTY, "true");
+    assertThat(SqlNormalizer.create(properties).maxLength)
+      .isEqualTo(SqlNormalizer.DEFAULT_MAX_LENGTH);
+
+    properties.setProperty(MAX_LENGTH_PROPERTY, "64");
+    assertThat(SqlNormalizer.create(properties).maxLength)
+      .isEqualTo(64);
+
+    properties.setProperty(MAX_LENGTH_PROPERTY, "garbage");
+    assertThat(SqlNormalizer.create(properties).maxLength)
+      .isEqualTo(SqlNormalizer.DEFAULT_MAX_LENGTH);
+  }
+
+  @Test void spanName() {
+    assertThat(SqlNormalizer.spanName("select 'hello world'")).isEqualTo("select");
+    assertThat(SqlNormalizer.spanName("commit")).isEqualTo("commit");
+  }
+
+  @Test void normalizeSql_replacesLiterals() {
+    assertThat(SqlNormalizer.normalizeSql(
+      "SELECT * FROM users WHERE name = 'O''Brien' AND nick = \"bob\\\"s\" AND id = 42", 1024))
+      .isEqualTo("SELECT * FROM users WHERE name = ? AND nick = ? AND id = ?");
+  }
+
+  @Test void normalizeSql_numbers() {
+    assertThat(SqlNormalizer.normalizeSql(
+      "UPDATE t2 SET price = 1.5e3, flags = 0x1F WHERE id IN (1, 2)", 1024))
+      .isEqualTo("UPDATE t2 SET price = ?, flags = ? WHERE id IN (?, ?)");
+  }
+
+  @Test void normalizeSql_keepsQuotedIdentifiers() {
+    assertThat(SqlNormalizer.normalizeSql("SELECT `order 1` FROM `t`", 1024))
+      .isEqualTo("SELECT `order 1` FROM `t`");
+  }
+
+  @Test void normalizeSql_collapsesWhitespace() {
+    assertThat(SqlNormalizer.normalizeSql("  SELECT\n\t*\r\n  FROM t  ", 1024))
+      .isEqualTo("SELECT * FROM t");
+  }
+
+  @Test void normalizeSql_truncates() {
+    StringBuilder sql = new StringBuilder("INSERT INTO t VALUES ('a')");
+    for (int i = 0; i < 10000; i++) sql.append(",('a')");
+
+    assertThat(SqlNormalizer.normalizeSql(sql.toString(), 32))
+      .isEqualTo("INSERT INTO t VALUES (?),(?),(?)");
+  }
+
+  @Test void normalize_cachesStatement() {
+    SqlNormalizer normalizer = new SqlNormalizer(1024);
+
+    SqlNormalizer.Statement statement = normalizer.normalize("select 'hello world'");
+    assertThat(statement.name).isEqualTo("select");
+    assertThat(statement.query).isEqualTo("select ?");
+
+    assertThat(normalizer.normalize("select 'goodbye'"))
+      .isSameAs(statement);
+  }
+
+  @Test void normalize_evictsLeastRecentlyUsed() {
+    SqlNormalizer normalizer = new SqlNormalizer(1024);
+
+    for (int i = 0; i < SqlNormalizer.MAX_CACHED_STATEMENTS * 2; i++) {
+      normalizer.normalize("select c" + i + " from t");
+    }
+
+    assertThat(normalizer.cache)
+      .hasSize(SqlNormalizer.MAX_CACHED_STATEMENTS)
+      .containsKey("select c" + (SqlNormalizer.MAX_CACHED_STATEMENTS * 2 - 1) + " from t");
+  }
+}
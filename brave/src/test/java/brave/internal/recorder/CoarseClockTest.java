@@ -0,0 +1,68 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.internal.recorder;
+
+import brave.Clock;
+import brave.internal.Platform;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CoarseClockTest {
+  @Mock Platform platform;
+  @Mock Clock epochClock;
+
+  @Test void tick_publishesRelativeTimestamp() {
+    when(epochClock.currentTimeMicroseconds()).thenReturn(1000L /* 1ms */);
+    when(platform.nanoTime()).thenReturn(0L);
+    CoarseClock clock = new CoarseClock(platform, epochClock, 1000L);
+    assertThat(clock.currentTimeMicroseconds()).isEqualTo(1000L);
+
+    when(platform.nanoTime()).thenReturn(1000L); // 1 microsecond = 1000 nanoseconds
+    assertThat(clock.currentTimeMicroseconds()).isEqualTo(1000L); // not until the next tick
+
+    clock.tick();
+    assertThat(clock.currentTimeMicroseconds()).isEqualTo(1001L); // 1ms + 1us
+  }
+
+  @Test void tick_reanchorsWithoutGoingBackwards() {
+    when(epochClock.currentTimeMicroseconds()).thenReturn(1000L);
+    when(platform.nanoTime()).thenReturn(0L);
+    CoarseClock clock = new CoarseClock(platform, epochClock, 1000L);
+
+    // The epoch clock stepped back by 10us relative to the ticks
+    long reanchorMicros = CoarseClock.REANCHOR_NANOS / 1000;
+    when(epochClock.currentTimeMicroseconds()).thenReturn(1000L + reanchorMicros - 10L);
+    when(platform.nanoTime()).thenReturn(CoarseClock.REANCHOR_NANOS - 1000L);
+    clock.tick();
+    assertThat(clock.currentTimeMicroseconds()).isEqualTo(1000L + reanchorMicros - 1L);
+
+    when(platform.nanoTime()).thenReturn(CoarseClock.REANCHOR_NANOS);
+    clock.tick();
+    assertThat(clock.currentTimeMicroseconds()) // held
+      .isEqualTo(1000L + reanchorMicros - 1L);
+
+    when(platform.nanoTime()).thenReturn(CoarseClock.REANCHOR_NANOS + 20000L);
+    clock.tick();
+    assertThat(clock.currentTimeMicroseconds()) // caught up
+      .isEqualTo(1000L + reanchorMicros + 10L);
+  }
+
+  @Test void close_stopsTicker() throws InterruptedException {
+    CoarseClock clock = CoarseClock.start(Platform.get().clock(), 1000000L /* 1ms */);
+    long start = clock.currentTimeMicroseconds();
+    Thread.sleep(10);
+    assertThat(clock.currentTimeMicroseconds()).isGreaterThan(start);
+
+    clock.close();
+    clock.ticker.join(1000L);
+    assertThat(clock.ticker.isAlive()).isFalse();
+  }
+}
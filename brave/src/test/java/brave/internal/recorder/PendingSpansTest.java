@@ -8,8 +8,10 @@ import brave.Clock;
 import brave.GarbageCollectors;
 import brave.handler.MutableSpan;
 import brave.handler.SpanHandler;
+import brave.handler.SpanHandler.Cause;
 import brave.internal.InternalPropagation;
 import brave.internal.Nullable;
+import brave.internal.Platform;
 import brave.internal.handler.OrphanTracker;
 import brave.propagation.SamplingFlags;
 import brave.propagation.TraceContext;
@@ -19,6 +21,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -26,6 +29,8 @@ import static brave.internal.InternalPropagation.FLAG_LOCAL_ROOT;
 import static brave.internal.InternalPropagation.FLAG_SAMPLED;
 import static brave.internal.InternalPropagation.FLAG_SAMPLED_SET;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class PendingSpansTest {
   static {
@@ -94,6 +99,93 @@ class PendingSpansTest {
     assertThat(traceSpan.clock).isNotSameAs(trace2Span.clock);
   }
 
+  @Test void getOrCreate_addsLinkLocalIpOnceResolved() {
+    Platform platform = mock(Platform.class);
+    MutableSpan defaultSpan = new MutableSpan();
+    defaultSpan.localServiceName("favistar");
+    pendingSpans = new PendingSpans(platform, defaultSpan, () -> 1L, spans, new AtomicBoolean());
+
+    assertThat(pendingSpans.getOrCreate(null, context, false).span.localIp()).isNull();
+
+    when(platform.resolveLinkLocalIpAsync()).thenReturn(true);
+    when(platform.linkLocalIp()).thenReturn("192.168.0.1");
+    TraceContext context2 = context.toBuilder().traceId(2L).build();
+    assertThat(pendingSpans.getOrCreate(null, context2, false).span.localIp())
+      .isEqualTo("192.168.0.1");
+    assertThat(pendingSpans.awaitingLinkLocalIp).isFalse();
+    assertThat(defaultSpan.localIp()).isNull(); // didn't mutate the input
+  }
+
+  @Test void getOrCreate_flushesSpansPastMaxAge() {
+    AtomicLong nanoTime = new AtomicLong();
+    List<Cause> causes = new ArrayList<>();
+    pendingSpans = boundedPendingSpans(nanoTime, causes, 1000L, 0);
+
+    pendingSpans.getOrCreate(null, context, true);
+    nanoTime.set(999L);
+    TraceContext context2 = context.toBuilder().traceId(2L).build();
+    pendingSpans.getOrCreate(null, context2, true);
+    assertThat(spans).isEmpty(); // not yet past the max age
+
+    nanoTime.set(1001L);
+    TraceContext context3 = context.toBuilder().traceId(3L).build();
+    pendingSpans.getOrCreate(null, context3, true);
+
+    assertThat(spans).extracting(MutableSpan::traceId).containsExactly("0000000000000001");
+    assertThat(spans.get(0).containsAnnotation("brave.flush")).isTrue();
+    assertThat(causes).containsExactly(Cause.FLUSHED);
+    assertThat(pendingSpans.get(context)).isNull();
+    assertThat(pendingSpans.get(context2)).isNotNull();
+
+    pendingSpans.finish(context, 0L); // late finish of a flushed span is ignored
+    assertThat(spans).hasSize(1);
+  }
+
+  @Test void getOrCreate_flushesOldestOverMaxSpans() {
+    AtomicLong nanoTime = new AtomicLong();
+    List<Cause> causes = new ArrayList<>();
+    pendingSpans = boundedPendingSpans(nanoTime, causes, 0L, 16);
+
+    List<TraceContext> live = new ArrayList<>(); // strongly reference, so they aren't collected
+    for (int i = 1; i <= 17; i++) {
+      nanoTime.set(i);
+      TraceContext next = context.toBuilder().traceId(i).build();
+      live.add(next);
+      pendingSpans.getOrCreate(null, next, true);
+      if (i <= 16) assertThat(spans).isEmpty();
+    }
+
+    // Flushed the oldest until there are an eighth fewer than the max
+    assertThat(spans).extracting(MutableSpan::traceId)
+      .containsExactly("0000000000000001", "0000000000000002", "0000000000000003");
+    assertThat(spans).allMatch(s -> s.containsAnnotation("brave.flush"));
+    assertThat(causes).containsOnly(Cause.FLUSHED);
+    assertThat(pendingSpans.size()).isEqualTo(14);
+  }
+
+  @Test void getOrCreate_unboundedDoesntTrackCreation() {
+    Platform platform = mock(Platform.class);
+    when(platform.nanoTime()).thenReturn(42L);
+    pendingSpans = new PendingSpans(platform, new MutableSpan(), () -> 1L, spans,
+      new AtomicBoolean());
+
+    assertThat(pendingSpans.getOrCreate(null, context, false).createdNanos).isZero();
+  }
+
+  PendingSpans boundedPendingSpans(AtomicLong nanoTime, List<Cause> causes, long maxAgeNanos,
+    int maxSpans) {
+    Platform platform = mock(Platform.class);
+    when(platform.nanoTime()).thenAnswer(i -> nanoTime.get());
+    MutableSpan defaultSpan = new MutableSpan();
+    defaultSpan.localIp("1.2.3.4");
+    return new PendingSpans(platform, defaultSpan, () -> 1L, new SpanHandler() {
+      @Override public boolean end(TraceContext ctx, MutableSpan span, Cause cause) {
+        causes.add(cause);
+        return spans.end(ctx, span, cause);
+      }
+    }, new AtomicBoolean(), maxAgeNanos, maxSpans);
+  }
+
   @Test void getOrCreate_cachesReference() {
     PendingSpan span = pendingSpans.getOrCreate(null, context, false);
     assertThat(pendingSpans.getOrCreate(null, context, false)).isSameAs(span);
@@ -87,4 +87,19 @@ class ParameterizedSamplerTest {
   @Test void noRulesOk() {
     ParameterizedSampler.<Boolean>newBuilder().build();
   }
+
+  @Test void indexedRules_firstMatchWins() {
+    ParameterizedSampler.Builder<String> builder = ParameterizedSampler.newBuilder();
+    for (int i = 0; i < ParameterizedSampler.MIN_INDEXED_RULES; i++) {
+      builder.putRule(RuleIndexTest.pathStartsWith("/api/" + i), Sampler.NEVER_SAMPLE);
+    }
+    ParameterizedSampler<String> sampler = builder
+      .putRule(RuleIndexTest.pathStartsWith("/api"), Sampler.ALWAYS_SAMPLE)
+      .build();
+
+    assertThat(sampler.index).isNotNull();
+    assertThat(sampler.trySample("/api/1 GET")).isFalse();
+    assertThat(sampler.trySample("/api/foo GET")).isTrue();
+    assertThat(sampler.trySample("/foo GET")).isNull();
+  }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.sampler;
+
+import brave.internal.IndexableMatcher;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static brave.sampler.Matchers.and;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleIndexTest {
+  /** Input is a path and method, separated by a space, such as "/foo GET". */
+  static final class Attribute implements IndexableMatcher<String> {
+    final String name, value;
+    final boolean prefix;
+
+    Attribute(String name, String value, boolean prefix) {
+      this.name = name;
+      this.value = value;
+      this.prefix = prefix;
+    }
+
+    @Override public boolean matches(String parameters) {
+      String attributeValue = attributeValue(parameters);
+      return prefix ? attributeValue.startsWith(value) : attributeValue.equals(value);
+    }
+
+    @Override public String attribute() {
+      return name;
+    }
+
+    @Override public String attributeValue(String parameters) {
+      String[] pathAndMethod = parameters.split(" ");
+      return name.equals("path") ? pathAndMethod[0] : pathAndMethod[1];
+    }
+
+    @Override public String value() {
+      return value;
+    }
+
+    @Override public boolean isPrefix() {
+      return prefix;
+    }
+  }
+
+  static Matcher<String> pathStartsWith(String path) {
+    return new Attribute("path", path, true);
+  }
+
+  static Matcher<String> pathEquals(String path) {
+    return new Attribute("path", path, false);
+  }
+
+  static Matcher<String> methodEquals(String method) {
+    return new Attribute("method", method, false);
+  }
+
+  @Test void create_nullWhenNothingToIndex() {
+    assertThat(RuleIndex.create(new Matcher[] {Matchers.alwaysMatch(), Matchers.neverMatch()}))
+      .isNull();
+  }
+
+  @Test void create_indexesMostCommonAttribute() {
+    Matcher<String> post = methodEquals("POST");
+    RuleIndex<String> index = RuleIndex.create(new Matcher[] {
+      methodEquals("GET"),
+      pathStartsWith("/foo"),
+      and(post, pathStartsWith("/bar")),
+      pathEquals("/baz")
+    });
+
+    assertThat(index.reader.attribute()).isEqualTo("path");
+    assertThat(index.opaqueRules).containsExactly(0);
+    assertThat(index.residuals[1]).isNull();
+    assertThat(index.residuals[2]).isSameAs(post);
+    assertThat(index.residuals[3]).isNull();
+  }
+
+  @Test void firstMatch_declarationOrder() {
+    Matcher<String>[] matchers = new Matcher[] {
+      pathStartsWith("/foo/bar"),
+      pathStartsWith("/foo"),
+      pathEquals("/foo/baz"),
+      and(methodEquals("POST"), pathStartsWith("/")),
+      pathStartsWith("/")
+    };
+    RuleIndex<String> index = RuleIndex.create(matchers);
+
+    assertThat(index.firstMatch("/foo/bar/1 GET", matchers)).isZero();
+    assertThat(index.firstMatch("/foo/baz GET", matchers)).isEqualTo(1);
+    assertThat(index.firstMatch("/fo GET", matchers)).isEqualTo(4);
+    assertThat(index.firstMatch("/fo POST", matchers)).isEqualTo(3);
+  }
+
+  @Test void firstMatch_exact() {
+    Matcher<String>[] matchers = new Matcher[] {pathEquals("/foo"), pathStartsWith("/foo/")};
+    RuleIndex<String> index = RuleIndex.create(matchers);
+
+    assertThat(index.firstMatch("/foo GET", matchers)).isZero();
+    assertThat(index.firstMatch("/foo/ GET", matchers)).isEqualTo(1);
+    assertThat(index.firstMatch("/fo GET", matchers)).isEqualTo(-1);
+    assertThat(index.firstMatch("/foo2 GET", matchers)).isEqualTo(-1);
+  }
+
+  @Test void firstMatch_opaqueRulesInOrder() {
+    Matcher<String>[] matchers = new Matcher[] {
+      pathStartsWith("/foo"),
+      (Matcher<String>) p -> p.endsWith("DELETE"),
+      pathStartsWith("/")
+    };
+    RuleIndex<String> index = RuleIndex.create(matchers);
+
+    assertThat(index.firstMatch("/foo DELETE", matchers)).isZero();
+    assertThat(index.firstMatch("/bar DELETE", matchers)).isEqualTo(1);
+    assertThat(index.firstMatch("/bar GET", matchers)).isEqualTo(2);
+  }
+
+  @Test void firstMatch_skipsRulesAfterBestMatch() {
+    AtomicInteger evaluations = new AtomicInteger();
+    Matcher<String>[] matchers = new Matcher[] {
+      pathStartsWith("/foo"),
+      (Matcher<String>) p -> evaluations.incrementAndGet() > 0
+    };
+    RuleIndex<String> index = RuleIndex.create(matchers);
+
+    assertThat(index.firstMatch("/foo GET", matchers)).isZero();
+    assertThat(evaluations).hasValue(0);
+  }
+}
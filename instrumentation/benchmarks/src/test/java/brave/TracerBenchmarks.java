@@ -62,6 +62,8 @@ public class TracerBenchmarks {
 
   Tracer tracer;
   Tracer tracerBaggage;
+  Tracing tracingCoarseClock;
+  Tracer tracerCoarseClock;
 
   @Setup(Level.Trial) public void init() {
     tracer = Tracing.newBuilder()
@@ -74,9 +76,16 @@ public class TracerBenchmarks {
         // anonymous subtype prevents all recording from being no-op
       })
       .build().tracer();
+    tracingCoarseClock = Tracing.newBuilder().coarseClock(1, TimeUnit.MILLISECONDS)
+      .addSpanHandler(new SpanHandler() {
+        // anonymous subtype prevents all recording from being no-op
+      })
+      .build();
+    tracerCoarseClock = tracingCoarseClock.tracer();
   }
 
   @TearDown(Level.Trial) public void close() {
+    tracingCoarseClock.close();
     Tracing.current().close();
   }
 
@@ -84,6 +93,10 @@ public class TracerBenchmarks {
     startScopedSpanWithParent(tracer, context);
   }
 
+  @Benchmark public void startScopedSpanWithParent_coarseClock() {
+    startScopedSpanWithParent(tracerCoarseClock, context);
+  }
+
   @Benchmark public void startScopedSpanWithParent_baggage() {
     startScopedSpanWithParent(tracerBaggage, contextBaggage);
   }
@@ -118,6 +131,10 @@ public class TracerBenchmarks {
     newChildWithSpanInScope(tracer, context);
   }
 
+  @Benchmark public void newChildWithSpanInScope_coarseClock() {
+    newChildWithSpanInScope(tracerCoarseClock, context);
+  }
+
   @Benchmark public void newChildWithSpanInScope_baggage() {
     newChildWithSpanInScope(tracerBaggage, contextBaggage);
   }
@@ -186,6 +203,10 @@ public class TracerBenchmarks {
     nextWithSpanInScope(tracer, extracted);
   }
 
+  @Benchmark public void nextWithSpanInScope_coarseClock() {
+    nextWithSpanInScope(tracerCoarseClock, extracted);
+  }
+
   @Benchmark public void nextWithSpanInScope_baggage() {
     nextWithSpanInScope(tracerBaggage, extractedBaggage);
   }
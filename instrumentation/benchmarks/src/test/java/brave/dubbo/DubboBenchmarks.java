@@ -0,0 +1,134 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.dubbo;
+
+import brave.Tracing;
+import brave.handler.SpanHandler;
+import brave.rpc.RpcTracing;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.dubbo.common.extension.ExtensionLoader;
+import org.apache.dubbo.config.ApplicationConfig;
+import org.apache.dubbo.config.ProtocolConfig;
+import org.apache.dubbo.config.ReferenceConfig;
+import org.apache.dubbo.config.RegistryConfig;
+import org.apache.dubbo.config.ServiceConfig;
+import org.apache.dubbo.config.bootstrap.DubboBootstrap;
+import org.apache.dubbo.rpc.Filter;
+import org.apache.dubbo.rpc.RpcContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Uses the "injvm" protocol, so that the overhead of tracing a consumer and provider isn't hidden
+ * by network I/O.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DubboBenchmarks {
+  public interface GreeterService {
+    String sayHello(String name);
+  }
+
+  ReferenceConfig<GreeterService> clientConfig, tracedClientConfig;
+  GreeterService client, tracedClient;
+
+  @Setup(Level.Trial) public void init() {
+    TracingFilter filter = (TracingFilter) ExtensionLoader.getExtensionLoader(Filter.class)
+      .getExtension("tracing");
+    filter.setRpcTracing(RpcTracing.create(Tracing.newBuilder()
+      .addSpanHandler(new SpanHandler() {
+        // anonymous subtype prevents all recording from being no-op
+      })
+      .build()));
+
+    clientConfig = reference("untraced", null);
+    tracedClientConfig = reference("traced", "tracing");
+    DubboBootstrap.getInstance()
+      .application(new ApplicationConfig("brave"))
+      .registry(new RegistryConfig(RegistryConfig.NO_AVAILABLE))
+      .protocol(new ProtocolConfig("injvm"))
+      .service(service("untraced", null))
+      .service(service("traced", "tracing"))
+      .reference(clientConfig)
+      .reference(tracedClientConfig)
+      .start();
+    client = clientConfig.get();
+    tracedClient = tracedClientConfig.get();
+  }
+
+  static ServiceConfig<GreeterService> service(String group, String filter) {
+    ServiceConfig<GreeterService> service = new ServiceConfig<>();
+    service.setInterface(GreeterService.class);
+    service.setRef(name -> name);
+    service.setGroup(group);
+    service.setFilter(filter);
+    return service;
+  }
+
+  static ReferenceConfig<GreeterService> reference(String group, String filter) {
+    ReferenceConfig<GreeterService> reference = new ReferenceConfig<>();
+    reference.setInterface(GreeterService.class);
+    reference.setScope("local");
+    reference.setGroup(group);
+    reference.setFilter(filter);
+    return reference;
+  }
+
+  @TearDown(Level.Trial) public void close() {
+    DubboBootstrap.getInstance().stop();
+    Tracing.current().close();
+  }
+
+  @Benchmark public String invoke_baseCase() {
+    return client.sayHello("jorge");
+  }
+
+  @Benchmark public String invoke_traced() {
+    return tracedClient.sayHello("jorge");
+  }
+
+  @Benchmark public String invokeAsync_baseCase() throws Exception {
+    return invokeAsync(client);
+  }
+
+  @Benchmark public String invokeAsync_traced() throws Exception {
+    return invokeAsync(tracedClient);
+  }
+
+  static String invokeAsync(GreeterService client) throws Exception {
+    CompletableFuture<String> future =
+      RpcContext.getContext().asyncCall(() -> client.sayHello("jorge"));
+    return future.get();
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .addProfiler("gc")
+      .include(".*" + DubboBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+}
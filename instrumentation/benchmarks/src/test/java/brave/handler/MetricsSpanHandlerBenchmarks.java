@@ -0,0 +1,51 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.handler.SpanHandler.Cause;
+import brave.propagation.TraceContext;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Records the same series from several threads, which is the contended case. */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+public class MetricsSpanHandlerBenchmarks {
+  final MetricsSpanHandler handler = MetricsSpanHandler.newBuilder().build();
+  final TraceContext context = TraceContext.newBuilder().traceId(1L).spanId(2L).build();
+  final MutableSpan span = MutableSpanBenchmarks.newServerMutableSpan();
+
+  @Benchmark public boolean end() {
+    return handler.end(context, span, Cause.FINISHED);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .addProfiler("gc")
+      .include(".*" + MetricsSpanHandlerBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+}
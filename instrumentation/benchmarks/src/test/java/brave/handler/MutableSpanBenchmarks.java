@@ -5,6 +5,7 @@
 package brave.handler;
 
 import brave.Span;
+import brave.propagation.TraceContext;
 import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -12,7 +13,9 @@ import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
@@ -75,6 +78,63 @@ public class MutableSpanBenchmarks {
     return span;
   }
 
+  @Benchmark public MutableSpan makeAnnotatedSpan() {
+    return newAnnotatedMutableSpan();
+  }
+
+  /** Like a streaming RPC, which annotates each message sent and received. */
+  public static MutableSpan newAnnotatedMutableSpan() {
+    MutableSpan span = new MutableSpan();
+    span.name("chat");
+    span.kind(Span.Kind.CLIENT);
+    span.remoteIpAndPort("219.235.216.11", 8080);
+    span.startTimestamp(1533706251750057L);
+    for (int i = 0; i < 24; i++) {
+      span.annotate(1533706251750057L + i * 1000L, i % 2 == 0 ? "message.sent" : "message.received");
+    }
+    span.finishTimestamp(1533706251935296L);
+    return span;
+  }
+
+  static final TraceContext CONTEXT = TraceContext.newBuilder().traceId(1L).spanId(2L).build();
+  static final MutableSpan DEFAULT_SPAN = new MutableSpan();
+
+  static {
+    DEFAULT_SPAN.localServiceName("frontend");
+    DEFAULT_SPAN.tag("region", "us-east-1");
+    DEFAULT_SPAN.tag("cluster", "prod-7");
+    DEFAULT_SPAN.tag("version", "1.2.3");
+    DEFAULT_SPAN.tag("instanceId", "i-0123456789");
+  }
+
+  /** Like {@code PendingSpans}, which creates each span from the tracer's defaults. */
+  @Benchmark public MutableSpan newSpanFromDefaults() {
+    return new MutableSpan(CONTEXT, DEFAULT_SPAN);
+  }
+
+  @State(Scope.Thread)
+  public static class TagCount {
+    @Param({"5", "50", "200"})
+    int count;
+    String[] keys;
+
+    @Setup public void init() {
+      keys = new String[count];
+      for (int i = 0; i < count; i++) keys[i] = "tag" + i;
+    }
+  }
+
+  /** Like enrichment by parsers and handlers, which add tags and overwrite some. */
+  @Benchmark public MutableSpan tagSpan(TagCount tagCount) {
+    String[] keys = tagCount.keys;
+    MutableSpan span = new MutableSpan();
+    for (String key : keys) span.tag(key, "value");
+    for (int i = 0; i < keys.length; i += 2) {
+      if (span.tag(keys[i]) != null) span.tag(keys[i], "updated");
+    }
+    return span;
+  }
+
   // Convenience main entry-point
   public static void main(String[] args) throws RunnerException {
     Options opt = new OptionsBuilder()
@@ -0,0 +1,75 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.handler;
+
+import brave.handler.SpanHandler.Cause;
+import brave.propagation.TraceContext;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Measures spooling to the local filesystem, which is where the temporary directory is. */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class SpoolingSpanHandlerBenchmarks {
+  final TraceContext context = TraceContext.newBuilder().traceId(1L).spanId(2L).build();
+  final MutableSpan span = MutableSpanBenchmarks.newServerMutableSpan();
+  File directory;
+  SpoolingSpanHandler spool;
+
+  @Setup(Level.Trial) public void init() throws IOException {
+    directory = Files.createTempDirectory("spool").toFile();
+    spool = SpoolingSpanHandler.newBuilder(directory).maxBytes(2L * 1024 * 1024 * 1024).build();
+  }
+
+  /** Reads everything appended, so that the next iteration doesn't exceed the disk budget. */
+  @TearDown(Level.Iteration) public void drain() throws IOException {
+    for (SpoolingSpanHandler.Batch batch; !(batch = spool.nextBatch(10000)).isEmpty(); ) {
+      batch.commit();
+    }
+  }
+
+  @TearDown(Level.Trial) public void close() throws IOException {
+    spool.close();
+    File[] files = directory.listFiles();
+    if (files != null) for (File file : files) file.delete();
+    directory.delete();
+  }
+
+  @Benchmark public boolean end() {
+    return spool.end(context, span, Cause.FINISHED);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .addProfiler("gc")
+      .include(".*" + SpoolingSpanHandlerBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+}
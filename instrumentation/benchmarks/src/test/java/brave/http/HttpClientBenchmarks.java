@@ -44,9 +44,9 @@ public abstract class HttpClientBenchmarks<C> {
 
   Undertow server;
   String baseUrl;
-  C client;
-  C tracedClient;
-  C unsampledClient;
+  protected C client;
+  protected C tracedClient;
+  protected C unsampledClient;
   TraceContext context =
     TraceContext.newBuilder().traceIdHigh(333L).traceId(444L).spanId(3).sampled(true).build();
 
@@ -0,0 +1,110 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.http;
+
+import brave.sampler.Matcher;
+import brave.sampler.Sampler;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static brave.http.HttpRequestMatchers.methodEquals;
+import static brave.http.HttpRequestMatchers.pathStartsWith;
+import static brave.sampler.Matchers.and;
+
+/**
+ * Compares rules that can be indexed by path with the same rules wrapped in custom matchers, which
+ * are evaluated in order. The request matches the last rule, which is the worst case for the
+ * latter.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class HttpRuleSamplerBenchmarks {
+  @Param({"10", "100", "1000"})
+  int ruleCount;
+
+  HttpRuleSampler indexed, linear;
+  HttpServerRequest request;
+
+  @Setup(Level.Trial) public void init() {
+    HttpRuleSampler.Builder indexedBuilder = HttpRuleSampler.newBuilder();
+    HttpRuleSampler.Builder linearBuilder = HttpRuleSampler.newBuilder();
+    for (int i = 0; i < ruleCount; i++) {
+      Matcher<HttpRequest> matcher = i % 2 == 0
+        ? pathStartsWith("/api/v1/resource" + i + "/")
+        : and(methodEquals("GET"), pathStartsWith("/api/v1/resource" + i + "/"));
+      indexedBuilder.putRule(matcher, Sampler.ALWAYS_SAMPLE);
+      linearBuilder.putRule(matcher::matches, Sampler.ALWAYS_SAMPLE);
+    }
+    indexed = indexedBuilder.build();
+    linear = linearBuilder.build();
+    request = new FakeRequest("GET", "/api/v1/resource" + (ruleCount - 1) + "/items");
+  }
+
+  @Benchmark public Boolean trySample_indexed() {
+    return indexed.trySample(request);
+  }
+
+  @Benchmark public Boolean trySample_linear() {
+    return linear.trySample(request);
+  }
+
+  static final class FakeRequest extends HttpServerRequest {
+    final String method, path;
+
+    FakeRequest(String method, String path) {
+      this.method = method;
+      this.path = path;
+    }
+
+    @Override public Object unwrap() {
+      return this;
+    }
+
+    @Override public String method() {
+      return method;
+    }
+
+    @Override public String path() {
+      return path;
+    }
+
+    @Override public String url() {
+      return null;
+    }
+
+    @Override public String header(String name) {
+      return null;
+    }
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .addProfiler("gc")
+      .include(".*" + HttpRuleSamplerBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -85,6 +85,16 @@ public abstract class HttpServerBenchmarks {
     get("/unsampled");
   }
 
+  /** Compare to {@link #server_get()} for the overhead of a request the caller didn't sample. */
+  @Benchmark public void unsampledServer_get_resumeTrace() throws Exception {
+    client.newCall(new Request.Builder().url(baseUrl() + "/unsampled")
+      .header("X-B3-TraceId", "216a2aea45d08fc9")
+      .header("X-B3-SpanId", "5b4185666d50f68b")
+      .header("X-B3-Sampled", "0")
+      .build())
+      .execute().body().close();
+  }
+
   @Benchmark public void onlySampledLocalServer_get() throws Exception {
     get("/onlysampledlocal");
   }
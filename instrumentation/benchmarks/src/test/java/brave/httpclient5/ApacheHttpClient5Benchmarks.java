@@ -0,0 +1,56 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.httpclient5;
+
+import brave.http.HttpClientBenchmarks;
+import brave.http.HttpTracing;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.core5.io.CloseMode;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Measures throughput of the async client, where callbacks run on I/O reactor threads. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ApacheHttpClient5Benchmarks extends HttpClientBenchmarks<CloseableHttpAsyncClient> {
+
+  @Override protected CloseableHttpAsyncClient newClient(HttpTracing httpTracing) {
+    CloseableHttpAsyncClient result =
+      HttpClient5Tracing.newBuilder(httpTracing).build(HttpAsyncClientBuilder.create());
+    result.start();
+    return result;
+  }
+
+  @Override protected CloseableHttpAsyncClient newClient() {
+    CloseableHttpAsyncClient result = HttpAsyncClientBuilder.create().build();
+    result.start();
+    return result;
+  }
+
+  @Override protected void get(CloseableHttpAsyncClient client) throws Exception {
+    client.execute(SimpleRequestBuilder.get(baseUrl()).build(), null).get();
+  }
+
+  @Override protected void close(CloseableHttpAsyncClient client) {
+    client.close(CloseMode.GRACEFUL);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(".*" + ApacheHttpClient5Benchmarks.class.getSimpleName() + ".*")
+      .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jdk.httpclient;
+
+import brave.http.HttpClientBenchmarks;
+import brave.http.HttpTracing;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class JavaHttpClientBenchmarks extends HttpClientBenchmarks<HttpClient> {
+
+  @Override protected HttpClient newClient(HttpTracing httpTracing) {
+    return TracingHttpClient.create(httpTracing, newClient());
+  }
+
+  @Override protected HttpClient newClient() {
+    return HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  }
+
+  @Override protected void get(HttpClient client) throws Exception {
+    client.send(request(), BodyHandlers.discarding());
+  }
+
+  void getAsync(HttpClient client) {
+    client.sendAsync(request(), BodyHandlers.discarding()).join();
+  }
+
+  HttpRequest request() {
+    return HttpRequest.newBuilder(URI.create(baseUrl())).build();
+  }
+
+  @Override protected void close(HttpClient client) {
+    // HttpClient has no close method until JDK 21
+  }
+
+  @Benchmark public void client_getAsync() {
+    getAsync(client);
+  }
+
+  @Benchmark public void unsampledClient_getAsync() {
+    getAsync(unsampledClient);
+  }
+
+  @Benchmark public void tracedClient_getAsync() {
+    getAsync(tracedClient);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(".*" + JavaHttpClientBenchmarks.class.getSimpleName() + ".*")
+      .build();
+
+    new Runner(opt).run();
+  }
+}
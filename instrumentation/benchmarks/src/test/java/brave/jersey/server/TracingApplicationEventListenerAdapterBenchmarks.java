@@ -8,11 +8,14 @@ import brave.jersey.server.TracingApplicationEventListener.ContainerRequestWrapp
 import java.net.URI;
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
+import javax.ws.rs.container.ContainerRequestContext;
 import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.process.Inflector;
 import org.glassfish.jersey.server.ContainerRequest;
 import org.glassfish.jersey.server.ContainerResponse;
 import org.glassfish.jersey.server.ExtendedUriInfo;
 import org.glassfish.jersey.server.internal.monitoring.RequestEventImpl;
+import org.glassfish.jersey.server.model.Resource;
 import org.glassfish.jersey.server.monitoring.RequestEvent;
 import org.glassfish.jersey.uri.PathTemplate;
 import org.jboss.resteasy.core.ServerResponse;
@@ -71,12 +74,37 @@ public class TracingApplicationEventListenerAdapterBenchmarks {
     }
   };
 
+  Inflector<ContainerRequestContext, String> inflector =
+    new Inflector<ContainerRequestContext, String>() {
+      @Override public String apply(ContainerRequestContext request) {
+        return "";
+      }
+    };
+  FakeExtendedUriInfo matchedNestedUriInfo = new FakeExtendedUriInfo(URI.create("/"),
+    nestedUriInfo.matchedTemplates,
+    Resource.builder("/nested").addMethod("GET").handledBy(inflector).build()
+  );
+  ContainerRequest matchedNestedRequest = new ContainerRequest(
+    URI.create("/"), null, null, null, new MapPropertiesDelegate()
+  ) {
+    @Override public ExtendedUriInfo getUriInfo() {
+      return matchedNestedUriInfo;
+    }
+  };
+
+  RouteCache routeCache = new RouteCache();
+
   @Benchmark public String parseRoute() {
-    return new ContainerRequestWrapper(nestedRequest).route();
+    return new ContainerRequestWrapper(nestedRequest, routeCache).route();
   }
 
   @Benchmark public String parseRoute_nested() {
-    return new ContainerRequestWrapper(nestedRequest).route();
+    return new ContainerRequestWrapper(nestedRequest, routeCache).route();
+  }
+
+  /** Compare to {@link #parseRoute_nested()} to see the benefit of caching by resource method */
+  @Benchmark public String parseRoute_nested_cached() {
+    return new ContainerRequestWrapper(matchedNestedRequest, routeCache).route();
   }
 
   // Convenience main entry-point
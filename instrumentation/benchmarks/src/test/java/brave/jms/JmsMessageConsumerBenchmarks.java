@@ -0,0 +1,126 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jms;
+
+import brave.Tracing;
+import brave.propagation.B3SingleFormat;
+import brave.propagation.TraceContext;
+import java.util.concurrent.TimeUnit;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Receives a read-only message with a trace context and a few other properties, like a message
+ * received from a broker.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class JmsMessageConsumerBenchmarks {
+  static final String B3 = B3SingleFormat.writeB3SingleFormat(TraceContext.newBuilder()
+    .traceId(1L).spanId(2L).sampled(true).build());
+
+  ActiveMQTextMessage message = new ActiveMQTextMessage();
+  FakeMessageConsumer consumer = new FakeMessageConsumer();
+  MessageConsumer tracingConsumer, tracingConsumer_noClear;
+
+  @Setup(Level.Trial) public void init() {
+    Tracing tracing = Tracing.newBuilder().build();
+    consumer.message = message;
+    tracingConsumer = TracingMessageConsumer.create(consumer, JmsTracing.create(tracing));
+    tracingConsumer_noClear = TracingMessageConsumer.create(consumer,
+      JmsTracing.newBuilder(tracing).clearPropagationProperties(false).build());
+  }
+
+  /** Each invocation receives the message as if it were new from the broker. */
+  @Setup(Level.Invocation) public void resetMessage() throws JMSException {
+    message.clearProperties();
+    message.setText("value");
+    message.setStringProperty("b3", B3);
+    message.setStringProperty("country-code", "FO");
+    message.setIntProperty("priority", 4);
+    message.setLongProperty("created", 1L);
+    message.setReadOnlyProperties(true);
+  }
+
+  @TearDown(Level.Trial) public void close() {
+    Tracing.current().close();
+  }
+
+  /** Should be near zero. This mainly ensures exceptions aren't raised */
+  @Benchmark public Message receive_baseCase() throws Exception {
+    return consumer.receive();
+  }
+
+  @Benchmark public Message receive_traced() throws Exception {
+    return tracingConsumer.receive();
+  }
+
+  @Benchmark public Message receive_traced_clearPropagationPropertiesFalse() throws Exception {
+    return tracingConsumer_noClear.receive();
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .addProfiler("gc")
+      .include(".*" + JmsMessageConsumerBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+
+  static final class FakeMessageConsumer implements MessageConsumer {
+    Message message;
+
+    @Override public String getMessageSelector() {
+      return null;
+    }
+
+    @Override public MessageListener getMessageListener() {
+      return null;
+    }
+
+    @Override public void setMessageListener(MessageListener listener) {
+    }
+
+    @Override public Message receive() {
+      return message;
+    }
+
+    @Override public Message receive(long timeout) {
+      return message;
+    }
+
+    @Override public Message receiveNoWait() {
+      return message;
+    }
+
+    @Override public void close() {
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.mongodb;
+
+import brave.Tracing;
+import brave.handler.SpanHandler;
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Measures the cost of tracing a command, from when it starts to when it succeeds. */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class TraceMongoCommandListenerBenchmarks {
+  static final ConnectionDescription CONNECTION = new ConnectionDescription(
+    new ServerId(new ClusterId("cluster"), new ServerAddress("127.0.0.1", 27017)));
+  static final BsonDocument COMMAND = BsonDocument.parse("{\"find\": \"myCollection\"}");
+
+  CommandStartedEvent started =
+    new CommandStartedEvent(null, 1L, 1, CONNECTION, "myDatabase", "find", COMMAND);
+  CommandSucceededEvent succeeded = new CommandSucceededEvent(null, 1L, 1, CONNECTION,
+    "myDatabase", "find", new BsonDocument(), 1000L);
+
+  CommandListener threadLocalListener, requestIdListener;
+
+  @Setup(Level.Trial) public void init() {
+    Tracing tracing = Tracing.newBuilder()
+      .addSpanHandler(new SpanHandler() {
+        // anonymous subtype prevents all recording from being no-op
+      })
+      .build();
+    threadLocalListener = MongoDBTracing.create(tracing).commandListener();
+    requestIdListener = MongoDBTracing.newBuilder(tracing)
+      .trackByRequestId(true)
+      .build().commandListener();
+  }
+
+  @TearDown(Level.Trial) public void close() {
+    Tracing.current().close();
+  }
+
+  @Benchmark public void command_threadLocalSpan() {
+    threadLocalListener.commandStarted(started);
+    threadLocalListener.commandSucceeded(succeeded);
+  }
+
+  @Benchmark public void command_trackByRequestId() {
+    requestIdListener.commandStarted(started);
+    requestIdListener.commandSucceeded(succeeded);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .addProfiler("gc")
+      .include(".*" + TraceMongoCommandListenerBenchmarks.class.getSimpleName())
+      .build();
+
+    new Runner(opt).run();
+  }
+}
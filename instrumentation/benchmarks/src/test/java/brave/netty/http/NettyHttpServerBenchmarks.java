@@ -25,8 +25,16 @@ import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.util.AttributeKey;
 import io.undertow.servlet.api.DeploymentInfo;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
@@ -39,8 +47,12 @@ import static brave.EndToEndBenchmarks.USER_ID;
 
 public class NettyHttpServerBenchmarks extends HttpServerBenchmarks {
 
+  /** Count of requests written on a connection before reading any response. */
+  static final int PIPELINE_DEPTH = 8;
+
   EventLoopGroup bossGroup;
   EventLoopGroup workerGroup;
+  int port;
 
   @Override protected void init(DeploymentInfo servletBuilder) {
   }
@@ -131,7 +143,73 @@ public class NettyHttpServerBenchmarks extends HttpServerBenchmarks {
       });
 
     Channel ch = b.bind(0).sync().channel();
-    return ((InetSocketAddress) ch.localAddress()).getPort();
+    return port = ((InetSocketAddress) ch.localAddress()).getPort();
+  }
+
+  @Benchmark public void server_get_pipelined(PipelinedConnection connection) throws Exception {
+    connection.pipeline(port, "/nottraced");
+  }
+
+  @Benchmark public void unsampledServer_get_pipelined(PipelinedConnection connection)
+    throws Exception {
+    connection.pipeline(port, "/unsampled");
+  }
+
+  @Benchmark public void tracedServer_get_pipelined(PipelinedConnection connection)
+    throws Exception {
+    connection.pipeline(port, "/traced");
+  }
+
+  /**
+   * A keep-alive connection per benchmark thread, which writes {@link #PIPELINE_DEPTH} requests
+   * for the same path before reading their responses.
+   *
+   * <p>Only one path is used per connection, as {@link TracingDispatchHandler} dispatches writes by
+   * the last path read.
+   */
+  @State(Scope.Thread)
+  public static class PipelinedConnection {
+    final byte[] buffer = new byte[8192];
+    Socket socket;
+    byte[] requests;
+
+    void pipeline(int port, String path) throws IOException {
+      if (socket == null) connect(port, path);
+      OutputStream out = socket.getOutputStream();
+      out.write(requests);
+      out.flush();
+
+      // Each response ends with the same body, so count bodies until all responses are read.
+      InputStream in = socket.getInputStream();
+      byte[] body = HelloWorldHandler.HELLO_WORLD;
+      int responses = 0, matched = 0;
+      while (responses < PIPELINE_DEPTH) {
+        int read = in.read(buffer);
+        if (read == -1) throw new IOException("connection closed after " + responses);
+        for (int i = 0; i < read; i++) {
+          if (buffer[i] != body[matched]) matched = 0;
+          if (buffer[i] == body[matched] && ++matched == body.length) {
+            responses++;
+            matched = 0;
+          }
+        }
+      }
+    }
+
+    void connect(int port, String path) throws IOException {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < PIPELINE_DEPTH; i++) {
+        builder.append("GET ").append(path).append(" HTTP/1.1\r\n")
+          .append("Host: 127.0.0.1:").append(port).append("\r\n\r\n");
+      }
+      requests = builder.toString().getBytes(StandardCharsets.UTF_8);
+      socket = new Socket("127.0.0.1", port);
+      socket.setTcpNoDelay(true);
+    }
+
+    @TearDown(Level.Trial) public void close() throws IOException {
+      if (socket != null) socket.close();
+    }
   }
 
   @TearDown(Level.Trial) public void closeNetty() {
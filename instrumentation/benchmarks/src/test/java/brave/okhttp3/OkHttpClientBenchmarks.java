@@ -10,12 +10,14 @@ import java.io.IOException;
 import okhttp3.Call;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
 public class OkHttpClientBenchmarks extends HttpClientBenchmarks<Call.Factory> {
+  Request request;
 
   @Override protected Call.Factory newClient(HttpTracing httpTracing) {
     return TracingCallFactory.create(httpTracing, new OkHttpClient());
@@ -29,6 +31,20 @@ public class OkHttpClientBenchmarks extends HttpClientBenchmarks<Call.Factory> {
     client.newCall(new Request.Builder().url(baseUrl()).build()).execute().body().close();
   }
 
+  /** Isolates per-call overhead, such as allocation, from the network. */
+  @Benchmark public Call client_newCall() {
+    return client.newCall(request());
+  }
+
+  @Benchmark public Call tracedClient_newCall() {
+    return tracedClient.newCall(request());
+  }
+
+  Request request() {
+    if (request == null) request = new Request.Builder().url(baseUrl()).build();
+    return request;
+  }
+
   @Override protected void close(Call.Factory client) throws IOException {
     OkHttpClient ok;
     if (client instanceof OkHttpClient) {
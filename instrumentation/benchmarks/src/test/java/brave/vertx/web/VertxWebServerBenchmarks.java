@@ -0,0 +1,95 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.vertx.web;
+
+import brave.Tracing;
+import brave.baggage.BaggagePropagation;
+import brave.baggage.BaggagePropagationConfig.SingleBaggageField;
+import brave.http.HttpServerBenchmarks;
+import brave.propagation.B3Propagation;
+import brave.sampler.Sampler;
+import io.undertow.servlet.api.DeploymentInfo;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static brave.baggage.BaggagePropagationBenchmarks.BAGGAGE_FIELD;
+
+public class VertxWebServerBenchmarks extends HttpServerBenchmarks {
+  Vertx vertx;
+  HttpServer server;
+
+  @Override protected void init(DeploymentInfo servletBuilder) {
+  }
+
+  @Override protected int initServer() throws Exception {
+    vertx = Vertx.vertx();
+    Router router = Router.router(vertx);
+
+    route(router, "/nottraced", null);
+    route(router, "/unsampled", VertxWebTracing.create(
+      Tracing.newBuilder().sampler(Sampler.NEVER_SAMPLE).build()
+    ).routingContextHandler());
+    route(router, "/traced", VertxWebTracing.create(
+      Tracing.newBuilder().build()
+    ).routingContextHandler());
+    route(router, "/tracedBaggage", VertxWebTracing.create(Tracing.newBuilder()
+      .propagationFactory(BaggagePropagation.newFactoryBuilder(B3Propagation.FACTORY)
+        .add(SingleBaggageField.remote(BAGGAGE_FIELD)).build())
+      .build()
+    ).routingContextHandler());
+    route(router, "/traced128", VertxWebTracing.create(
+      Tracing.newBuilder().traceId128Bit(true).build()
+    ).routingContextHandler());
+
+    server = vertx.createHttpServer(new HttpServerOptions().setPort(0).setHost("127.0.0.1"));
+    CompletableFuture<Integer> port = new CompletableFuture<>();
+    server.requestHandler(router).listen(async -> {
+      if (async.succeeded()) {
+        port.complete(async.result().actualPort());
+      } else {
+        port.completeExceptionally(async.cause());
+      }
+    });
+    return port.get(10, TimeUnit.SECONDS);
+  }
+
+  static void route(Router router, String path, Handler<RoutingContext> tracingHandler) {
+    if (tracingHandler != null) {
+      router.route(path).order(-1).handler(tracingHandler).failureHandler(tracingHandler);
+    }
+    router.route(path).handler(ctx -> {
+      if ("/tracedBaggage".equals(path)) BAGGAGE_FIELD.updateValue("FO");
+      ctx.response().end("hello world");
+    });
+  }
+
+  @TearDown(Level.Trial) public void closeVertx() throws Exception {
+    if (vertx == null) return;
+    CompletableFuture<Void> closed = new CompletableFuture<>();
+    vertx.close(ignored -> closed.complete(null));
+    closed.get(10, TimeUnit.SECONDS);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(".*" + VertxWebServerBenchmarks.class.getSimpleName() + ".*")
+      .build();
+
+    new Runner(opt).run();
+  }
+}
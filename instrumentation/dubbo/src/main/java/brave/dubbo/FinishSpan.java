@@ -6,13 +6,15 @@ package brave.dubbo;
 
 import brave.Span;
 import brave.internal.Nullable;
-import brave.rpc.RpcClientHandler;
 import brave.rpc.RpcClientRequest;
-import brave.rpc.RpcServerHandler;
-import java.util.function.BiConsumer;
 import org.apache.dubbo.rpc.Result;
 
-abstract class FinishSpan implements BiConsumer<Object, Throwable> {
+/**
+ * Holds the span of an invocation until {@link TracingFilter} is notified of its result. This is
+ * stored as an invocation attribute, so that the span completes when Dubbo notifies the filter,
+ * without wrapping the future of each asynchronous invocation.
+ */
+class FinishSpan {
   static void finish(TracingFilter filter,
     DubboRequest request, @Nullable Result result, @Nullable Throwable error, Span span) {
     if (request instanceof RpcClientRequest) {
@@ -24,53 +26,24 @@ abstract class FinishSpan implements BiConsumer<Object, Throwable> {
     }
   }
 
-  static FinishSpan create(TracingFilter filter, DubboRequest request, Result result, Span span) {
-    if (request instanceof DubboClientRequest) {
-      return new FinishClientSpan(
-        span, result, filter.clientHandler, (DubboClientRequest) request);
-    }
-    return new FinishServerSpan(span, result, filter.serverHandler, (DubboServerRequest) request);
-  }
-
+  final TracingFilter filter;
+  final DubboRequest request;
   final Span span;
-  final Result result;
 
-  FinishSpan(Span span, Result result) {
+  FinishSpan(TracingFilter filter, DubboRequest request, Span span) {
     if (span == null) throw new NullPointerException("span == null");
-    if (result == null) throw new NullPointerException("result == null");
+    this.filter = filter;
+    this.request = request;
     this.span = span;
-    this.result = result;
   }
 
-  static final class FinishClientSpan extends FinishSpan {
-    final RpcClientHandler clientHandler;
-    final DubboClientRequest request;
-
-    FinishClientSpan(
-      Span span, Result result, RpcClientHandler clientHandler, DubboClientRequest request) {
-      super(span, result);
-      this.clientHandler = clientHandler;
-      this.request = request;
-    }
-
-    @Override public void accept(@Nullable Object unused, @Nullable Throwable error) {
-      clientHandler.handleReceive(new DubboClientResponse(request, result, error), span);
-    }
+  /** Called when the invocation completed, possibly with an application exception. */
+  void onResponse(Result result) {
+    finish(filter, request, result, result.getException(), span);
   }
 
-  static final class FinishServerSpan extends FinishSpan {
-    final RpcServerHandler serverHandler;
-    final DubboServerRequest request;
-
-    FinishServerSpan(
-      Span span, Result result, RpcServerHandler serverHandler, DubboServerRequest request) {
-      super(span, result);
-      this.serverHandler = serverHandler;
-      this.request = request;
-    }
-
-    @Override public void accept(@Nullable Object unused, @Nullable Throwable error) {
-      serverHandler.handleSend(new DubboServerResponse(request, result, error), span);
-    }
+  /** Called when the invocation failed before a result was available. */
+  void onError(Throwable error) {
+    finish(filter, request, null, error, span);
   }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.dubbo;
+
+import brave.Span;
+import brave.internal.Nullable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import org.apache.dubbo.common.stream.StreamObserver;
+import org.apache.dubbo.rpc.Invocation;
+import org.apache.dubbo.rpc.Result;
+
+/**
+ * Finishes the span of a streaming invocation, such as a Triple server or bidirectional stream,
+ * when its response stream completes instead of when the invocation returns.
+ *
+ * <p>Streaming methods accept a {@link StreamObserver} argument, which is the response stream:
+ * clients receive messages on it and servers send them. Client and bidirectional streaming methods
+ * also return a {@link StreamObserver}, which is the request stream. Both are wrapped to count
+ * messages, added as the tags {@value #MESSAGES_SENT} and {@value #MESSAGES_RECEIVED}.
+ */
+final class FinishStreamSpan extends FinishSpan {
+  static final String MESSAGES_SENT = "dubbo.stream.messages_sent";
+  static final String MESSAGES_RECEIVED = "dubbo.stream.messages_received";
+
+  /**
+   * Returns a stream span if the invocation has a {@link StreamObserver} argument, after replacing
+   * it with one that finishes the span. Otherwise, returns null.
+   */
+  @Nullable static FinishStreamSpan wrapArguments(TracingFilter filter, DubboRequest request,
+    Span span, Invocation invocation) {
+    Object[] arguments = invocation.getArguments();
+    if (arguments == null) return null;
+    FinishStreamSpan result = null;
+    for (int i = 0; i < arguments.length; i++) {
+      if (!(arguments[i] instanceof StreamObserver)) continue;
+      if (result == null) result = new FinishStreamSpan(filter, request, span);
+      // Servers send responses, while clients receive them.
+      arguments[i] = new TracingStreamObserver<>(result, (StreamObserver<?>) arguments[i],
+        !result.isClient, true);
+    }
+    return result;
+  }
+
+  final boolean isClient;
+  final AtomicBoolean finished = new AtomicBoolean();
+  // Updaters instead of AtomicInteger fields avoid two allocations per stream.
+  static final AtomicIntegerFieldUpdater<FinishStreamSpan> MESSAGES_SENT_UPDATER =
+    AtomicIntegerFieldUpdater.newUpdater(FinishStreamSpan.class, "messagesSent");
+  static final AtomicIntegerFieldUpdater<FinishStreamSpan> MESSAGES_RECEIVED_UPDATER =
+    AtomicIntegerFieldUpdater.newUpdater(FinishStreamSpan.class, "messagesReceived");
+  /** Streams in the same direction, such as two response observers, can update concurrently. */
+  volatile int messagesSent, messagesReceived;
+
+  FinishStreamSpan(TracingFilter filter, DubboRequest request, Span span) {
+    super(filter, request, span);
+    this.isClient = request instanceof DubboClientRequest;
+  }
+
+  /** Unless the invocation failed, the span finishes when the response stream completes. */
+  @Override void onResponse(Result result) {
+    Throwable error = result.getException();
+    if (error != null) {
+      finish(result, error);
+      return;
+    }
+    Object value = result.getValue();
+    if (value instanceof StreamObserver) {
+      // Clients send requests, while servers receive them.
+      result.setValue(new TracingStreamObserver<>(this, (StreamObserver<?>) value, isClient,
+        false));
+    }
+  }
+
+  @Override void onError(Throwable error) {
+    finish(null, error);
+  }
+
+  void finish(@Nullable Result result, @Nullable Throwable error) {
+    if (!finished.compareAndSet(false, true)) return;
+    if (!span.isNoop()) {
+      span.tag(MESSAGES_SENT, String.valueOf(messagesSent));
+      span.tag(MESSAGES_RECEIVED, String.valueOf(messagesReceived));
+    }
+    finish(filter, request, result, error, span);
+  }
+
+  static final class TracingStreamObserver<T> implements StreamObserver<T> {
+    final FinishStreamSpan stream;
+    final StreamObserver<T> delegate;
+    final boolean sends, finishesSpan;
+
+    @SuppressWarnings("unchecked")
+    TracingStreamObserver(FinishStreamSpan stream, StreamObserver<?> delegate, boolean sends,
+      boolean finishesSpan) {
+      this.stream = stream;
+      this.delegate = (StreamObserver<T>) delegate;
+      this.sends = sends;
+      this.finishesSpan = finishesSpan;
+    }
+
+    @Override public void onNext(T data) {
+      if (sends) {
+        MESSAGES_SENT_UPDATER.incrementAndGet(stream);
+      } else {
+        MESSAGES_RECEIVED_UPDATER.incrementAndGet(stream);
+      }
+      delegate.onNext(data);
+    }
+
+    @Override public void onError(Throwable error) {
+      if (!finishesSpan) {
+        delegate.onError(error);
+      } else if (sends) { // include the time to send the error
+        try {
+          delegate.onError(error);
+        } finally {
+          stream.finish(null, error);
+        }
+      } else { // exclude the time spent in the callback
+        stream.finish(null, error);
+        delegate.onError(error);
+      }
+    }
+
+    @Override public void onCompleted() {
+      if (!finishesSpan) {
+        delegate.onCompleted();
+      } else if (sends) {
+        try {
+          delegate.onCompleted();
+        } finally {
+          stream.finish(null, null);
+        }
+      } else {
+        stream.finish(null, null);
+        delegate.onCompleted();
+      }
+    }
+
+    @Override public String toString() {
+      return delegate.toString();
+    }
+  }
+}
@@ -6,6 +6,7 @@ package brave.dubbo;
 
 import brave.Span;
 import brave.Span.Kind;
+import brave.internal.Nullable;
 import brave.propagation.CurrentTraceContext;
 import brave.propagation.CurrentTraceContext.Scope;
 import brave.propagation.TraceContext;
@@ -13,10 +14,11 @@ import brave.rpc.RpcClientHandler;
 import brave.rpc.RpcServerHandler;
 import brave.rpc.RpcTracing;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import org.apache.dubbo.common.URL;
 import org.apache.dubbo.common.constants.CommonConstants;
 import org.apache.dubbo.common.extension.Activate;
 import org.apache.dubbo.common.extension.ExtensionLoader;
+import org.apache.dubbo.rpc.BaseFilter;
 import org.apache.dubbo.rpc.Filter;
 import org.apache.dubbo.rpc.Invocation;
 import org.apache.dubbo.rpc.Invoker;
@@ -24,12 +26,13 @@ import org.apache.dubbo.rpc.Result;
 import org.apache.dubbo.rpc.RpcContext;
 import org.apache.dubbo.rpc.RpcException;
 
-import static brave.internal.Throwables.propagateIfFatal;
-
 @Activate(group = {CommonConstants.PROVIDER, CommonConstants.CONSUMER}, value = "tracing")
 // http://dubbo.apache.org/en-us/docs/dev/impls/filter.html
 // public constructor permitted to allow dubbo to instantiate this
-public final class TracingFilter implements Filter {
+public final class TracingFilter implements Filter, BaseFilter.Listener {
+  // Separate keys, as an in-JVM provider can share attributes with the consumer's invocation.
+  static final String CLIENT_SPAN_KEY = "brave.dubbo.clientSpan";
+  static final String SERVER_SPAN_KEY = "brave.dubbo.serverSpan";
 
   CurrentTraceContext currentTraceContext;
   RpcClientHandler clientHandler;
@@ -83,29 +86,44 @@ public final class TracingFilter implements Filter {
       span = serverHandler.handleReceive(serverRequest);
     }
 
-    boolean isSynchronous = true;
-    Scope scope = currentTraceContext.newScope(span.context());
-    Result result = null;
-    Throwable error = null;
-    try {
-      result = invoker.invoke(invocation);
-      error = result.getException();
-      CompletableFuture<Object> future = rpcContext.getCompletableFuture();
-      if (future != null) {
-        isSynchronous = false;
-        // NOTE: We don't currently instrument CompletableFuture, so callbacks will not see the
-        // invocation context unless they use an executor instrumented by CurrentTraceContext
-        // If we later instrument this, take care to use the correct context depending on RPC kind!
-        future.whenComplete(FinishSpan.create(this, request, result, span));
-      }
-      return result;
-    } catch (Throwable e) {
-      propagateIfFatal(e);
-      error = e;
-      throw e;
-    } finally {
-      if (isSynchronous) FinishSpan.finish(this, request, result, error, span);
-      scope.close();
+    FinishSpan finishSpan = FinishStreamSpan.wrapArguments(this, request, span, invocation);
+    if (finishSpan == null) finishSpan = new FinishSpan(this, request, span);
+    // Dubbo notifies this listener when the result completes, even when the call is asynchronous.
+    invocation.put(spanKey(invoker), finishSpan);
+
+    // NOTE: We don't currently instrument CompletableFuture, so callbacks will not see the
+    // invocation context unless they use an executor instrumented by CurrentTraceContext
+    try (Scope scope = currentTraceContext.newScope(span.context())) {
+      return invoker.invoke(invocation);
     }
   }
+
+  @Override public void onResponse(Result result, Invoker<?> invoker, Invocation invocation) {
+    FinishSpan finishSpan = takeFinishSpan(invoker, invocation);
+    if (finishSpan != null) finishSpan.onResponse(result);
+  }
+
+  @Override public void onError(Throwable error, Invoker<?> invoker, Invocation invocation) {
+    FinishSpan finishSpan = takeFinishSpan(invoker, invocation);
+    if (finishSpan != null) finishSpan.onError(error);
+  }
+
+  /**
+   * Returns the span state added in {@link #invoke}, or null if tracing wasn't initialized. This
+   * clears the attribute, as a retried invocation is passed to the filter again.
+   */
+  @Nullable static FinishSpan takeFinishSpan(Invoker<?> invoker, Invocation invocation) {
+    String key = spanKey(invoker);
+    Object result = invocation.get(key);
+    if (result == null) return null;
+    invocation.put(key, null);
+    return (FinishSpan) result;
+  }
+
+  /** The side is read from the invoker, as the RpcContext may belong to another call by now. */
+  static String spanKey(Invoker<?> invoker) {
+    URL url = invoker.getUrl();
+    return url != null && CommonConstants.PROVIDER_SIDE.equals(url.getSide())
+      ? SERVER_SPAN_KEY : CLIENT_SPAN_KEY;
+  }
 }
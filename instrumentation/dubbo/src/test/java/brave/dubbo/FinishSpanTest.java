@@ -15,6 +15,7 @@ import org.junit.jupiter.api.Test;
 import static brave.Span.Kind.CLIENT;
 import static brave.Span.Kind.SERVER;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class FinishSpanTest extends ITTracingFilter {
   DubboClientRequest clientRequest =
@@ -77,58 +78,47 @@ public class FinishSpanTest extends ITTracingFilter {
     testSpanHandler.takeRemoteSpanWithError(SERVER, error);
   }
 
-  @Test void create_null_result_value_and_error_DubboClientRequest() {
+  @Test void onResponse_DubboClientRequest() {
     Span span = tracing.tracer().nextSpan().kind(CLIENT).start();
 
-    FinishSpan.create(filter, clientRequest, mock(Result.class), span)
-        .accept(null, null);
+    new FinishSpan(filter, clientRequest, span).onResponse(mock(Result.class));
 
     testSpanHandler.takeRemoteSpan(CLIENT);
   }
 
-  @Test void create_null_result_value_and_error_DubboServerRequest() {
+  @Test void onResponse_DubboServerRequest() {
     Span span = tracing.tracer().nextSpan().kind(SERVER).start();
 
-    FinishSpan.create(filter, serverRequest, mock(Result.class), span)
-        .accept(null, null);
+    new FinishSpan(filter, serverRequest, span).onResponse(mock(Result.class));
 
     testSpanHandler.takeRemoteSpan(SERVER);
   }
 
-  @Test void create_result_value_but_null_error_DubboClientRequest() {
+  @Test void onResponse_applicationException_DubboClientRequest() {
     Span span = tracing.tracer().nextSpan().kind(CLIENT).start();
 
-    FinishSpan.create(filter, clientRequest, mock(Result.class), span)
-        .accept(new Object(), null);
-
-    testSpanHandler.takeRemoteSpan(CLIENT);
-  }
-
-  @Test void create_result_value_but_null_error_DubboServerRequest() {
-    Span span = tracing.tracer().nextSpan().kind(SERVER).start();
-
-    FinishSpan.create(filter, serverRequest, mock(Result.class), span)
-        .accept(new Object(), null);
+    Throwable error = new RuntimeException("melted");
+    Result result = mock(Result.class);
+    when(result.getException()).thenReturn(error);
+    new FinishSpan(filter, clientRequest, span).onResponse(result);
 
-    testSpanHandler.takeRemoteSpan(SERVER);
+    testSpanHandler.takeRemoteSpanWithError(CLIENT, error);
   }
 
-  @Test void create_error_but_null_result_value_DubboClientRequest() {
+  @Test void onError_DubboClientRequest() {
     Span span = tracing.tracer().nextSpan().kind(CLIENT).start();
 
     Throwable error = new RuntimeException("melted");
-    FinishSpan.create(filter, clientRequest, mock(Result.class), span)
-        .accept(null, error);
+    new FinishSpan(filter, clientRequest, span).onError(error);
 
     testSpanHandler.takeRemoteSpanWithError(CLIENT, error);
   }
 
-  @Test void create_error_but_null_result_value_DubboServerRequest() {
+  @Test void onError_DubboServerRequest() {
     Span span = tracing.tracer().nextSpan().kind(SERVER).start();
 
     Throwable error = new RuntimeException("melted");
-    FinishSpan.create(filter, serverRequest, mock(Result.class), span)
-        .accept(null, error);
+    new FinishSpan(filter, serverRequest, span).onError(error);
 
     testSpanHandler.takeRemoteSpanWithError(SERVER, error);
   }
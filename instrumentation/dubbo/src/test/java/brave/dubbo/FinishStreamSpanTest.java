@@ -0,0 +1,136 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.dubbo;
+
+import brave.Span;
+import brave.handler.MutableSpan;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.dubbo.common.stream.StreamObserver;
+import org.apache.dubbo.rpc.AppResponse;
+import org.apache.dubbo.rpc.Invocation;
+import org.apache.dubbo.rpc.Invoker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static brave.Span.Kind.CLIENT;
+import static brave.Span.Kind.SERVER;
+import static brave.dubbo.FinishStreamSpan.MESSAGES_RECEIVED;
+import static brave.dubbo.FinishStreamSpan.MESSAGES_SENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FinishStreamSpanTest extends ITTracingFilter {
+  Invocation invocation = mock(Invocation.class);
+  DubboClientRequest clientRequest =
+    new DubboClientRequest(mock(Invoker.class), invocation, Collections.emptyMap());
+  DubboServerRequest serverRequest = new DubboServerRequest(mock(Invoker.class), invocation);
+  TracingFilter filter;
+
+  @BeforeEach void setup() {
+    filter = init();
+  }
+
+  @Test void wrapArguments_notStreaming() {
+    Span span = tracing.tracer().nextSpan().kind(CLIENT).start();
+    when(invocation.getArguments()).thenReturn(new Object[] {"jorge"});
+
+    assertThat(FinishStreamSpan.wrapArguments(filter, clientRequest, span, invocation))
+      .isNull();
+
+    span.abandon();
+  }
+
+  @Test void serverStream_client_finishesOnCompleted() {
+    Span span = tracing.tracer().nextSpan().kind(CLIENT).start();
+    RecordingObserver responses = new RecordingObserver();
+    Object[] arguments = {"jorge", responses};
+    when(invocation.getArguments()).thenReturn(arguments);
+
+    FinishStreamSpan stream =
+      FinishStreamSpan.wrapArguments(filter, clientRequest, span, invocation);
+    stream.onResponse(new AppResponse());
+
+    StreamObserver<Object> wrapped = (StreamObserver<Object>) arguments[1];
+    wrapped.onNext("hello");
+    wrapped.onNext("hello again");
+
+    wrapped.onCompleted();
+    assertThat(responses.messages).containsExactly("hello", "hello again");
+    assertThat(responses.completed).isTrue();
+
+    MutableSpan finished = testSpanHandler.takeRemoteSpan(CLIENT);
+    assertThat(finished.tags()).contains(
+      entry(MESSAGES_SENT, "0"),
+      entry(MESSAGES_RECEIVED, "2")
+    );
+  }
+
+  @Test void biStream_server_countsBothDirections() {
+    Span span = tracing.tracer().nextSpan().kind(SERVER).start();
+    RecordingObserver responses = new RecordingObserver();
+    Object[] arguments = {responses};
+    when(invocation.getArguments()).thenReturn(arguments);
+
+    FinishStreamSpan stream =
+      FinishStreamSpan.wrapArguments(filter, serverRequest, span, invocation);
+    RecordingObserver requests = new RecordingObserver();
+    AppResponse result = new AppResponse(requests);
+    stream.onResponse(result);
+
+    StreamObserver<Object> wrappedRequests = (StreamObserver<Object>) result.getValue();
+    StreamObserver<Object> wrappedResponses = (StreamObserver<Object>) arguments[0];
+    wrappedRequests.onNext("jorge");
+    wrappedResponses.onNext("hello");
+    wrappedRequests.onNext("jorge again");
+    wrappedRequests.onCompleted();
+    assertThat(requests.completed).isTrue();
+
+    Throwable error = new RuntimeException("melted");
+    wrappedResponses.onError(error);
+    assertThat(responses.error).isSameAs(error);
+
+    MutableSpan finished = testSpanHandler.takeRemoteSpanWithError(SERVER, error);
+    assertThat(finished.tags()).contains(
+      entry(MESSAGES_SENT, "1"),
+      entry(MESSAGES_RECEIVED, "2")
+    );
+  }
+
+  @Test void onError_finishesOnce() {
+    Span span = tracing.tracer().nextSpan().kind(CLIENT).start();
+    Object[] arguments = {new RecordingObserver()};
+    when(invocation.getArguments()).thenReturn(arguments);
+
+    FinishStreamSpan stream =
+      FinishStreamSpan.wrapArguments(filter, clientRequest, span, invocation);
+    Throwable error = new RuntimeException("melted");
+    stream.onError(error);
+    ((StreamObserver<Object>) arguments[0]).onError(error);
+
+    testSpanHandler.takeRemoteSpanWithError(CLIENT, error);
+  }
+
+  static final class RecordingObserver implements StreamObserver<Object> {
+    final List<Object> messages = new ArrayList<>();
+    Throwable error;
+    boolean completed;
+
+    @Override public void onNext(Object data) {
+      messages.add(data);
+    }
+
+    @Override public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override public void onCompleted() {
+      completed = true;
+    }
+  }
+}
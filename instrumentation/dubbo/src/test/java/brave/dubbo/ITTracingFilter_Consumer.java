@@ -15,6 +15,8 @@ import brave.rpc.RpcRuleSampler;
 import brave.rpc.RpcTracing;
 import brave.test.util.AssertableCallback;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.apache.dubbo.common.beanutil.JavaBeanDescriptor;
 import org.apache.dubbo.config.ReferenceConfig;
 import org.apache.dubbo.config.bootstrap.DubboBootstrap;
@@ -209,6 +211,14 @@ class ITTracingFilter_Consumer extends ITTracingFilter {
     testSpanHandler.takeRemoteSpanWithErrorMessage(CLIENT, ".*Not found exported service: brave.dubbo.GreeterService.*");
   }
 
+  @Test void finishesAsyncSpanOnResponse() throws Exception {
+    CompletableFuture<String> future =
+        RpcContext.getContext().asyncCall(() -> client.get().sayHello("romeo"));
+
+    assertThat(future.get(3, TimeUnit.SECONDS)).isEqualTo("romeo");
+    testSpanHandler.takeRemoteSpan(CLIENT);
+  }
+
   @Test void finishesOneWaySpan() {
     RpcContext.getContext().asyncCall(() -> {
       client.get().sayHello("romeo");
@@ -252,10 +262,12 @@ class ITTracingFilter_Consumer extends ITTracingFilter {
       @Override protected String parseValue(DubboResponse input, TraceContext context) {
         Result result = input.result();
         if (result == null) return null;
-        JavaBeanDescriptor value = (JavaBeanDescriptor) result.getValue();
-        String s = String.valueOf(value.getProperty("value"));
-        System.out.println(s);
-        return s;
+        Object value = result.getValue();
+        // The span finishes after inner filters, such as generic invocation, decode the result.
+        if (value instanceof JavaBeanDescriptor) {
+          value = ((JavaBeanDescriptor) value).getProperty("value");
+        }
+        return String.valueOf(value);
       }
     };
 
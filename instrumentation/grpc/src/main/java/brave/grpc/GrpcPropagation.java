@@ -6,12 +6,95 @@ package brave.grpc;
 
 import brave.baggage.BaggagePropagation;
 import brave.propagation.Propagation;
+import brave.propagation.Propagation.Setter;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContext.Extractor;
+import brave.propagation.TraceContext.Injector;
+import brave.propagation.SamplingFlags;
+import brave.propagation.TraceContextOrSamplingFlags;
 import io.grpc.Metadata;
 import io.grpc.Metadata.Key;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
-final class GrpcPropagation {
+/**
+ * Adds support for the gRPC binary trace context header "grpc-trace-bin", in addition to the
+ * formats of a delegate, such as B3.
+ *
+ * <p>The binary header is read and written with {@link Metadata#BINARY_BYTE_MARSHALLER}, so trace
+ * and span IDs are not hex encoded on each call. Only gRPC requests use the binary header. Other
+ * requests, such as HTTP, use the delegate.
+ *
+ * <p>Here's an example that reads and writes both "grpc-trace-bin" and B3:
+ * <pre>{@code
+ * tracing = Tracing.newBuilder()
+ *   .propagationFactory(GrpcPropagation.newFactory(B3Propagation.FACTORY))
+ *   ...
+ * }</pre>
+ *
+ * <p>When all gRPC servers read "grpc-trace-bin", you can stop writing the delegate's trace
+ * context headers on gRPC calls. Other fields of the delegate, such as baggage, are still written:
+ * <pre>{@code
+ * propagationFactory = GrpcPropagation.newFactoryBuilder(B3Propagation.FACTORY)
+ *   .injectDelegate(false)
+ *   .build();
+ * }</pre>
+ *
+ * <h3>Notes</h3>
+ * <p>The binary format does not include a parent ID or the debug flag. When "grpc-trace-bin" is
+ * present and valid, it takes precedence over the trace context of the delegate format. The
+ * delegate is still used to extract other fields, such as baggage.
+ *
+ * @since 6.1
+ */
+public final class GrpcPropagation {
+  static final Key<byte[]> GRPC_TRACE_BIN =
+    Key.of("grpc-trace-bin", Metadata.BINARY_BYTE_MARSHALLER);
+
+  /**
+   * Returns a factory that reads and writes "grpc-trace-bin" in addition to the delegate's format.
+   *
+   * @since 6.1
+   */
+  public static Propagation.Factory newFactory(Propagation.Factory delegate) {
+    return newFactoryBuilder(delegate).build();
+  }
+
+  /** @since 6.1 */
+  public static FactoryBuilder newFactoryBuilder(Propagation.Factory delegate) {
+    return new FactoryBuilder(delegate);
+  }
+
+  public static final class FactoryBuilder {
+    final Propagation.Factory delegate;
+    boolean injectDelegate = true;
+
+    FactoryBuilder(Propagation.Factory delegate) {
+      if (delegate == null) throw new NullPointerException("delegate == null");
+      this.delegate = delegate;
+    }
+
+    /**
+     * When false, gRPC client calls write "grpc-trace-bin" instead of the delegate's {@linkplain
+     * Propagation#keys() trace context keys}. Defaults to true, which also writes them for servers
+     * that don't yet read the binary header.
+     *
+     * <p>Other fields of the delegate, such as baggage, are always written. Requests that aren't
+     * gRPC always use the delegate's format.
+     *
+     * @since 6.1
+     */
+    public FactoryBuilder injectDelegate(boolean injectDelegate) {
+      this.injectDelegate = injectDelegate;
+      return this;
+    }
+
+    public Propagation.Factory build() {
+      return new Factory(this);
+    }
+  }
+
   /** Creates constant keys for use in propagating trace identifiers or baggage. */
   static Map<String, Key<String>> nameToKey(Propagation<String> propagation) {
     Map<String, Key<String>> result = new LinkedHashMap<String, Key<String>>();
@@ -23,4 +106,164 @@ final class GrpcPropagation {
     }
     return result;
   }
+
+  static final class Factory extends Propagation.Factory {
+    final Propagation.Factory delegate;
+    final Propagation<String> propagation;
+
+    Factory(FactoryBuilder builder) {
+      delegate = builder.delegate;
+      propagation = new GrpcBinaryPropagation(delegate.get(), builder.injectDelegate);
+    }
+
+    @Override public Propagation<String> get() {
+      return propagation;
+    }
+
+    @Override public boolean supportsJoin() {
+      return delegate.supportsJoin();
+    }
+
+    @Override public boolean requires128BitTraceId() {
+      return delegate.requires128BitTraceId();
+    }
+
+    @Override public TraceContext decorate(TraceContext context) {
+      return delegate.decorate(context);
+    }
+
+    @Override public String toString() {
+      return "GrpcPropagationFactory{delegate=" + delegate + "}";
+    }
+  }
+
+  static final class GrpcBinaryPropagation implements Propagation<String> {
+    final Propagation<String> delegate;
+    final boolean injectDelegate;
+
+    GrpcBinaryPropagation(Propagation<String> delegate, boolean injectDelegate) {
+      this.delegate = delegate;
+      this.injectDelegate = injectDelegate;
+    }
+
+    /** The binary header isn't a string key, so it is not listed here. */
+    @Override public List<String> keys() {
+      return delegate.keys();
+    }
+
+    @Override public <R> Injector<R> injector(Setter<R, String> setter) {
+      Injector<R> injector = delegate.injector(setter);
+      Injector<R> grpcInjector = injectDelegate ? injector
+        : delegate.injector(new SkipKeysSetter<R>(setter, delegate.keys()));
+      return new GrpcInjector<R>(injector, grpcInjector);
+    }
+
+    @Override public <R> Extractor<R> extractor(Getter<R, String> getter) {
+      return new GrpcExtractor<R>(delegate.extractor(getter));
+    }
+
+    @Override public String toString() {
+      return "GrpcPropagation{delegate=" + delegate + "}";
+    }
+  }
+
+  /** Writes fields of the delegate besides its trace context keys, such as baggage. */
+  static final class SkipKeysSetter<R> implements Setter<R, String> {
+    final Setter<R, String> delegate;
+    final List<String> skippedKeys;
+
+    SkipKeysSetter(Setter<R, String> delegate, List<String> skippedKeys) {
+      this.delegate = delegate;
+      this.skippedKeys = skippedKeys;
+    }
+
+    @Override public void put(R request, String key, String value) {
+      if (!skippedKeys.contains(key)) delegate.put(request, key, value);
+    }
+
+    @Override public String toString() {
+      return "SkipKeysSetter{delegate=" + delegate + ", skippedKeys=" + skippedKeys + "}";
+    }
+  }
+
+  static final class GrpcInjector<R> implements Injector<R> {
+    final Injector<R> delegate;
+    /** Used for gRPC client requests. This is the delegate unless it skips trace context keys. */
+    final Injector<R> grpcDelegate;
+
+    GrpcInjector(Injector<R> delegate, Injector<R> grpcDelegate) {
+      this.delegate = delegate;
+      this.grpcDelegate = grpcDelegate;
+    }
+
+    @Override public void inject(TraceContext context, R request) {
+      if (request instanceof GrpcClientRequest) {
+        Metadata headers = ((GrpcClientRequest) request).headers;
+        headers.removeAll(GRPC_TRACE_BIN);
+        headers.put(GRPC_TRACE_BIN, TraceContextBinaryFormat.toBytes(context));
+        grpcDelegate.inject(context, request);
+        return;
+      }
+      delegate.inject(context, request);
+    }
+
+    @Override public String toString() {
+      return "GrpcInjector{delegate=" + delegate + "}";
+    }
+  }
+
+  static final class GrpcExtractor<R> implements Extractor<R> {
+    final Extractor<R> delegate;
+
+    GrpcExtractor(Extractor<R> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override public TraceContextOrSamplingFlags extract(R request) {
+      // Always extract the delegate, as it may include extra fields, such as baggage.
+      TraceContextOrSamplingFlags delegated = delegate.extract(request);
+      if (request instanceof GrpcServerRequest) {
+        byte[] bytes = ((GrpcServerRequest) request).headers.get(GRPC_TRACE_BIN);
+        TraceContext context = bytes != null ? TraceContextBinaryFormat.parseBytes(bytes) : null;
+        if (context != null) return withExtra(context, delegated);
+      }
+      return delegated;
+    }
+
+    /**
+     * Returns the binary context with any extra fields and local sampling the delegate read. As the
+     * binary format only carries the sampled bit, the delegate's debug flag and, when that bit is
+     * clear, its sampling decision are kept.
+     */
+    static TraceContextOrSamplingFlags withExtra(TraceContext context,
+      TraceContextOrSamplingFlags delegated) {
+      TraceContext delegatedContext = delegated.context();
+      if (flags(delegated).debug()) {
+        context = context.toBuilder().debug(true).build();
+      } else if (context.sampled() == null && delegated.sampled() != null) {
+        context = context.toBuilder().sampled(delegated.sampled()).build();
+      }
+      List<Object> extra = delegatedContext != null ? delegatedContext.extra() : delegated.extra();
+      if (extra.isEmpty() && !delegated.sampledLocal()) {
+        return TraceContextOrSamplingFlags.create(context);
+      }
+      TraceContextOrSamplingFlags.Builder builder = TraceContextOrSamplingFlags.newBuilder(context);
+      for (int i = 0, length = extra.size(); i < length; i++) builder.addExtra(extra.get(i));
+      if (delegated.sampledLocal()) builder.sampledLocal();
+      return builder.build();
+    }
+
+    static SamplingFlags flags(TraceContextOrSamplingFlags extracted) {
+      if (extracted.context() != null) return extracted.context();
+      if (extracted.traceIdContext() != null) return extracted.traceIdContext();
+      return extracted.samplingFlags();
+    }
+
+    @Override public String toString() {
+      return "GrpcExtractor{delegate=" + delegate + "}";
+    }
+  }
+
+  GrpcPropagation() {
+  }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.grpc;
+
+import brave.internal.Nullable;
+import brave.internal.Platform;
+import brave.propagation.TraceContext;
+
+/**
+ * Reads and writes the "grpc-trace-bin" header, which is the binary trace context format used by
+ * gRPC's census integration.
+ *
+ * <p>The format is a version byte followed by field ID-prefixed values: 16 bytes of trace ID, 8
+ * bytes of span ID and a single byte of trace options. Only the sampled bit of the options is
+ * used.
+ *
+ * <p>The format can't tell an unsampled context from one with no sampling decision, nor does it
+ * carry the debug flag. When the sampled bit is clear, the parsed context leaves sampled unset, so
+ * that flags from another format, such as B3, or the local sampler decide.
+ */
+final class TraceContextBinaryFormat {
+  static final byte VERSION = 0,
+    TRACE_ID_FIELD_ID = 0,
+    SPAN_ID_FIELD_ID = 1,
+    TRACE_OPTION_FIELD_ID = 2;
+
+  static final int FORMAT_LENGTH = 4 /* version + 3 fields */ + 16 + 8 + 1;
+
+  static byte[] toBytes(TraceContext context) {
+    byte[] bytes = new byte[FORMAT_LENGTH];
+    bytes[0] = VERSION;
+    bytes[1] = TRACE_ID_FIELD_ID;
+    writeLong(bytes, 2, context.traceIdHigh());
+    writeLong(bytes, 10, context.traceId());
+    bytes[18] = SPAN_ID_FIELD_ID;
+    writeLong(bytes, 19, context.spanId());
+    bytes[27] = TRACE_OPTION_FIELD_ID;
+    if (Boolean.TRUE.equals(context.sampled())) bytes[28] = 1;
+    return bytes;
+  }
+
+  /** Returns {@code null} if the input is empty or malformed. */
+  @Nullable static TraceContext parseBytes(byte[] bytes) {
+    if (bytes == null) throw new NullPointerException("bytes == null");
+    if (bytes.length == 0) return null;
+    if (bytes[0] != VERSION) {
+      Platform.get().log("Invalid input: unsupported version {0}", bytes[0], null);
+      return null;
+    }
+    if (bytes.length < FORMAT_LENGTH) {
+      Platform.get().log("Invalid input: truncated", null);
+      return null;
+    }
+    if (bytes[1] != TRACE_ID_FIELD_ID) {
+      Platform.get().log("Invalid input: expected trace ID at offset {0}", 1, null);
+      return null;
+    }
+    long traceIdHigh = readLong(bytes, 2);
+    long traceId = readLong(bytes, 10);
+    if (bytes[18] != SPAN_ID_FIELD_ID) {
+      Platform.get().log("Invalid input: expected span ID at offset {0}", 18, null);
+      return null;
+    }
+    long spanId = readLong(bytes, 19);
+    if (bytes[27] != TRACE_OPTION_FIELD_ID) {
+      Platform.get().log("Invalid input: expected trace options at offset {0}", 27, null);
+      return null;
+    }
+    if (traceIdHigh == 0L && traceId == 0L) {
+      Platform.get().log("Invalid input: expected non-zero trace ID", null);
+      return null;
+    }
+    if (spanId == 0L) {
+      Platform.get().log("Invalid input: expected non-zero span ID", null);
+      return null;
+    }
+    TraceContext.Builder builder = TraceContext.newBuilder()
+      .traceIdHigh(traceIdHigh)
+      .traceId(traceId)
+      .spanId(spanId);
+    if ((bytes[28] & 1) == 1) builder.sampled(true); // otherwise, unsampled or deferred
+    return builder.build();
+  }
+
+  static void writeLong(byte[] data, int pos, long v) {
+    for (int i = 7; i >= 0; i--) {
+      data[pos + i] = (byte) (v & 0xffL);
+      v >>= 8;
+    }
+  }
+
+  static long readLong(byte[] bytes, int pos) {
+    long result = 0;
+    for (int i = 0; i < 8; i++) {
+      result <<= 8;
+      result |= (bytes[pos + i] & 0xffL);
+    }
+    return result;
+  }
+
+  TraceContextBinaryFormat() {
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.grpc;
+
+import brave.Span;
+import brave.Tracing;
+import brave.baggage.BaggageField;
+import brave.baggage.BaggagePropagation;
+import brave.baggage.BaggagePropagationConfig.SingleBaggageField;
+import brave.propagation.B3Propagation;
+import brave.propagation.Propagation;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.Metadata.Key;
+import io.grpc.ServerCall;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static brave.grpc.GrpcPropagation.GRPC_TRACE_BIN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class GrpcPropagationTest {
+  TraceContext context = TraceContext.newBuilder()
+    .traceIdHigh(0x67891233abcdef01L).traceId(0x463ac35c9f6413adL).spanId(1L).sampled(true)
+    .build();
+
+  static final BaggageField COUNTRY_CODE = BaggageField.create("country-code");
+
+  Propagation<String> propagation = GrpcPropagation.newFactory(B3Propagation.FACTORY).get();
+  Map<String, Key<String>> nameToKey = GrpcPropagation.nameToKey(propagation);
+  Metadata headers = new Metadata();
+
+  @Test void keys_excludeBinaryHeader() {
+    assertThat(propagation.keys()).isEqualTo(B3Propagation.get().keys());
+  }
+
+  @Test void binaryFormat_roundTrip() {
+    byte[] bytes = TraceContextBinaryFormat.toBytes(context);
+
+    assertThat(TraceContextBinaryFormat.parseBytes(bytes))
+      .isEqualTo(context);
+  }
+
+  /** The sampled bit can't distinguish unsampled from deferred, so neither is assumed. */
+  @Test void binaryFormat_unsampled() {
+    byte[] bytes = TraceContextBinaryFormat.toBytes(context.toBuilder().sampled(false).build());
+
+    assertThat(TraceContextBinaryFormat.parseBytes(bytes).sampled())
+      .isNull();
+  }
+
+  @Test void binaryFormat_malformed() {
+    byte[] bytes = TraceContextBinaryFormat.toBytes(context);
+
+    assertThat(TraceContextBinaryFormat.parseBytes(new byte[0])).isNull();
+    assertThat(TraceContextBinaryFormat.parseBytes(new byte[] {0, 0, 1})).isNull();
+
+    bytes[0] = 1; // unsupported version
+    assertThat(TraceContextBinaryFormat.parseBytes(bytes)).isNull();
+  }
+
+  @Test void inject_grpcClientRequest() {
+    injector().inject(context, clientRequest());
+
+    assertThat(headers.get(GRPC_TRACE_BIN))
+      .containsExactly(TraceContextBinaryFormat.toBytes(context));
+    assertThat(headers.get(nameToKey.get("X-B3-TraceId")))
+      .isEqualTo(context.traceIdString());
+  }
+
+  @Test void inject_grpcClientRequest_binaryOnly() {
+    propagation = GrpcPropagation.newFactoryBuilder(B3Propagation.FACTORY)
+      .injectDelegate(false)
+      .build().get();
+
+    injector().inject(context, clientRequest());
+
+    assertThat(headers.get(GRPC_TRACE_BIN))
+      .containsExactly(TraceContextBinaryFormat.toBytes(context));
+    assertThat(headers.keys())
+      .containsExactly(GRPC_TRACE_BIN.name());
+  }
+
+  @Test void inject_grpcClientRequest_binaryOnly_keepsBaggage() {
+    Propagation.Factory factory = GrpcPropagation.newFactoryBuilder(baggageFactory())
+      .injectDelegate(false)
+      .build();
+    propagation = factory.get();
+    nameToKey = GrpcPropagation.nameToKey(propagation);
+
+    try (Tracing tracing = Tracing.newBuilder().propagationFactory(factory).build()) {
+      Span span = tracing.tracer().nextSpan();
+      COUNTRY_CODE.updateValue(span.context(), "FO");
+      injector().inject(span.context(), clientRequest());
+    }
+
+    assertThat(headers.keys())
+      .containsExactlyInAnyOrder(GRPC_TRACE_BIN.name(), "country-code");
+  }
+
+  @Test void baggage_survivesClientToServer() {
+    Propagation.Factory factory = GrpcPropagation.newFactory(baggageFactory());
+    propagation = factory.get();
+    nameToKey = GrpcPropagation.nameToKey(propagation);
+
+    try (Tracing tracing = Tracing.newBuilder().propagationFactory(factory).build()) {
+      Span span = tracing.tracer().nextSpan();
+      COUNTRY_CODE.updateValue(span.context(), "FO");
+      injector().inject(span.context(), clientRequest());
+
+      TraceContextOrSamplingFlags extracted = extractor().extract(serverRequest());
+      assertThat(extracted.context().spanId()).isEqualTo(span.context().spanId());
+      assertThat(COUNTRY_CODE.getValue(extracted)).isEqualTo("FO");
+
+      // The server's child re-propagates the baggage downstream.
+      Span serverSpan = tracing.tracer().joinSpan(extracted.context());
+      assertThat(COUNTRY_CODE.getValue(serverSpan.context())).isEqualTo("FO");
+    }
+  }
+
+  @Test void inject_replacesBinaryHeader() {
+    headers.put(GRPC_TRACE_BIN, new byte[] {1, 2, 3});
+
+    injector().inject(context, clientRequest());
+
+    assertThat(headers.getAll(GRPC_TRACE_BIN)).hasSize(1);
+  }
+
+  @Test void extract_prefersBinaryHeader() {
+    headers.put(GRPC_TRACE_BIN, TraceContextBinaryFormat.toBytes(context));
+    headers.put(nameToKey.get("b3"), "1");
+
+    assertThat(extractor().extract(serverRequest()))
+      .isEqualTo(TraceContextOrSamplingFlags.create(context));
+  }
+
+  @Test void extract_unsampled_keepsDelegateDecision() {
+    injector().inject(context.toBuilder().sampled(false).build(), clientRequest());
+
+    assertThat(extractor().extract(serverRequest()).sampled())
+      .isFalse();
+  }
+
+  @Test void extract_deferred() {
+    injector().inject(context.toBuilder().sampled(null).build(), clientRequest());
+
+    assertThat(extractor().extract(serverRequest()).sampled())
+      .isNull();
+  }
+
+  @Test void extract_debug() {
+    injector().inject(context.toBuilder().debug(true).build(), clientRequest());
+
+    TraceContext extracted = extractor().extract(serverRequest()).context();
+    assertThat(extracted.debug()).isTrue();
+    assertThat(extracted.sampled()).isTrue();
+  }
+
+  @Test void extract_binaryOnly_unsampledIsDeferred() {
+    propagation = GrpcPropagation.newFactoryBuilder(B3Propagation.FACTORY)
+      .injectDelegate(false)
+      .build().get();
+
+    injector().inject(context.toBuilder().sampled(false).build(), clientRequest());
+
+    assertThat(extractor().extract(serverRequest()).sampled())
+      .isNull();
+  }
+
+  @Test void extract_fallsBackToDelegate_whenBinaryMalformed() {
+    headers.put(GRPC_TRACE_BIN, new byte[] {1, 2, 3});
+    headers.put(nameToKey.get("b3"), "1");
+
+    assertThat(extractor().extract(serverRequest()))
+      .isEqualTo(TraceContextOrSamplingFlags.SAMPLED);
+  }
+
+  static Propagation.Factory baggageFactory() {
+    return BaggagePropagation.newFactoryBuilder(B3Propagation.FACTORY)
+      .add(SingleBaggageField.remote(COUNTRY_CODE))
+      .build();
+  }
+
+  GrpcClientRequest clientRequest() {
+    return new GrpcClientRequest(nameToKey, TestObjects.METHOD_DESCRIPTOR, CallOptions.DEFAULT,
+      mock(ClientCall.class), headers);
+  }
+
+  GrpcServerRequest serverRequest() {
+    return new GrpcServerRequest(nameToKey, mock(ServerCall.class), headers);
+  }
+
+  TraceContext.Injector<GrpcClientRequest> injector() {
+    return propagation.injector(GrpcClientRequest::propagationField);
+  }
+
+  TraceContext.Extractor<GrpcServerRequest> extractor() {
+    return propagation.extractor(GrpcServerRequest::propagationField);
+  }
+}
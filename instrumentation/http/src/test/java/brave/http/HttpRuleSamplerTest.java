@@ -128,4 +128,28 @@ public class HttpRuleSamplerTest {
   @Test void noRulesOk() {
     HttpRuleSampler.newBuilder().build();
   }
+
+  @Test void manyRules_firstMatchWins() {
+    HttpRuleSampler.Builder builder = HttpRuleSampler.newBuilder()
+      .putRule(and(methodEquals("POST"), pathStartsWith("/api/1")), Sampler.ALWAYS_SAMPLE);
+    for (int i = 0; i < 100; i++) {
+      builder.putRule(pathStartsWith("/api/" + i), Sampler.NEVER_SAMPLE);
+    }
+    HttpRuleSampler ruleSampler = builder
+      .putRule(methodEquals("GET"), Sampler.ALWAYS_SAMPLE)
+      .build();
+
+    when(httpServerRequest.method()).thenReturn("POST");
+    when(httpServerRequest.path()).thenReturn("/api/10");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isTrue();
+
+    when(httpServerRequest.method()).thenReturn("GET");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isFalse();
+
+    when(httpServerRequest.path()).thenReturn("/foo");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isTrue();
+
+    when(httpServerRequest.method()).thenReturn("PUT");
+    assertThat(ruleSampler.trySample(httpServerRequest)).isNull();
+  }
 }
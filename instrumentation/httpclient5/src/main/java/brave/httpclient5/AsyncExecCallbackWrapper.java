@@ -57,6 +57,7 @@ class AsyncExecCallbackWrapper implements AsyncExecCallback {
 
   @Override
   public void failed(final Exception cause) {
+    context.removeAttribute(Span.class.getName());
     handler.handleReceive(new HttpResponseWrapper(null, requestWrapper, cause), span);
     asyncExecCallback.failed(cause);
     // Handle scope if exception is raised after receiving.
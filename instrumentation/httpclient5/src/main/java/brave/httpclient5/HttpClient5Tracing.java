@@ -4,15 +4,19 @@
  */
 package brave.httpclient5;
 
+import brave.Span;
 import brave.Tracing;
 import brave.http.HttpTracing;
+import brave.internal.Nullable;
 import brave.propagation.CurrentTraceContext;
+import brave.propagation.TraceContext;
 import org.apache.hc.client5.http.impl.ChainElement;
 import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
 import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
 import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.core5.http.protocol.HttpContext;
 
 import static org.apache.hc.client5.http.impl.ChainElement.PROTOCOL;
 
@@ -35,6 +39,23 @@ public class HttpClient5Tracing {
     this.currentTraceContext = httpTracing.tracing().currentTraceContext();
   }
 
+  /**
+   * Returns the context of the client span for the exchange in progress, or {@code null} if there
+   * is none.
+   *
+   * <p>Async clients run request and response interceptors on I/O reactor threads, which
+   * multiplex many exchanges, particularly with HTTP/2. The client span is {@linkplain
+   * CurrentTraceContext#get() current} while those interceptors run, but code that runs outside
+   * them, such as an exec chain handler, can read it from the {@link HttpContext} with this.
+   *
+   * @since 6.1
+   */
+  @Nullable public static TraceContext traceContext(HttpContext context) {
+    if (context == null) throw new NullPointerException("context == null");
+    Span span = (Span) context.getAttribute(Span.class.getName());
+    return span != null ? span.context() : null;
+  }
+
   public static HttpClient5Tracing newBuilder(Tracing tracing) {
     return new HttpClient5Tracing(HttpTracing.create(tracing));
   }
@@ -4,6 +4,10 @@
  */
 package brave.httpclient5;
 
+import brave.handler.MutableSpan;
+import brave.propagation.CurrentTraceContext.Scope;
+import brave.propagation.SamplingFlags;
+import brave.propagation.TraceContext;
 import brave.test.http.ITHttpAsyncClient;
 import brave.test.util.AssertableCallback;
 import java.io.IOException;
@@ -11,6 +15,7 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
@@ -194,4 +199,43 @@ class ITTracingH2AsyncClientBuilder extends ITHttpAsyncClient<CloseableHttpAsync
 
     testSpanHandler.takeRemoteSpanWithError(CLIENT, error);
   }
+
+  /** Streams share a connection and reactor thread, so each must only see its own span. */
+  @Test void multiplexedStreamsKeepTheirParents() throws IOException {
+    server.enqueue(new MockResponse().setBodyDelay(300, TimeUnit.MILLISECONDS));
+    server.enqueue(new MockResponse());
+    closeClient(client);
+
+    ConcurrentLinkedQueue<Boolean> sawOwnSpan = new ConcurrentLinkedQueue<>();
+    client = HttpClient5Tracing.newBuilder(httpTracing)
+      .build(newClientBuilder()
+        .addRequestInterceptorFirst((httpRequest, entityDetails, httpContext) ->
+          sawOwnSpan.add(currentTraceContext.get()
+            .equals(HttpClient5Tracing.traceContext(httpContext))))
+        .addResponseInterceptorFirst((httpResponse, entityDetails, httpContext) ->
+          sawOwnSpan.add(currentTraceContext.get()
+            .equals(HttpClient5Tracing.traceContext(httpContext)))));
+    client.start();
+
+    TraceContext parent1 = newTraceContext(SamplingFlags.SAMPLED);
+    TraceContext parent2 = newTraceContext(SamplingFlags.SAMPLED);
+    Future<SimpleHttpResponse> future1, future2;
+    try (Scope scope = currentTraceContext.newScope(parent1)) {
+      future1 = client.execute(SimpleRequestBuilder.get(URI.create(url("/1"))).build(), null);
+    }
+    try (Scope scope = currentTraceContext.newScope(parent2)) {
+      future2 = client.execute(SimpleRequestBuilder.get(URI.create(url("/2"))).build(), null);
+    }
+    blockOnFuture(future1);
+    blockOnFuture(future2);
+
+    takeRequest();
+    takeRequest();
+    for (int i = 0; i < 2; i++) {
+      MutableSpan span = testSpanHandler.takeRemoteSpan(CLIENT);
+      TraceContext parent = span.tags().get("http.path").equals("/1") ? parent1 : parent2;
+      assertChildOf(span, parent);
+    }
+    assertThat(sawOwnSpan).hasSize(4).containsOnly(true);
+  }
 }
@@ -0,0 +1,392 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jdk.httpclient;
+
+import brave.Span;
+import brave.Tracing;
+import brave.http.HttpClientHandler;
+import brave.http.HttpClientRequest;
+import brave.http.HttpClientResponse;
+import brave.http.HttpTracing;
+import brave.internal.Nullable;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.CurrentTraceContext.Scope;
+import brave.propagation.TraceContext;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.PushPromiseHandler;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+
+/**
+ * Decorates a {@link HttpClient} so that {@link #send} and {@link #sendAsync} create a client span
+ * per request.
+ *
+ * <p>The span is finished when the response is complete, or when the exchange fails. As the
+ * response completes after its {@link BodyHandler}, the span includes reading the body, unless the
+ * handler streams it, such as {@link HttpResponse.BodyHandlers#ofInputStream()}. Dependent stages
+ * of the future returned by {@link #sendAsync} are run in the trace context of the caller, not the
+ * context of the client span.
+ *
+ * <p>On JDK 21+, {@code close}, {@code shutdown}, {@code shutdownNow}, {@code awaitTermination}
+ * and {@code isTerminated} are passed to the delegate.
+ *
+ * <p>{@link HttpRequest} is immutable, so it is copied when propagation adds headers. This is the
+ * case for most requests, including unsampled ones: for example, B3 sends "b3: 0" so that the
+ * server honors the decision. Only requests where propagation adds nothing are sent as-is.
+ */
+public final class TracingHttpClient extends HttpClient {
+  public static HttpClient create(Tracing tracing, HttpClient client) {
+    return create(HttpTracing.create(tracing), client);
+  }
+
+  public static HttpClient create(HttpTracing httpTracing, HttpClient client) {
+    return new TracingHttpClient(httpTracing, client);
+  }
+
+  final CurrentTraceContext currentTraceContext;
+  final HttpClientHandler<HttpClientRequest, HttpClientResponse> handler;
+  final HttpClient delegate;
+
+  TracingHttpClient(HttpTracing httpTracing, HttpClient delegate) {
+    if (httpTracing == null) throw new NullPointerException("HttpTracing == null");
+    if (delegate == null) throw new NullPointerException("HttpClient == null");
+    this.currentTraceContext = httpTracing.tracing().currentTraceContext();
+    this.handler = HttpClientHandler.create(httpTracing);
+    this.delegate = delegate;
+  }
+
+  @Override public <T> HttpResponse<T> send(HttpRequest request, BodyHandler<T> responseBodyHandler)
+    throws IOException, InterruptedException {
+    RequestWrapper wrapper = new RequestWrapper(request);
+    Span span = handler.handleSend(wrapper);
+    parseRemoteAddress(request.uri(), span);
+
+    HttpResponse<T> response = null;
+    Throwable error = null;
+    try (Scope scope = currentTraceContext.newScope(span.context())) {
+      return response = delegate.send(wrapper.build(), responseBodyHandler);
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      handler.handleReceive(new ResponseWrapper(wrapper, response, error), span);
+    }
+  }
+
+  @Override public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+    BodyHandler<T> responseBodyHandler) {
+    return sendAsync(request, responseBodyHandler, null);
+  }
+
+  @Override public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+    BodyHandler<T> responseBodyHandler, @Nullable PushPromiseHandler<T> pushPromiseHandler) {
+    TraceContext invocationContext = currentTraceContext.get();
+    RequestWrapper wrapper = new RequestWrapper(request);
+    Span span = handler.handleSend(wrapper);
+    parseRemoteAddress(request.uri(), span);
+
+    CompletableFuture<HttpResponse<T>> delegateFuture;
+    try (Scope scope = currentTraceContext.newScope(span.context())) {
+      delegateFuture = pushPromiseHandler != null
+        ? delegate.sendAsync(wrapper.build(), responseBodyHandler, pushPromiseHandler)
+        : delegate.sendAsync(wrapper.build(), responseBodyHandler);
+    } catch (Throwable t) {
+      handler.handleReceive(new ResponseWrapper(wrapper, null, t), span);
+      throw t;
+    }
+
+    TracingResponseFuture<T> result =
+      new TracingResponseFuture<>(this, wrapper, span, invocationContext, delegateFuture);
+    delegateFuture.whenComplete(result);
+    return result;
+  }
+
+  static void parseRemoteAddress(URI uri, Span span) {
+    if (span.isNoop()) return;
+    int port = uri.getPort();
+    if (port == -1) port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    // Only IP literals are parsed, as this runs before the host name is resolved
+    span.remoteIpAndPort(uri.getHost(), port);
+  }
+
+  /**
+   * Finishes the client span when the delegate completes, then completes this future in the
+   * invocation context. This is one object to avoid allocating a callback and a future per call.
+   */
+  static final class TracingResponseFuture<T> extends CompletableFuture<HttpResponse<T>>
+    implements BiConsumer<HttpResponse<T>, Throwable> {
+    final TracingHttpClient client;
+    final RequestWrapper request;
+    final Span span;
+    @Nullable final TraceContext invocationContext;
+    final CompletableFuture<HttpResponse<T>> delegate;
+
+    TracingResponseFuture(TracingHttpClient client, RequestWrapper request, Span span,
+      @Nullable TraceContext invocationContext, CompletableFuture<HttpResponse<T>> delegate) {
+      this.client = client;
+      this.request = request;
+      this.span = span;
+      this.invocationContext = invocationContext;
+      this.delegate = delegate;
+    }
+
+    @Override public void accept(HttpResponse<T> response, Throwable error) {
+      Throwable cause = error instanceof CompletionException && error.getCause() != null
+        ? error.getCause() : error;
+      client.handler.handleReceive(new ResponseWrapper(request, response, cause), span);
+
+      try (Scope scope = client.currentTraceContext.maybeScope(invocationContext)) {
+        if (error != null) {
+          completeExceptionally(error);
+        } else {
+          complete(response);
+        }
+      }
+    }
+
+    /** Cancels the underlying exchange, which finishes the span with the cancellation error. */
+    @Override public boolean cancel(boolean mayInterruptIfRunning) {
+      delegate.cancel(mayInterruptIfRunning);
+      return super.cancel(mayInterruptIfRunning);
+    }
+  }
+
+  static final class RequestWrapper extends HttpClientRequest {
+    final HttpRequest delegate;
+    /** Name/value pairs added by propagation, or null if there were none. */
+    String[] headers;
+    int headersLength;
+
+    RequestWrapper(HttpRequest delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override public Object unwrap() {
+      return delegate;
+    }
+
+    @Override public String method() {
+      return delegate.method();
+    }
+
+    @Override public String path() {
+      String result = delegate.uri().getRawPath();
+      return result == null || result.isEmpty() ? "/" : result;
+    }
+
+    @Override public String url() {
+      return delegate.uri().toString();
+    }
+
+    @Override public String header(String name) {
+      int i = indexOf(name);
+      if (i != -1) return headers[i + 1];
+      return delegate.headers().firstValue(name).orElse(null);
+    }
+
+    @Override public void header(String name, String value) {
+      int i = indexOf(name);
+      if (i != -1) {
+        headers[i + 1] = value;
+        return;
+      }
+      if (headers == null) {
+        headers = new String[8]; // enough for B3 multi-header
+      } else if (headersLength == headers.length) {
+        String[] newHeaders = new String[headersLength * 2];
+        System.arraycopy(headers, 0, newHeaders, 0, headersLength);
+        headers = newHeaders;
+      }
+      headers[headersLength++] = name;
+      headers[headersLength++] = value;
+    }
+
+    int indexOf(String name) {
+      for (int i = 0; i < headersLength; i += 2) {
+        if (headers[i].equalsIgnoreCase(name)) return i;
+      }
+      return -1;
+    }
+
+    /** Returns the original request unless headers were added by propagation. */
+    HttpRequest build() {
+      if (headersLength == 0) return delegate;
+
+      HttpRequest.Builder builder = HttpRequest.newBuilder(delegate.uri())
+        .expectContinue(delegate.expectContinue())
+        .method(delegate.method(), delegate.bodyPublisher().orElseGet(BodyPublishers::noBody));
+      delegate.timeout().ifPresent(builder::timeout);
+      delegate.version().ifPresent(builder::version);
+      for (Map.Entry<String, List<String>> entry : delegate.headers().map().entrySet()) {
+        String name = entry.getKey();
+        if (indexOf(name) != -1) continue; // replaced below
+        for (String value : entry.getValue()) {
+          builder.header(name, value);
+        }
+      }
+      for (int i = 0; i < headersLength; i += 2) {
+        builder.header(headers[i], headers[i + 1]);
+      }
+      return builder.build();
+    }
+  }
+
+  static final class ResponseWrapper extends HttpClientResponse {
+    final RequestWrapper request;
+    @Nullable final HttpResponse<?> response;
+    @Nullable final Throwable error;
+
+    ResponseWrapper(RequestWrapper request, @Nullable HttpResponse<?> response,
+      @Nullable Throwable error) {
+      this.request = request;
+      this.response = response;
+      this.error = error;
+    }
+
+    @Override public Object unwrap() {
+      return response;
+    }
+
+    @Override public RequestWrapper request() {
+      return request;
+    }
+
+    @Override public Throwable error() {
+      return error;
+    }
+
+    @Override public int statusCode() {
+      return response != null ? response.statusCode() : 0;
+    }
+  }
+
+  @Override public Optional<CookieHandler> cookieHandler() {
+    return delegate.cookieHandler();
+  }
+
+  @Override public Optional<Duration> connectTimeout() {
+    return delegate.connectTimeout();
+  }
+
+  @Override public Redirect followRedirects() {
+    return delegate.followRedirects();
+  }
+
+  @Override public Optional<ProxySelector> proxy() {
+    return delegate.proxy();
+  }
+
+  @Override public SSLContext sslContext() {
+    return delegate.sslContext();
+  }
+
+  @Override public SSLParameters sslParameters() {
+    return delegate.sslParameters();
+  }
+
+  @Override public Optional<Authenticator> authenticator() {
+    return delegate.authenticator();
+  }
+
+  @Override public Version version() {
+    return delegate.version();
+  }
+
+  @Override public Optional<Executor> executor() {
+    return delegate.executor();
+  }
+
+  @Override public WebSocket.Builder newWebSocketBuilder() {
+    return delegate.newWebSocketBuilder();
+  }
+
+  // The below methods were added in JDK 21, so they are declared without @Override and invoked
+  // reflectively on the delegate. On earlier versions, they do nothing.
+
+  public void close() {
+    Jdk21.invoke(Jdk21.CLOSE, delegate);
+  }
+
+  public void shutdown() {
+    Jdk21.invoke(Jdk21.SHUTDOWN, delegate);
+  }
+
+  public void shutdownNow() {
+    Jdk21.invoke(Jdk21.SHUTDOWN_NOW, delegate);
+  }
+
+  public boolean awaitTermination(Duration duration) throws InterruptedException {
+    if (Jdk21.AWAIT_TERMINATION == null) return false;
+    try {
+      return (Boolean) Jdk21.AWAIT_TERMINATION.invoke(delegate, duration);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof InterruptedException) throw (InterruptedException) e.getCause();
+      throw Jdk21.unchecked(e);
+    } catch (IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  public boolean isTerminated() {
+    Object result = Jdk21.invoke(Jdk21.IS_TERMINATED, delegate);
+    return result != null && (Boolean) result;
+  }
+
+  @Override public String toString() {
+    return "TracingHttpClient{delegate=" + delegate + "}";
+  }
+
+  static final class Jdk21 {
+    static final Method CLOSE = method("close"), SHUTDOWN = method("shutdown"),
+      SHUTDOWN_NOW = method("shutdownNow"), IS_TERMINATED = method("isTerminated"),
+      AWAIT_TERMINATION = method("awaitTermination", Duration.class);
+
+    @Nullable static Method method(String name, Class<?>... parameterTypes) {
+      try {
+        return HttpClient.class.getMethod(name, parameterTypes);
+      } catch (NoSuchMethodException e) {
+        return null; // before JDK 21
+      }
+    }
+
+    @Nullable static Object invoke(@Nullable Method method, HttpClient delegate) {
+      if (method == null) return null;
+      try {
+        return method.invoke(delegate);
+      } catch (InvocationTargetException e) {
+        throw unchecked(e);
+      } catch (IllegalAccessException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    static RuntimeException unchecked(InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      return new RuntimeException(cause);
+    }
+  }
+}
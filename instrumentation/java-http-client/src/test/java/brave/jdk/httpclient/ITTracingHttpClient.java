@@ -0,0 +1,119 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jdk.httpclient;
+
+import brave.propagation.CurrentTraceContext.Scope;
+import brave.propagation.SamplingFlags;
+import brave.propagation.TraceContext;
+import brave.test.http.ITHttpAsyncClient;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.function.BiConsumer;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import static brave.Span.Kind.CLIENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ITTracingHttpClient extends ITHttpAsyncClient<HttpClient> {
+  @Override protected HttpClient newClient(int port) {
+    return TracingHttpClient.create(httpTracing, HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1) // MockWebServer doesn't support h2c upgrade
+      .connectTimeout(Duration.ofSeconds(1))
+      .build());
+  }
+
+  @Override protected void closeClient(HttpClient client) {
+    ((TracingHttpClient) client).close(); // does nothing before JDK 21
+  }
+
+  @Override protected void get(HttpClient client, String pathIncludingQuery) throws IOException {
+    send(client, request(pathIncludingQuery).build());
+  }
+
+  @Override protected void options(HttpClient client, String path) throws IOException {
+    send(client, request(path)
+      .method("OPTIONS", BodyPublishers.noBody())
+      .build());
+  }
+
+  @Override protected void post(HttpClient client, String pathIncludingQuery, String body)
+    throws IOException {
+    send(client, request(pathIncludingQuery)
+      .header("Content-Type", "text/plain")
+      .POST(BodyPublishers.ofString(body))
+      .build());
+  }
+
+  @Override
+  protected void get(HttpClient client, String path, BiConsumer<Integer, Throwable> callback) {
+    client.sendAsync(request(path).build(),
+        BodyHandlers.discarding())
+      .whenComplete((response, error) ->
+        callback.accept(response != null ? response.statusCode() : null, error));
+  }
+
+  /**
+   * The client retries idempotent requests when the connection drops. Without a timeout, the retry
+   * blocks on MockWebServer when there are no more responses enqueued.
+   */
+  HttpRequest.Builder request(String pathIncludingQuery) {
+    return HttpRequest.newBuilder(URI.create(url(pathIncludingQuery)))
+      .timeout(Duration.ofSeconds(1));
+  }
+
+  static void send(HttpClient client, HttpRequest request) throws IOException {
+    try {
+      client.send(request, BodyHandlers.discarding());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AssertionError(e);
+    }
+  }
+
+  @Override @Disabled("blind to the implementation of redirects")
+  protected void redirect() {
+  }
+
+  @Test void close_closesDelegate() throws Exception {
+    assumeTrue(Runtime.version().feature() >= 21, "HttpClient.close() was added in JDK 21");
+    HttpClient delegate = HttpClient.newHttpClient();
+    TracingHttpClient tracingClient =
+      (TracingHttpClient) TracingHttpClient.create(httpTracing, delegate);
+
+    tracingClient.close();
+
+    assertThat(tracingClient.isTerminated()).isTrue();
+    assertThat(HttpClient.class.getMethod("isTerminated").invoke(delegate)).isEqualTo(true);
+  }
+
+  @Test void copiesRequestHeaders() throws IOException {
+    server.enqueue(new MockResponse());
+
+    TraceContext parent = newTraceContext(SamplingFlags.SAMPLED);
+    try (Scope scope = currentTraceContext.newScope(parent)) {
+      send(client, request("/foo")
+        .header("my-header", "1")
+        .header("my-header", "2")
+        .build());
+    }
+
+    RecordedRequest request = takeRequest();
+    assertThat(request.getHeaders().values("my-header"))
+      .containsExactly("1", "2");
+    assertThat(request.getHeader("x-b3-traceId"))
+      .isEqualTo(parent.traceIdString());
+
+    testSpanHandler.takeRemoteSpan(CLIENT);
+  }
+}
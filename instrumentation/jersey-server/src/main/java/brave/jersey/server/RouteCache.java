@@ -0,0 +1,56 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jersey.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.server.model.ResourceMethod;
+
+/**
+ * Memoizes {@link SpanCustomizingApplicationEventListener#route(ContainerRequest)} by the matched
+ * resource method, so that a hit doesn't walk the matched templates.
+ *
+ * <p>Without sub-resource locators, a resource method is reached by one path in the application
+ * model, so its matched templates are always the same. Methods reached via sub-resource locators can
+ * be reached from different paths, so their routes are not cached. The base path is checked, as an
+ * application can be deployed under more than one.
+ */
+final class RouteCache {
+  /** Resource methods are fixed by the application model, so this bound is rarely reached. */
+  static final int MAX_SIZE = 1024;
+
+  final ConcurrentMap<ResourceMethod, Route> routes =
+    new ConcurrentHashMap<ResourceMethod, Route>();
+
+  String route(ContainerRequest request) {
+    ExtendedUriInfo uriInfo = request.getUriInfo();
+    ResourceMethod method = uriInfo.getMatchedResourceMethod();
+    if (method == null || !uriInfo.getMatchedResourceLocators().isEmpty()) {
+      return SpanCustomizingApplicationEventListener.route(uriInfo);
+    }
+
+    String basePath = uriInfo.getBaseUri().getPath();
+    Route cached = routes.get(method);
+    if (cached != null && cached.basePath.equals(basePath)) return cached.route;
+
+    String route = SpanCustomizingApplicationEventListener.route(uriInfo);
+    // Replace a mismatched entry, but don't grow past the bound
+    if (cached != null || routes.size() < MAX_SIZE) {
+      routes.put(method, new Route(basePath, route));
+    }
+    return route;
+  }
+
+  static final class Route {
+    final String basePath, route;
+
+    Route(String basePath, String route) {
+      this.basePath = basePath;
+      this.route = route;
+    }
+  }
+}
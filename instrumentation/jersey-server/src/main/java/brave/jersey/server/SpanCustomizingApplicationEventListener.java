@@ -40,6 +40,7 @@ public class SpanCustomizingApplicationEventListener
   }
 
   final EventParser parser;
+  final RouteCache routeCache = new RouteCache();
 
   @Inject SpanCustomizingApplicationEventListener(EventParser parser) {
     if (parser == null) throw new NullPointerException("parser == null");
@@ -63,7 +64,7 @@ public class SpanCustomizingApplicationEventListener
     if (!(maybeSpan instanceof SpanCustomizer)) return;
 
     // Set the HTTP route attribute so that TracingFilter can see it
-    request.setProperty("http.route", route(request));
+    request.setProperty("http.route", routeCache.route(request));
 
     Throwable error = unwrapError(event);
     // Set the error attribute so that TracingFilter can see it
@@ -92,7 +93,10 @@ public class SpanCustomizingApplicationEventListener
    * Path("").
    */
   @Nullable static String route(ContainerRequest request) {
-    ExtendedUriInfo uriInfo = request.getUriInfo();
+    return route(request.getUriInfo());
+  }
+
+  @Nullable static String route(ExtendedUriInfo uriInfo) {
     List<UriTemplate> templates = uriInfo.getMatchedTemplates();
     int templateCount = templates.size();
     if (templateCount == 0) return "";
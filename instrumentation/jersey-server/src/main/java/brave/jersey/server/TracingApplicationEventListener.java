@@ -35,6 +35,7 @@ public final class TracingApplicationEventListener implements ApplicationEventLi
   final CurrentTraceContext currentTraceContext;
   final HttpServerHandler<HttpServerRequest, HttpServerResponse> handler;
   final EventParser parser;
+  final RouteCache routeCache = new RouteCache();
 
   @Inject TracingApplicationEventListener(HttpTracing httpTracing, EventParser parser) {
     currentTraceContext = httpTracing.tracing().currentTraceContext();
@@ -48,7 +49,8 @@ public final class TracingApplicationEventListener implements ApplicationEventLi
 
   @Override public RequestEventListener onRequest(RequestEvent event) {
     if (event.getType() != RequestEvent.Type.START) return null;
-    Span span = handler.handleReceive(new ContainerRequestWrapper(event.getContainerRequest()));
+    Span span = handler.handleReceive(
+      new ContainerRequestWrapper(event.getContainerRequest(), routeCache));
     return new TracingRequestEventListener(span, currentTraceContext.newScope(span.context()));
   }
 
@@ -94,7 +96,7 @@ public final class TracingApplicationEventListener implements ApplicationEventLi
           set(currentTraceContext.newScope(span.context()));
           break;
         case FINISHED:
-          handler.handleSend(new RequestEventWrapper(event), span);
+          handler.handleSend(new RequestEventWrapper(event, routeCache), span);
           // In async FINISHED can happen before RESOURCE_METHOD_FINISHED, and on different threads!
           // Don't close the scope unless it is a synchronous method.
           if (!async && (maybeScope = getAndSet(null)) != null) {
@@ -113,13 +115,15 @@ public final class TracingApplicationEventListener implements ApplicationEventLi
 
   static final class ContainerRequestWrapper extends HttpServerRequest {
     final ContainerRequest delegate;
+    final RouteCache routeCache;
 
-    ContainerRequestWrapper(ContainerRequest delegate) {
+    ContainerRequestWrapper(ContainerRequest delegate, RouteCache routeCache) {
       this.delegate = delegate;
+      this.routeCache = routeCache;
     }
 
     @Override public String route() {
-      return SpanCustomizingApplicationEventListener.route(delegate);
+      return routeCache.route(delegate);
     }
 
     @Override public Object unwrap() {
@@ -150,11 +154,13 @@ public final class TracingApplicationEventListener implements ApplicationEventLi
 
   static final class RequestEventWrapper extends HttpServerResponse {
     final RequestEvent event;
+    final RouteCache routeCache;
     @Nullable final Throwable error;
     ContainerRequestWrapper request;
 
-    RequestEventWrapper(RequestEvent event) {
+    RequestEventWrapper(RequestEvent event, RouteCache routeCache) {
       this.event = event;
+      this.routeCache = routeCache;
       this.error = SpanCustomizingApplicationEventListener.unwrapError(event);
     }
 
@@ -163,7 +169,9 @@ public final class TracingApplicationEventListener implements ApplicationEventLi
     }
 
     @Override public ContainerRequestWrapper request() {
-      if (request == null) request = new ContainerRequestWrapper(event.getContainerRequest());
+      if (request == null) {
+        request = new ContainerRequestWrapper(event.getContainerRequest(), routeCache);
+      }
       return request;
     }
 
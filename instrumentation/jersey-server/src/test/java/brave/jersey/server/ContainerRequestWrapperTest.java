@@ -20,7 +20,7 @@ public class ContainerRequestWrapperTest {
   @Test void path_prefixesSlashWhenMissing() {
     when(request.getPath(false)).thenReturn("bar");
 
-    assertThat(new ContainerRequestWrapper(request).path())
+    assertThat(new ContainerRequestWrapper(request, new RouteCache()).path())
       .isEqualTo("/bar");
   }
 
@@ -29,7 +29,7 @@ public class ContainerRequestWrapperTest {
     when(request.getUriInfo()).thenReturn(uriInfo);
     when(uriInfo.getRequestUri()).thenReturn(URI.create("http://foo:8080/bar?hello=world"));
 
-    assertThat(new ContainerRequestWrapper(request).url())
+    assertThat(new ContainerRequestWrapper(request, new RouteCache()).url())
       .isEqualTo("http://foo:8080/bar?hello=world");
   }
 }
@@ -28,14 +28,14 @@ public class RequestEventWrapperTest {
     when(event.getContainerRequest()).thenReturn(request);
     when(request.getMethod()).thenReturn("GET");
 
-    assertThat(new RequestEventWrapper(event).method())
+    assertThat(new RequestEventWrapper(event, new RouteCache()).method())
       .isEqualTo("GET");
   }
 
   @Test void request() {
     when(event.getContainerRequest()).thenReturn(request);
 
-    assertThat(new RequestEventWrapper(event).request().unwrap())
+    assertThat(new RequestEventWrapper(event, new RouteCache()).request().unwrap())
       .isSameAs(request);
   }
 
@@ -43,22 +43,22 @@ public class RequestEventWrapperTest {
     when(event.getContainerResponse()).thenReturn(response);
     when(response.getStatus()).thenReturn(200);
 
-    assertThat(new RequestEventWrapper(event).statusCode()).isEqualTo(200);
+    assertThat(new RequestEventWrapper(event, new RouteCache()).statusCode()).isEqualTo(200);
   }
 
   @Test void statusCode_exception() {
     when(event.getException()).thenReturn(new ClientErrorException(400));
 
-    assertThat(new RequestEventWrapper(event).statusCode()).isEqualTo(400);
+    assertThat(new RequestEventWrapper(event, new RouteCache()).statusCode()).isEqualTo(400);
   }
 
   @Test void statusCode_mappableException() {
     when(event.getException()).thenReturn(new MappableException(new ClientErrorException(400)));
 
-    assertThat(new RequestEventWrapper(event).statusCode()).isEqualTo(400);
+    assertThat(new RequestEventWrapper(event, new RouteCache()).statusCode()).isEqualTo(400);
   }
 
   @Test void statusCode_zeroNoResponse() {
-    assertThat(new RequestEventWrapper(event).statusCode()).isZero();
+    assertThat(new RequestEventWrapper(event, new RouteCache()).statusCode()).isZero();
   }
 }
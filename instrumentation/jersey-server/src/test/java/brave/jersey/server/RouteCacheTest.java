@@ -0,0 +1,96 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.jersey.server;
+
+import java.net.URI;
+import java.util.Arrays;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.uri.PathTemplate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class RouteCacheTest {
+  @Mock ContainerRequest request;
+  @Mock ExtendedUriInfo uriInfo;
+  @Mock ResourceMethod method;
+  RouteCache routeCache = new RouteCache();
+
+  @BeforeEach void setup() {
+    when(request.getUriInfo()).thenReturn(uriInfo);
+    when(uriInfo.getBaseUri()).thenReturn(URI.create("/"));
+    when(uriInfo.getMatchedTemplates()).thenReturn(Arrays.asList(
+      new PathTemplate("/"),
+      new PathTemplate("/items/{itemId}"),
+      new PathTemplate("/"),
+      new PathTemplate("/nested")
+    ));
+  }
+
+  @Test void route_notCachedWithoutResourceMethod() {
+    assertThat(routeCache.route(request))
+      .isEqualTo("/nested/items/{itemId}");
+    assertThat(routeCache.routes).isEmpty();
+  }
+
+  @Test void route_cachedByResourceMethod() {
+    when(uriInfo.getMatchedResourceMethod()).thenReturn(method);
+
+    String route = routeCache.route(request);
+    assertThat(route).isEqualTo("/nested/items/{itemId}");
+
+    assertThat(routeCache.route(request)).isSameAs(route);
+    assertThat(routeCache.routes).containsOnlyKeys(method);
+  }
+
+  /** A sub-resource locator can reach the same method from a different path. */
+  @Test void route_notCachedWithResourceLocators() {
+    when(uriInfo.getMatchedResourceMethod()).thenReturn(method);
+    when(uriInfo.getMatchedResourceLocators()).thenReturn(Arrays.asList(mock(ResourceMethod.class)));
+    routeCache.route(request);
+
+    when(uriInfo.getMatchedTemplates()).thenReturn(Arrays.asList(
+      new PathTemplate("/"),
+      new PathTemplate("/items/{itemId}"),
+      new PathTemplate("/"),
+      new PathTemplate("/other")
+    ));
+
+    assertThat(routeCache.route(request))
+      .isEqualTo("/other/items/{itemId}");
+    assertThat(routeCache.routes).isEmpty();
+  }
+
+  @Test void route_recomputedWhenBasePathDiffers() {
+    when(uriInfo.getMatchedResourceMethod()).thenReturn(method);
+    routeCache.route(request);
+
+    when(uriInfo.getBaseUri()).thenReturn(URI.create("/base"));
+
+    assertThat(routeCache.route(request))
+      .isEqualTo("/base/nested/items/{itemId}");
+  }
+
+  @Test void route_bounded() {
+    for (int i = 0; i < RouteCache.MAX_SIZE + 1; i++) {
+      when(uriInfo.getMatchedResourceMethod()).thenReturn(mock(ResourceMethod.class));
+      routeCache.route(request);
+    }
+
+    assertThat(routeCache.routes).hasSize(RouteCache.MAX_SIZE);
+  }
+}
@@ -99,6 +99,7 @@ public final class JmsTracing {
   public static final class Builder {
     final MessagingTracing messagingTracing;
     String remoteServiceName = "jms";
+    boolean clearPropagationProperties = true;
 
     Builder(MessagingTracing messagingTracing) {
       if (messagingTracing == null) throw new NullPointerException("messagingTracing == null");
@@ -113,6 +114,28 @@ public final class JmsTracing {
       return this;
     }
 
+    /**
+     * When false, propagation properties such as "b3" are left on received messages. Defaults to
+     * true.
+     *
+     * <p>JMS received messages are read-only until {@link Message#clearProperties()}. To remove
+     * propagation properties, all other properties are read, cleared and written back. This costs
+     * several calls per property on each message received, and some providers deserialize the
+     * property map on each call.
+     *
+     * <p>When false, properties aren't rewritten. The consumer span isn't written back to the
+     * message either, as it is likely read-only. Hence, spans created with {@link
+     * #nextSpan(Message)} after a {@code receive()} are children of the producer span, not the
+     * consumer span. Message listeners are unaffected, as they don't read the message to find
+     * the consumer span.
+     *
+     * @since 6.1
+     */
+    public Builder clearPropagationProperties(boolean clearPropagationProperties) {
+      this.clearPropagationProperties = clearPropagationProperties;
+      return this;
+    }
+
     public JmsTracing build() {
       return new JmsTracing(this);
     }
@@ -128,6 +151,7 @@ public final class JmsTracing {
   final SamplerFunction<MessagingRequest> producerSampler, consumerSampler;
   final String remoteServiceName;
   final Set<String> traceIdProperties;
+  final boolean clearPropagationProperties;
 
   // raw types to avoid accessing JMS 2.0 types unless we are sure they are present
   // Caching here instead of deferring further as there is overhead creating extractors and
@@ -155,6 +179,7 @@ public final class JmsTracing {
     this.consumerSampler = builder.messagingTracing.consumerSampler();
     this.remoteServiceName = builder.remoteServiceName;
     this.traceIdProperties = new LinkedHashSet<>(propagation.keys());
+    this.clearPropagationProperties = builder.clearPropagationProperties;
   }
 
   public Connection connection(Connection connection) {
@@ -246,7 +271,7 @@ public final class JmsTracing {
     TraceContextOrSamplingFlags extracted = extractor.extract(request);
     // Clear propagation regardless of extraction as JMS requires clearing as a means to make the
     // message writable
-    PropertyFilter.filterProperties(message, traceIdProperties);
+    if (clearPropagationProperties) PropertyFilter.filterProperties(message, traceIdProperties);
     return extracted;
   }
 
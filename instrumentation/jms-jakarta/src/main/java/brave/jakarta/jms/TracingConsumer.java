@@ -52,7 +52,8 @@ abstract class TracingConsumer<C> {
       long timestamp = tracing.clock(span.context()).currentTimeMicroseconds();
       span.start(timestamp).finish(timestamp);
     }
-    injector.inject(span.context(), request);
+    // When properties weren't cleared, the message is likely read-only
+    if (jmsTracing.clearPropagationProperties) injector.inject(span.context(), request);
   }
 
   abstract @Nullable Destination destination(Message message);
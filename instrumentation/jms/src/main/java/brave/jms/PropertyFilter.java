@@ -42,6 +42,7 @@ final class PropertyFilter {
 
     while (names.hasMoreElements()) {
       String name = (String) names.nextElement();
+      if (namesToClear.contains(name)) continue; // skip reading a value we'll drop
       Object value;
       try {
         value = message.getObjectProperty(name);
@@ -50,7 +51,7 @@ final class PropertyFilter {
         log(t, "error getting property {0} from message {1}", name, message);
         return;
       }
-      if (!namesToClear.contains(name) && value != null) {
+      if (value != null) {
         out.add(name);
         out.add(value);
       }
@@ -243,6 +243,15 @@ public class JmsTracingTest extends ITJms {
     assertThat(ITJms.propertiesToMap(message)).isEmpty();
   }
 
+  @Test void nextSpan_clearPropagationProperties_false() {
+    jmsTracing = JmsTracing.newBuilder(messagingTracing).clearPropagationProperties(false).build();
+    setStringProperty(message, "b3", B3SingleFormat.writeB3SingleFormat(parent));
+
+    Span span = jmsTracing.nextSpan(message);
+    assertThat(span.context().parentIdString()).isEqualTo(parent.spanIdString());
+    assertThat(ITJms.propertiesToMap(message)).containsKey("b3");
+  }
+
   @Test void nextSpan_should_retain_baggage_headers() throws JMSException {
     message.setStringProperty(BAGGAGE_FIELD_KEY, "");
 
@@ -68,6 +68,21 @@ public class TracingJMSConsumerTest extends ITJms {
     testSpanHandler.takeRemoteSpan(CONSUMER);
   }
 
+  @Test void receive_clearPropagationProperties_false() throws Exception {
+    tracingJMSConsumer = new TracingJMSConsumer(delegate, null,
+      JmsTracing.newBuilder(messagingTracing).clearPropagationProperties(false).build());
+
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    String b3 = B3SingleFormat.writeB3SingleFormatWithoutParentId(parent);
+    message.setStringProperty("b3", b3);
+    message.setReadOnlyProperties(true); // like a received message
+
+    receive(message);
+
+    assertChildOf(testSpanHandler.takeRemoteSpan(CONSUMER), parent);
+    assertThat(message.getStringProperty("b3")).isEqualTo(b3);
+  }
+
   void receive(Message message) {
     when(delegate.receive()).thenReturn(message);
     tracingJMSConsumer.receive();
@@ -4,6 +4,8 @@
  */
 package brave.messaging;
 
+import brave.internal.IndexableMatcher;
+import brave.internal.Nullable;
 import brave.sampler.Matcher;
 import brave.sampler.Matchers;
 
@@ -28,7 +30,7 @@ public final class MessagingRequestMatchers {
   }
 
   static final class MessagingOperationEquals<Req extends MessagingRequest>
-    implements Matcher<Req> {
+    implements IndexableMatcher<Req> {
     final String operation;
 
     MessagingOperationEquals(String operation) {
@@ -39,6 +41,22 @@ public final class MessagingRequestMatchers {
       return operation.equals(request.operation());
     }
 
+    @Override public String attribute() {
+      return "messaging.operation";
+    }
+
+    @Override @Nullable public String attributeValue(Req request) {
+      return request.operation();
+    }
+
+    @Override public String value() {
+      return operation;
+    }
+
+    @Override public boolean isPrefix() {
+      return false;
+    }
+
     @Override public boolean equals(Object o) {
       if (o == this) return true;
       if (!(o instanceof MessagingOperationEquals)) return false;
@@ -68,7 +86,7 @@ public final class MessagingRequestMatchers {
   }
 
   static final class MessagingChannelKindEquals<Req extends MessagingRequest>
-    implements Matcher<Req> {
+    implements IndexableMatcher<Req> {
     final String channelKind;
 
     MessagingChannelKindEquals(String channelKind) {
@@ -79,6 +97,22 @@ public final class MessagingRequestMatchers {
       return channelKind.equals(request.channelKind());
     }
 
+    @Override public String attribute() {
+      return "messaging.channel_kind";
+    }
+
+    @Override @Nullable public String attributeValue(Req request) {
+      return request.channelKind();
+    }
+
+    @Override public String value() {
+      return channelKind;
+    }
+
+    @Override public boolean isPrefix() {
+      return false;
+    }
+
     @Override public boolean equals(Object o) {
       if (o == this) return true;
       if (!(o instanceof MessagingChannelKindEquals)) return false;
@@ -108,7 +142,7 @@ public final class MessagingRequestMatchers {
   }
 
   static final class MessagingChannelNameEquals<Req extends MessagingRequest>
-    implements Matcher<Req> {
+    implements IndexableMatcher<Req> {
     final String channelName;
 
     MessagingChannelNameEquals(String channelName) {
@@ -119,6 +153,22 @@ public final class MessagingRequestMatchers {
       return channelName.equals(request.channelName());
     }
 
+    @Override public String attribute() {
+      return "messaging.channel_name";
+    }
+
+    @Override @Nullable public String attributeValue(Req request) {
+      return request.channelName();
+    }
+
+    @Override public String value() {
+      return channelName;
+    }
+
+    @Override public boolean isPrefix() {
+      return false;
+    }
+
     @Override public boolean equals(Object o) {
       if (o == this) return true;
       if (!(o instanceof MessagingChannelNameEquals)) return false;
@@ -0,0 +1,71 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.mongodb;
+
+import brave.Span;
+import brave.internal.Nullable;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks spans of in-flight commands by request ID, as asynchronous and reactive drivers can
+ * complete a command on a different thread than it started on.
+ *
+ * <p>A command that never completes, for example due to a bug in the driver, would otherwise leak
+ * its span. Hence, spans older than the timeout are abandoned. No more than the maximum size are
+ * tracked: when full, the spans of new commands are abandoned until space frees up.
+ */
+final class InFlightSpans {
+  final ConcurrentHashMap<Integer, Entry> spans = new ConcurrentHashMap<Integer, Entry>();
+  final int maxSize;
+  final long timeoutNanos;
+  volatile long lastExpirationNanos = System.nanoTime();
+
+  InFlightSpans(int maxSize, long timeoutNanos) {
+    this.maxSize = maxSize;
+    this.timeoutNanos = timeoutNanos;
+  }
+
+  /** Returns false if the span was abandoned because too many commands are in flight. */
+  boolean put(int requestId, Span span) {
+    long nowNanos = System.nanoTime();
+    // Spans can't expire sooner than the timeout, so there's no point checking more often.
+    if (nowNanos - lastExpirationNanos > timeoutNanos) expire(nowNanos);
+    if (spans.size() >= maxSize) {
+      span.abandon();
+      return false;
+    }
+    Entry previous = spans.put(requestId, new Entry(span, nowNanos));
+    if (previous != null) previous.span.abandon(); // request ID overflow
+    return true;
+  }
+
+  @Nullable Span remove(int requestId) {
+    Entry entry = spans.remove(requestId);
+    return entry != null ? entry.span : null;
+  }
+
+  /** Abandons spans of commands that started longer ago than the timeout. */
+  void expire(long nowNanos) {
+    lastExpirationNanos = nowNanos;
+    for (Iterator<Entry> i = spans.values().iterator(); i.hasNext(); ) {
+      Entry entry = i.next();
+      if (nowNanos - entry.startNanos > timeoutNanos) {
+        i.remove();
+        entry.span.abandon();
+      }
+    }
+  }
+
+  static final class Entry {
+    final Span span;
+    final long startNanos;
+
+    Entry(Span span, long startNanos) {
+      this.span = span;
+      this.startNanos = startNanos;
+    }
+  }
+}
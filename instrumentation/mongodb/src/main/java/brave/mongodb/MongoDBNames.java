@@ -0,0 +1,52 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.mongodb;
+
+import brave.internal.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches names derived from command events, so that tracing a command costs a few map lookups
+ * instead of building the same strings each time.
+ *
+ * <p>Database and collection names come from the application, so each cache holds no more than
+ * {@link #MAX_CACHED_NAMES} entries. Once full, names are built per command as before.
+ *
+ * <p>The remote IP is not cached, as the 3.x driver resolves it on each call, and it changes on DNS
+ * updates or replica failover.
+ */
+final class MongoDBNames {
+  static final int MAX_CACHED_NAMES = 1024;
+
+  /** database name -> "mongodb-" + database name */
+  final ConcurrentMap<String, String> remoteServiceNames = new ConcurrentHashMap<String, String>();
+  /** command name -> collection name -> command name + " " + collection name */
+  final ConcurrentMap<String, ConcurrentMap<String, String>> spanNames =
+    new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+
+  String remoteServiceName(String databaseName) {
+    String result = remoteServiceNames.get(databaseName);
+    if (result != null) return result;
+    return cache(remoteServiceNames, databaseName, "mongodb-" + databaseName);
+  }
+
+  String spanName(String commandName, @Nullable String collectionName) {
+    if (collectionName == null) return commandName;
+    ConcurrentMap<String, String> collections = spanNames.get(commandName);
+    if (collections == null) {
+      collections = cache(spanNames, commandName, new ConcurrentHashMap<String, String>());
+    }
+    String result = collections.get(collectionName);
+    if (result != null) return result;
+    return cache(collections, collectionName, commandName + " " + collectionName);
+  }
+
+  static <K, V> V cache(ConcurrentMap<K, V> cache, K key, V value) {
+    if (cache.size() >= MAX_CACHED_NAMES) return value;
+    V previous = cache.putIfAbsent(key, value);
+    return previous != null ? previous : value;
+  }
+}
@@ -5,7 +5,10 @@
 package brave.mongodb;
 
 import brave.Tracing;
+import brave.propagation.ThreadLocalSpan;
+import com.mongodb.event.CommandEvent;
 import com.mongodb.event.CommandListener;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Use this class to decorate your MongoDB client and enable Tracing.
@@ -14,8 +17,8 @@ import com.mongodb.event.CommandListener;
  * on the {@link com.mongodb.MongoClientOptions} or {@link com.mongodb.MongoClientSettings} object
  * that is used to create the {@code MongoClient} to be instrumented.
  *
- * As of now, this instrumentation can only be used with the synchronous MongoDB driver. Do not use
- * it with the asynchronous or reactive drivers as tracing data will be incorrect.
+ * <p>By default, this instrumentation can only be used with the synchronous MongoDB driver. To use
+ * it with the asynchronous or reactive drivers, enable {@link Builder#trackByRequestId(boolean)}.
  */
 public final class MongoDBTracing {
   public static MongoDBTracing create(final Tracing tracing) {
@@ -27,25 +30,79 @@ public final class MongoDBTracing {
   }
 
   public CommandListener commandListener() {
-    return new TraceMongoCommandListener(this);
+    return TraceMongoCommandListener.create(this);
   }
 
   public static final class Builder {
     final Tracing tracing;
+    boolean trackByRequestId;
+    int maxInFlightCommands = 10000;
+    long inFlightCommandTimeoutNanos = TimeUnit.MINUTES.toNanos(5);
 
     Builder(Tracing tracing) {
       if (tracing == null) throw new NullPointerException("tracing == null");
       this.tracing = tracing;
     }
 
+    /**
+     * When true, spans of in-flight commands are tracked by {@link CommandEvent#getRequestId()}
+     * instead of {@link ThreadLocalSpan}. Enable this for asynchronous or reactive drivers, which
+     * can complete a command on a different thread than it started on. Defaults to false.
+     *
+     * <p>Note: The span is not placed in scope, and its parent is the trace context current when
+     * the driver started the command.
+     *
+     * @since 6.1
+     */
+    public Builder trackByRequestId(boolean trackByRequestId) {
+      this.trackByRequestId = trackByRequestId;
+      return this;
+    }
+
+    /**
+     * When {@link #trackByRequestId(boolean) tracking by request ID}, this is the maximum number
+     * of commands traced concurrently. Commands above this limit are not traced. Defaults to
+     * 10000.
+     *
+     * @since 6.1
+     */
+    public Builder maxInFlightCommands(int maxInFlightCommands) {
+      if (maxInFlightCommands <= 0) {
+        throw new IllegalArgumentException("maxInFlightCommands <= 0");
+      }
+      this.maxInFlightCommands = maxInFlightCommands;
+      return this;
+    }
+
+    /**
+     * When {@link #trackByRequestId(boolean) tracking by request ID}, spans of commands that
+     * haven't completed within this timeout are abandoned. Defaults to 5 minutes.
+     *
+     * @since 6.1
+     */
+    public Builder inFlightCommandTimeout(long timeout, TimeUnit unit) {
+      if (unit == null) throw new NullPointerException("unit == null");
+      if (timeout <= 0) throw new IllegalArgumentException("timeout <= 0");
+      this.inFlightCommandTimeoutNanos = unit.toNanos(timeout);
+      return this;
+    }
+
     public MongoDBTracing build() {
       return new MongoDBTracing(this);
     }
   }
 
   final Tracing tracing;
+  final boolean trackByRequestId;
+  final int maxInFlightCommands;
+  final long inFlightCommandTimeoutNanos;
+  /** Shared by all command listeners, as they often trace the same databases and collections. */
+  final MongoDBNames names = new MongoDBNames();
 
   MongoDBTracing(Builder builder) {
     tracing = builder.tracing;
+    trackByRequestId = builder.trackByRequestId;
+    maxInFlightCommands = builder.maxInFlightCommands;
+    inFlightCommandTimeoutNanos = builder.inFlightCommandTimeoutNanos;
   }
 }
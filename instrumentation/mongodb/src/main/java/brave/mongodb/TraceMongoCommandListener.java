@@ -5,16 +5,17 @@
 package brave.mongodb;
 
 import brave.Span;
+import brave.Tracer;
 import brave.internal.Nullable;
 import brave.propagation.ThreadLocalSpan;
 import com.mongodb.MongoSocketException;
 import com.mongodb.connection.ConnectionDescription;
 import com.mongodb.connection.ConnectionId;
+import com.mongodb.event.CommandEvent;
 import com.mongodb.event.CommandFailedEvent;
 import com.mongodb.event.CommandListener;
 import com.mongodb.event.CommandStartedEvent;
 import com.mongodb.event.CommandSucceededEvent;
-import java.net.InetSocketAddress;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -37,34 +38,55 @@ final class TraceMongoCommandListener implements CommandListener {
     "insert", "update", "collMod", "compact", "convertToCapped", "create", "createIndexes", "drop",
     "dropIndexes", "killCursors", "listIndexes", "reIndex"));
 
-  final ThreadLocalSpan threadLocalSpan;
+  /** Null when {@link #inFlightSpans} is used */
+  @Nullable final ThreadLocalSpan threadLocalSpan;
+  @Nullable final Tracer tracer;
+  @Nullable final InFlightSpans inFlightSpans;
+  final MongoDBNames names;
 
-  TraceMongoCommandListener(MongoDBTracing mongoDBTracing) {
-    this(ThreadLocalSpan.create(mongoDBTracing.tracing.tracer()));
+  static TraceMongoCommandListener create(MongoDBTracing mongoDBTracing) {
+    Tracer tracer = mongoDBTracing.tracing.tracer();
+    if (!mongoDBTracing.trackByRequestId) {
+      return new TraceMongoCommandListener(ThreadLocalSpan.create(tracer), mongoDBTracing.names);
+    }
+    return new TraceMongoCommandListener(tracer, new InFlightSpans(
+      mongoDBTracing.maxInFlightCommands, mongoDBTracing.inFlightCommandTimeoutNanos),
+      mongoDBTracing.names);
   }
 
-  TraceMongoCommandListener(ThreadLocalSpan threadLocalSpan) {
+  TraceMongoCommandListener(ThreadLocalSpan threadLocalSpan, MongoDBNames names) {
     this.threadLocalSpan = threadLocalSpan;
+    this.tracer = null;
+    this.inFlightSpans = null;
+    this.names = names;
+  }
+
+  TraceMongoCommandListener(Tracer tracer, InFlightSpans inFlightSpans, MongoDBNames names) {
+    this.threadLocalSpan = null;
+    this.tracer = tracer;
+    this.inFlightSpans = inFlightSpans;
+    this.names = names;
   }
 
   /**
-   * Uses {@link ThreadLocalSpan} as there's no attribute namespace shared between callbacks, but
-   * all callbacks happen on the same thread.
+   * By default, this uses {@link ThreadLocalSpan} as there's no attribute namespace shared between
+   * callbacks, but all callbacks of the synchronous driver happen on the same thread. Otherwise,
+   * spans are tracked by {@link CommandEvent#getRequestId()}.
    */
   @Override public void commandStarted(CommandStartedEvent event) {
     String databaseName = event.getDatabaseName();
     if ("admin".equals(databaseName)) return; // don't trace commands like "endSessions"
 
-    Span span = threadLocalSpan.next();
+    Span span = threadLocalSpan != null ? threadLocalSpan.next() : tracer.nextSpan();
     if (span == null || span.isNoop()) return;
 
     String commandName = event.getCommandName();
     BsonDocument command = event.getCommand();
     String collectionName = getCollectionName(command, commandName);
 
-    span.name(getSpanName(commandName, collectionName))
+    span.name(names.spanName(commandName, collectionName))
       .kind(CLIENT)
-      .remoteServiceName("mongodb-" + databaseName)
+      .remoteServiceName(names.remoteServiceName(databaseName))
       .tag("mongodb.command", commandName);
 
     if (collectionName != null) {
@@ -82,21 +104,27 @@ final class TraceMongoCommandListener implements CommandListener {
     }
 
     span.start();
+    if (inFlightSpans != null) inFlightSpans.put(event.getRequestId(), span);
   }
 
   @Override public void commandSucceeded(CommandSucceededEvent event) {
-    Span span = threadLocalSpan.remove();
+    Span span = removeSpan(event);
     if (span == null) return;
     span.finish();
   }
 
   @Override public void commandFailed(CommandFailedEvent event) {
-    Span span = threadLocalSpan.remove();
+    Span span = removeSpan(event);
     if (span == null) return;
     span.error(event.getThrowable());
     span.finish();
   }
 
+  @Nullable Span removeSpan(CommandEvent event) {
+    if (threadLocalSpan != null) return threadLocalSpan.remove();
+    return inFlightSpans.remove(event.getRequestId());
+  }
+
   @Nullable String getCollectionName(BsonDocument command, String commandName) {
     if (COMMANDS_WITH_COLLECTION_NAME.contains(commandName)) {
       String collectionName = getNonEmptyBsonString(command.get(commandName));
@@ -117,9 +145,4 @@ final class TraceMongoCommandListener implements CommandListener {
     String stringValue = bsonValue.asString().getValue().trim();
     return stringValue.isEmpty() ? null : stringValue;
   }
-
-  static String getSpanName(String commandName, @Nullable String collectionName) {
-    if (collectionName == null) return commandName;
-    return commandName + " " + collectionName;
-  }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.mongodb;
+
+import brave.Span;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class InFlightSpansTest {
+  @Mock Span span1, span2;
+  InFlightSpans inFlightSpans = new InFlightSpans(1, TimeUnit.MINUTES.toNanos(1));
+
+  @Test void putAndRemove() {
+    assertThat(inFlightSpans.put(1, span1)).isTrue();
+
+    assertThat(inFlightSpans.remove(2)).isNull();
+    assertThat(inFlightSpans.remove(1)).isSameAs(span1);
+    assertThat(inFlightSpans.remove(1)).isNull();
+  }
+
+  @Test void put_abandonsWhenFull() {
+    inFlightSpans.put(1, span1);
+
+    assertThat(inFlightSpans.put(2, span2)).isFalse();
+
+    verify(span2).abandon();
+    assertThat(inFlightSpans.remove(1)).isSameAs(span1);
+  }
+
+  @Test void put_abandonsDuplicateRequestId() {
+    inFlightSpans = new InFlightSpans(2, TimeUnit.MINUTES.toNanos(1));
+    inFlightSpans.put(1, span1);
+    inFlightSpans.put(1, span2);
+
+    verify(span1).abandon();
+    assertThat(inFlightSpans.remove(1)).isSameAs(span2);
+  }
+
+  @Test void expire_abandonsSpansOlderThanTimeout() {
+    long now = System.nanoTime();
+    inFlightSpans.put(1, span1);
+
+    inFlightSpans.expire(now);
+    verify(span1, never()).abandon();
+
+    inFlightSpans.expire(now + TimeUnit.MINUTES.toNanos(2));
+    verify(span1).abandon();
+    assertThat(inFlightSpans.spans).isEmpty();
+  }
+
+  @Test void put_expiresAfterTimeout() throws InterruptedException {
+    inFlightSpans = new InFlightSpans(1, TimeUnit.MILLISECONDS.toNanos(1));
+    inFlightSpans.put(1, span1);
+    Thread.sleep(2);
+
+    assertThat(inFlightSpans.put(2, span2)).isTrue();
+    verify(span1).abandon();
+    assertThat(inFlightSpans.remove(2)).isSameAs(span2);
+  }
+}
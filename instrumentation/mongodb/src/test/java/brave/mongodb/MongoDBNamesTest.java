@@ -0,0 +1,43 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.mongodb;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MongoDBNamesTest {
+  MongoDBNames names = new MongoDBNames();
+
+  @Test void spanName_emptyCollectionName() {
+    assertThat(names.spanName("foo", null)).isEqualTo("foo");
+    assertThat(names.spanNames).isEmpty();
+  }
+
+  @Test void spanName_presentCollectionName() {
+    assertThat(names.spanName("foo", "bar")).isEqualTo("foo bar");
+  }
+
+  @Test void spanName_cached() {
+    assertThat(names.spanName("foo", "bar"))
+      .isSameAs(names.spanName("foo", "bar"));
+  }
+
+  @Test void remoteServiceName_cached() {
+    assertThat(names.remoteServiceName("myDatabase"))
+      .isEqualTo("mongodb-myDatabase")
+      .isSameAs(names.remoteServiceName("myDatabase"));
+  }
+
+  @Test void cachesAreBounded() {
+    for (int i = 0; i < MongoDBNames.MAX_CACHED_NAMES * 2; i++) {
+      assertThat(names.remoteServiceName("db" + i)).isEqualTo("mongodb-db" + i);
+      assertThat(names.spanName("find", "c" + i)).isEqualTo("find c" + i);
+    }
+
+    assertThat(names.remoteServiceNames).hasSize(MongoDBNames.MAX_CACHED_NAMES);
+    assertThat(names.spanNames.get("find")).hasSize(MongoDBNames.MAX_CACHED_NAMES);
+  }
+}
@@ -7,6 +7,7 @@ package brave.mongodb;
 import brave.Tracer;
 import brave.Tracing;
 import com.mongodb.event.CommandListener;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -40,4 +41,21 @@ public class MongoDBTracingTest {
     assertThat(listener).isInstanceOf(TraceMongoCommandListener.class);
     assertThat(listener).extracting("threadLocalSpan").extracting("tracer").isEqualTo(tracer);
   }
+
+  @Test void commandListener_trackByRequestId() {
+    Tracer tracer = mock(Tracer.class);
+    when(tracing.tracer()).thenReturn(tracer);
+
+    CommandListener listener = MongoDBTracing.newBuilder(tracing)
+      .trackByRequestId(true)
+      .maxInFlightCommands(100)
+      .inFlightCommandTimeout(1, TimeUnit.SECONDS)
+      .build().commandListener();
+
+    assertThat(listener).extracting("threadLocalSpan").isNull();
+    assertThat(listener).extracting("tracer").isEqualTo(tracer);
+    assertThat(listener).extracting("inFlightSpans.maxSize").isEqualTo(100);
+    assertThat(listener).extracting("inFlightSpans.timeoutNanos")
+      .isEqualTo(TimeUnit.SECONDS.toNanos(1));
+  }
 }
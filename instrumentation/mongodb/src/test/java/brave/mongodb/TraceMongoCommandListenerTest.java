@@ -5,7 +5,9 @@
 package brave.mongodb;
 
 import brave.Span;
+import brave.Tracing;
 import brave.propagation.ThreadLocalSpan;
+import brave.test.TestSpanHandler;
 import com.mongodb.ServerAddress;
 import com.mongodb.connection.ClusterId;
 import com.mongodb.connection.ConnectionDescription;
@@ -25,7 +27,6 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static brave.mongodb.TraceMongoCommandListener.getNonEmptyBsonString;
-import static brave.mongodb.TraceMongoCommandListener.getSpanName;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
@@ -52,7 +53,7 @@ public class TraceMongoCommandListenerTest {
   TraceMongoCommandListener listener;
 
   @BeforeEach void setUp() {
-    listener = new TraceMongoCommandListener(threadLocalSpan);
+    listener = new TraceMongoCommandListener(threadLocalSpan, new MongoDBNames());
   }
 
   @Test void getCollectionName_missingCommand() {
@@ -117,14 +118,6 @@ public class TraceMongoCommandListenerTest {
     assertThat(getNonEmptyBsonString(new BsonString(" foo  "))).isEqualTo("foo");
   }
 
-  @Test void getSpanName_emptyCollectionName() {
-    assertThat(getSpanName("foo", null)).isEqualTo("foo");
-  }
-
-  @Test void getSpanName_presentCollectionName() {
-    assertThat(getSpanName("foo", "bar")).isEqualTo("foo bar");
-  }
-
   @Test void commandStarted_noopSpan() {
     when(threadLocalSpan.next()).thenReturn(span);
     when(span.isNoop()).thenReturn(true);
@@ -191,6 +184,58 @@ public class TraceMongoCommandListenerTest {
     verifyNoMoreInteractions(threadLocalSpan);
   }
 
+  @Test void trackByRequestId_completesOnAnotherThread() throws Exception {
+    TestSpanHandler spans = new TestSpanHandler();
+    try (Tracing tracing = Tracing.newBuilder().addSpanHandler(spans).build()) {
+      listener = (TraceMongoCommandListener) MongoDBTracing.newBuilder(tracing)
+        .trackByRequestId(true).build().commandListener();
+
+      listener.commandStarted(createCommandStartedEvent());
+      assertThat(listener.inFlightSpans.spans).hasSize(1);
+
+      final CommandSucceededEvent succeeded = createCommandSucceededEvent();
+      when(succeeded.getRequestId()).thenReturn(1);
+      Thread thread = new Thread(() -> listener.commandSucceeded(succeeded));
+      thread.start();
+      thread.join();
+
+      assertThat(listener.inFlightSpans.spans).isEmpty();
+      assertThat(spans.get(0).name()).isEqualTo("insert myCollection");
+    }
+  }
+
+  @Test void trackByRequestId_failed() {
+    TestSpanHandler spans = new TestSpanHandler();
+    try (Tracing tracing = Tracing.newBuilder().addSpanHandler(spans).build()) {
+      listener = (TraceMongoCommandListener) MongoDBTracing.newBuilder(tracing)
+        .trackByRequestId(true).build().commandListener();
+
+      listener.commandStarted(createCommandStartedEvent());
+      CommandFailedEvent failed = createCommandFailedEvent(EXCEPTION);
+      when(failed.getRequestId()).thenReturn(1);
+      listener.commandFailed(failed);
+
+      assertThat(listener.inFlightSpans.spans).isEmpty();
+      assertThat(spans.get(0).error()).isSameAs(EXCEPTION);
+    }
+  }
+
+  @Test void trackByRequestId_ignoresUnknownRequest() {
+    TestSpanHandler spans = new TestSpanHandler();
+    try (Tracing tracing = Tracing.newBuilder().addSpanHandler(spans).build()) {
+      listener = (TraceMongoCommandListener) MongoDBTracing.newBuilder(tracing)
+        .trackByRequestId(true).build().commandListener();
+
+      listener.commandStarted(createCommandStartedEvent());
+      CommandSucceededEvent succeeded = createCommandSucceededEvent();
+      when(succeeded.getRequestId()).thenReturn(2);
+      listener.commandSucceeded(succeeded);
+
+      assertThat(listener.inFlightSpans.spans).hasSize(1);
+      assertThat(spans).isEmpty();
+    }
+  }
+
   void setupCommandStartedMocks() {
     when(threadLocalSpan.next()).thenReturn(span);
     when(span.isNoop()).thenReturn(false);
@@ -5,6 +5,8 @@
 package brave.mysql;
 
 import brave.Span;
+import brave.internal.Nullable;
+import brave.internal.SqlNormalizer;
 import brave.propagation.ThreadLocalSpan;
 import com.mysql.jdbc.Connection;
 import com.mysql.jdbc.PreparedStatement;
@@ -43,14 +45,21 @@ public class TracingStatementInterceptor implements StatementInterceptorV2 {
     if (interceptedStatement instanceof PreparedStatement) {
       sql = ((PreparedStatement) interceptedStatement).getPreparedSql();
     }
-    int spaceIndex = sql.indexOf(' '); // Allow span names of single-word statements like COMMIT
-    span.kind(CLIENT).name(spaceIndex == -1 ? sql : sql.substring(0, spaceIndex));
-    span.tag("sql.query", sql);
+    if (normalizer != null) {
+      SqlNormalizer.Statement statement = normalizer.normalize(sql);
+      span.kind(CLIENT).name(statement.name);
+      span.tag("sql.query", statement.query);
+    } else {
+      span.kind(CLIENT).name(SqlNormalizer.spanName(sql));
+      span.tag("sql.query", sql);
+    }
     parseServerIpAndPort(connection, span);
     span.start();
     return null;
   }
 
+  @Nullable private SqlNormalizer normalizer;
+
   @Override
   public ResultSetInternalMethods postProcess(String sql, Statement interceptedStatement,
     ResultSetInternalMethods originalResultSet, Connection connection, int warningCount,
@@ -98,7 +107,7 @@ public class TracingStatementInterceptor implements StatementInterceptorV2 {
   }
 
   @Override public void init(Connection conn, Properties props) {
-    // Don't care
+    normalizer = SqlNormalizer.create(props);
   }
 
   @Override public void destroy() {
@@ -5,6 +5,8 @@
 package brave.mysql6;
 
 import brave.Span;
+import brave.internal.Nullable;
+import brave.internal.SqlNormalizer;
 import brave.propagation.ThreadLocalSpan;
 import com.mysql.cj.api.MysqlConnection;
 import com.mysql.cj.api.jdbc.JdbcConnection;
@@ -47,15 +49,21 @@ public class TracingStatementInterceptor implements StatementInterceptor {
     if (interceptedStatement instanceof PreparedStatement) {
       sql = ((PreparedStatement) interceptedStatement).getPreparedSql();
     }
-    int spaceIndex = sql.indexOf(' '); // Allow span names of single-word statements like COMMIT
-    span.kind(CLIENT).name(spaceIndex == -1 ? sql : sql.substring(0, spaceIndex));
-    span.tag("sql.query", sql);
+    if (normalizer != null) {
+      SqlNormalizer.Statement statement = normalizer.normalize(sql);
+      span.kind(CLIENT).name(statement.name);
+      span.tag("sql.query", statement.query);
+    } else {
+      span.kind(CLIENT).name(SqlNormalizer.spanName(sql));
+      span.tag("sql.query", sql);
+    }
     parseServerIpAndPort(connection, span);
     span.start();
     return null;
   }
 
   private MysqlConnection connection;
+  @Nullable private SqlNormalizer normalizer;
 
   @Override
   public <T extends Resultset> T postProcess(String sql, Statement interceptedStatement,
@@ -121,6 +129,7 @@ public class TracingStatementInterceptor implements StatementInterceptor {
     Log log) {
     TracingStatementInterceptor interceptor = new TracingStatementInterceptor();
     interceptor.connection = mysqlConnection;
+    interceptor.normalizer = SqlNormalizer.create(properties);
     return interceptor;
   }
 
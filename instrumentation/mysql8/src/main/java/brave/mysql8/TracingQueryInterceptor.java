@@ -5,8 +5,11 @@
 package brave.mysql8;
 
 import brave.Span;
+import brave.internal.Nullable;
+import brave.internal.SqlNormalizer;
 import brave.propagation.ThreadLocalSpan;
 import com.mysql.cj.MysqlConnection;
+import com.mysql.cj.PreparedQuery;
 import com.mysql.cj.Query;
 import com.mysql.cj.interceptors.QueryInterceptor;
 import com.mysql.cj.jdbc.JdbcConnection;
@@ -43,10 +46,19 @@ public class TracingQueryInterceptor implements QueryInterceptor {
     Span span = ThreadLocalSpan.CURRENT_TRACER.next();
     if (span == null || span.isNoop()) return null;
 
-    String sql = sqlSupplier.get();
-    int spaceIndex = sql.indexOf(' '); // Allow span names of single-word statements like COMMIT
-    span.kind(CLIENT).name(spaceIndex == -1 ? sql : sql.substring(0, spaceIndex));
-    span.tag("sql.query", sql);
+    if (normalizer != null) {
+      // Prepared queries have the original SQL, so this avoids materializing the bound values.
+      String sql = interceptedQuery instanceof PreparedQuery
+        ? ((PreparedQuery) interceptedQuery).getOriginalSql()
+        : sqlSupplier.get();
+      SqlNormalizer.Statement statement = normalizer.normalize(sql);
+      span.kind(CLIENT).name(statement.name);
+      span.tag("sql.query", statement.query);
+    } else {
+      String sql = sqlSupplier.get();
+      span.kind(CLIENT).name(SqlNormalizer.spanName(sql));
+      span.tag("sql.query", sql);
+    }
     parseServerIpAndPort(connection, span);
     span.start();
     return null;
@@ -54,6 +66,7 @@ public class TracingQueryInterceptor implements QueryInterceptor {
 
   private MysqlConnection connection;
   private boolean interceptingExceptions;
+  @Nullable private SqlNormalizer normalizer;
 
   @Override
   public <T extends Resultset> T postProcess(Supplier<String> sql, Query interceptedQuery,
@@ -119,6 +132,7 @@ public class TracingQueryInterceptor implements QueryInterceptor {
     String exceptionInterceptors = properties.getProperty("exceptionInterceptors");
     TracingQueryInterceptor interceptor = new TracingQueryInterceptor();
     interceptor.connection = mysqlConnection;
+    interceptor.normalizer = SqlNormalizer.create(properties);
     interceptor.interceptingExceptions = exceptionInterceptors != null &&
       exceptionInterceptors.contains(TracingExceptionInterceptor.class.getName());
     if (!interceptor.interceptingExceptions) {
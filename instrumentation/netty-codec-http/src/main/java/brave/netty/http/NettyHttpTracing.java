@@ -4,17 +4,17 @@
  */
 package brave.netty.http;
 
-import brave.Span;
 import brave.Tracing;
-import brave.http.HttpServerRequest;
 import brave.http.HttpTracing;
+import brave.netty.http.TracingHttpServerHandler.HttpRequestWrapper;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.util.AttributeKey;
+import java.util.ArrayDeque;
 
 public final class NettyHttpTracing {
-  static final AttributeKey<HttpServerRequest> REQUEST_ATTRIBUTE =
-    AttributeKey.valueOf(HttpServerRequest.class.getName());
-  static final AttributeKey<Span> SPAN_ATTRIBUTE = AttributeKey.valueOf(Span.class.getName());
+  /** Requests read, but not yet responded to, in the order they were read. */
+  static final AttributeKey<ArrayDeque<HttpRequestWrapper>> IN_FLIGHT_ATTRIBUTE =
+    AttributeKey.valueOf(NettyHttpTracing.class.getName() + ".IN_FLIGHT");
 
   public static NettyHttpTracing create(Tracing tracing) {
     return new NettyHttpTracing(HttpTracing.create(tracing));
@@ -32,6 +32,9 @@ public final class NettyHttpTracing {
 
   /**
    * Returns a duplex handler that traces {@link io.netty.handler.codec.http.HttpRequest} messages.
+   *
+   * <p>Pipelined HTTP/1.1 requests on the same channel are traced separately. For HTTP/2, add this
+   * handler to each stream's child channel, after {@code Http2StreamFrameToHttpObjectCodec}.
    */
   public ChannelDuplexHandler serverHandler() {
     return serverHandler;
@@ -22,9 +22,20 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.util.Attribute;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.util.ArrayDeque;
 
 import static brave.internal.Throwables.propagateIfFatal;
 
+/**
+ * Traces each {@link HttpRequest} until its {@link HttpResponse} is written.
+ *
+ * <p>HTTP/1.1 allows a client to pipeline requests, sending several before reading any response.
+ * Responses are written in the same order as requests, so in-flight requests are kept in a FIFO
+ * per channel. Each request wrapper holds its span, so no other state is allocated per request.
+ *
+ * <p>Netty invokes handler methods for a channel on its event loop, so the FIFO isn't shared
+ * across threads.
+ */
 final class TracingHttpServerHandler extends ChannelDuplexHandler {
   final CurrentTraceContext currentTraceContext;
   final HttpServerHandler<HttpServerRequest, HttpServerResponse> handler;
@@ -43,9 +54,9 @@ final class TracingHttpServerHandler extends ChannelDuplexHandler {
     HttpRequestWrapper request =
       new HttpRequestWrapper((HttpRequest) msg, (InetSocketAddress) ctx.channel().remoteAddress());
 
-    ctx.channel().attr(NettyHttpTracing.REQUEST_ATTRIBUTE).set(request);
-    Span span = handler.handleReceive(request);
-    ctx.channel().attr(NettyHttpTracing.SPAN_ATTRIBUTE).set(span);
+    Span span = request.span = handler.handleReceive(request);
+    ArrayDeque<HttpRequestWrapper> inFlight = inFlight(ctx);
+    inFlight.add(request);
     Scope scope = currentTraceContext.newScope(span.context());
 
     // Place the span in scope so that downstream code can read trace IDs
@@ -60,21 +71,30 @@ final class TracingHttpServerHandler extends ChannelDuplexHandler {
       error = e;
       throw e;
     } finally {
-      if (error != null) span.error(error).finish();
+      if (error != null) {
+        inFlight.removeLastOccurrence(request);
+        span.error(error).finish();
+      }
       scope.close();
     }
   }
 
   @Override public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise prm) {
-    Attribute<Span> spanAttr = ctx.channel().attr(NettyHttpTracing.SPAN_ATTRIBUTE);
-    Span span = spanAttr.get();
-    spanAttr.compareAndSet(span, null);
-    if (span == null || !(msg instanceof HttpResponse)) {
+    if (!(msg instanceof HttpResponse) || isInterim(((HttpResponse) msg).status())) {
+      ctx.write(msg, prm);
+      return;
+    }
+
+    ArrayDeque<HttpRequestWrapper> inFlight =
+      ctx.channel().attr(NettyHttpTracing.IN_FLIGHT_ATTRIBUTE).get();
+    HttpRequestWrapper request = inFlight != null ? inFlight.poll() : null;
+    if (request == null) {
       ctx.write(msg, prm);
       return;
     }
 
     HttpResponse response = (HttpResponse) msg;
+    Span span = request.span;
 
     Scope scope = currentTraceContext.maybeScope(span.context());
     Throwable error = null;
@@ -88,15 +108,33 @@ final class TracingHttpServerHandler extends ChannelDuplexHandler {
       error = e;
       throw e;
     } finally {
-      HttpServerRequest request = ctx.channel().attr(NettyHttpTracing.REQUEST_ATTRIBUTE).get();
       handler.handleSend(new HttpResponseWrapper(request, response, error), span);
       scope.close();
     }
   }
 
+  static ArrayDeque<HttpRequestWrapper> inFlight(ChannelHandlerContext ctx) {
+    Attribute<ArrayDeque<HttpRequestWrapper>> attr =
+      ctx.channel().attr(NettyHttpTracing.IN_FLIGHT_ATTRIBUTE);
+    ArrayDeque<HttpRequestWrapper> result = attr.get();
+    if (result == null) attr.set(result = new ArrayDeque<HttpRequestWrapper>(4));
+    return result;
+  }
+
+  /**
+   * Returns true for informational responses, such as "100 Continue", which precede the response
+   * to the same request. "101 Switching Protocols" is the last response of its request.
+   */
+  static boolean isInterim(@Nullable HttpResponseStatus status) {
+    if (status == null) return false;
+    int code = status.code();
+    return code >= 100 && code < 200 && code != 101;
+  }
+
   static final class HttpRequestWrapper extends HttpServerRequest {
     final HttpRequest request;
     @Nullable final InetSocketAddress remoteAddress;
+    Span span; // set after handleReceive
 
     HttpRequestWrapper(HttpRequest request, InetSocketAddress remoteAddress) {
       this.request = request;
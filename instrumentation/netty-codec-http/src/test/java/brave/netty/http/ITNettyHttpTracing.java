@@ -4,6 +4,7 @@
  */
 package brave.netty.http;
 
+import brave.handler.MutableSpan;
 import brave.test.http.ITHttpServer;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
@@ -14,9 +15,19 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpServerCodec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.net.Socket;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import static brave.Span.Kind.SERVER;
+import static io.netty.util.CharsetUtil.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
 
 class ITNettyHttpTracing extends ITHttpServer {
   EventLoopGroup bossGroup;
@@ -61,6 +72,62 @@ class ITNettyHttpTracing extends ITHttpServer {
     if (workerGroup != null) workerGroup.shutdownGracefully();
   }
 
+  /** Requests are written before any response is read, so they are in-flight at the same time. */
+  @Test void pipelinedRequests() throws IOException {
+    String responses = pipeline(""
+      + "GET /foo HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n"
+      + "GET /badrequest HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n"
+      + "GET /child HTTP/1.1\r\nHost: 127.0.0.1\r\nConnection: close\r\n\r\n");
+
+    assertThat(responses)
+      .containsSubsequence("200 OK", "400 Bad Request", "200 OK");
+
+    MutableSpan foo = testSpanHandler.takeRemoteSpan(SERVER);
+    assertThat(foo.tags())
+      .containsEntry("http.path", "/foo")
+      .doesNotContainKey("error");
+
+    assertThat(testSpanHandler.takeRemoteSpanWithErrorTag(SERVER, "400").tags())
+      .containsEntry("http.path", "/badrequest");
+
+    MutableSpan child = testSpanHandler.takeLocalSpan();
+    MutableSpan server = testSpanHandler.takeRemoteSpan(SERVER);
+    assertThat(server.tags())
+      .containsEntry("http.path", "/child");
+    assertThat(child.parentId())
+      .isEqualTo(server.id());
+  }
+
+  /** The "100 Continue" interim response shouldn't end the span. */
+  @Test void expectContinue() throws IOException {
+    String responses = pipeline(""
+      + "POST /badrequest HTTP/1.1\r\nHost: 127.0.0.1\r\nExpect: 100-continue\r\n"
+      + "Content-Length: 0\r\nConnection: close\r\n\r\n");
+
+    assertThat(responses)
+      .containsSubsequence("100 Continue", "400 Bad Request");
+
+    assertThat(testSpanHandler.takeRemoteSpanWithErrorTag(SERVER, "400").tags())
+      .containsEntry("http.status_code", "400");
+  }
+
+  /** Writes the requests at once and reads until the server closes the connection. */
+  String pipeline(String requests) throws IOException {
+    try (Socket socket = new Socket("127.0.0.1", port)) {
+      OutputStream out = socket.getOutputStream();
+      out.write(requests.getBytes(UTF_8));
+      out.flush();
+
+      InputStream in = socket.getInputStream();
+      ByteArrayOutputStream responses = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      for (int read; (read = in.read(buffer)) != -1; ) {
+        responses.write(buffer, 0, read);
+      }
+      return new String(responses.toByteArray(), UTF_8);
+    }
+  }
+
   @Override @Disabled("TODO: last handler in the pipeline did not handle the exception")
   public void httpStatusCodeSettable_onUncaughtException() {
   }
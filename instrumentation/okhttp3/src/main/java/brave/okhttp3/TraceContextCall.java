@@ -17,6 +17,10 @@ import okio.Timeout;
 /**
  * Ensures callbacks run in the invocation trace context.
  *
+ * <p>This also clears {@link TracingEventListener#CURRENT} once the call is executed, or its
+ * callback returns. These are on the thread that ran the network interceptors, which would
+ * otherwise retain the listener until the call's body is closed, possibly on another thread.
+ *
  * <p>Note: {@link #timeout()} was added in OkHttp 3.12
  */
 final class TraceContextCall implements Call {
@@ -36,7 +40,10 @@ final class TraceContextCall implements Call {
   }
 
   @Override public Call clone() {
-    return new TraceContextCall(delegate.clone(), currentTraceContext, invocationContext);
+    // The clone's listener is created with it, and reads its parent from the current context.
+    try (Scope scope = currentTraceContext.maybeScope(invocationContext)) {
+      return new TraceContextCall(delegate.clone(), currentTraceContext, invocationContext);
+    }
   }
 
   @Override public void enqueue(Callback callback) {
@@ -46,6 +53,8 @@ final class TraceContextCall implements Call {
   @Override public Response execute() throws IOException {
     try (Scope scope = currentTraceContext.maybeScope(invocationContext)) {
       return delegate.execute();
+    } finally {
+      TracingEventListener.clearCurrent(delegate);
     }
   }
 
@@ -84,12 +93,16 @@ final class TraceContextCall implements Call {
     @Override public void onResponse(Call call, Response response) throws IOException {
       try (Scope scope = currentTraceContext.maybeScope(invocationContext)) {
         delegate.onResponse(call, response);
+      } finally {
+        TracingEventListener.clearCurrent(call);
       }
     }
 
     @Override public void onFailure(Call call, IOException e) {
       try (Scope scope = currentTraceContext.maybeScope(invocationContext)) {
         delegate.onFailure(call, e);
+      } finally {
+        TracingEventListener.clearCurrent(call);
       }
     }
 
@@ -16,42 +16,72 @@ import okhttp3.Request;
 /**
  * This internally adds an interceptor which ensures whatever current span exists is available via
  * {@link Tracer#currentSpanCustomizer()} and {@link Tracer#currentSpan()}
+ *
+ * <p>The trace context at invocation time is carried by an {@link okhttp3.EventListener} created
+ * with each call, so requests are not rebuilt unless trace headers are added. Any event listener
+ * already configured on the client is still invoked.
  */
 // NOTE: this is not an interceptor because the current span can get lost when there's a backlog.
 // This will be completely different after https://github.com/square/okhttp/issues/270
 public final class TracingCallFactory implements Call.Factory {
-  /**
-   * To save overhead, we use a null sentinel when there's no parent. This helps avoid looking at
-   * the current trace context when there was no span in scope at invocation time.
-   */
-  static final TraceContext NULL_SENTINEL = TraceContext.newBuilder()
-    .traceId(1L).spanId(1L).build();
-
   public static Call.Factory create(Tracing tracing, OkHttpClient ok) {
     return create(HttpTracing.create(tracing), ok);
   }
 
   public static Call.Factory create(HttpTracing httpTracing, OkHttpClient ok) {
-    return new TracingCallFactory(httpTracing, ok);
+    return newBuilder(httpTracing).build(ok);
+  }
+
+  /** @since 6.1 */
+  public static Builder newBuilder(HttpTracing httpTracing) {
+    return new Builder(httpTracing);
+  }
+
+  public static final class Builder {
+    final HttpTracing httpTracing;
+    boolean connectionTiming;
+
+    Builder(HttpTracing httpTracing) {
+      if (httpTracing == null) throw new NullPointerException("HttpTracing == null");
+      this.httpTracing = httpTracing;
+    }
+
+    /**
+     * When true, sampled spans include annotations for DNS lookup, connect and TLS handshake when
+     * a new connection is made for the request. The span starts at the first of these. Defaults to
+     * false.
+     *
+     * <p>Requests that reuse a pooled connection have no connection annotations.
+     *
+     * @since 6.1
+     */
+    public Builder connectionTiming(boolean connectionTiming) {
+      this.connectionTiming = connectionTiming;
+      return this;
+    }
+
+    /** @since 6.1 */
+    public Call.Factory build(OkHttpClient ok) {
+      return new TracingCallFactory(this, ok);
+    }
   }
 
   final CurrentTraceContext currentTraceContext;
   final OkHttpClient ok;
 
-  TracingCallFactory(HttpTracing httpTracing, OkHttpClient ok) {
-    if (httpTracing == null) throw new NullPointerException("HttpTracing == null");
+  TracingCallFactory(Builder builder, OkHttpClient ok) {
     if (ok == null) throw new NullPointerException("OkHttpClient == null");
+    HttpTracing httpTracing = builder.httpTracing;
     this.currentTraceContext = httpTracing.tracing().currentTraceContext();
-    OkHttpClient.Builder builder = ok.newBuilder();
-    builder.networkInterceptors().add(0, TracingInterceptor.create(httpTracing));
-    this.ok = builder.build();
+    OkHttpClient.Builder okBuilder = ok.newBuilder();
+    okBuilder.networkInterceptors().add(0, TracingInterceptor.create(httpTracing));
+    okBuilder.eventListenerFactory(new TracingEventListener.Factory(currentTraceContext,
+      ok.eventListenerFactory(), builder.connectionTiming));
+    this.ok = okBuilder.build();
   }
 
   @Override public Call newCall(Request request) {
     TraceContext invocationContext = currentTraceContext.get();
-    Call call = ok.newCall(request.newBuilder()
-      .tag(TraceContext.class, invocationContext != null ? invocationContext : NULL_SENTINEL)
-      .build());
-    return new TraceContextCall(call, currentTraceContext, invocationContext);
+    return new TraceContextCall(ok.newCall(request), currentTraceContext, invocationContext);
   }
 }
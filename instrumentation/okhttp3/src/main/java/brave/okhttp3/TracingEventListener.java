@@ -0,0 +1,247 @@
+/*
+ * Copyright The OpenZipkin Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package brave.okhttp3;
+
+import brave.Span;
+import brave.Tracing;
+import brave.internal.Nullable;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.TraceContext;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Carries the invocation context of a call to {@link TracingInterceptor}, so that {@link
+ * TracingCallFactory} doesn't need to rebuild each request to tag it.
+ *
+ * <p>A listener is created on the thread that calls {@link Call.Factory#newCall(Request)}. OkHttp
+ * always acquires a connection on the thread that runs network interceptors, immediately before
+ * they run. This makes the listener available to the interceptor via a thread local.
+ *
+ * <p>The thread local stays set for follow-up requests of the same call, as OkHttp may not acquire
+ * a connection again when it reuses the one it has. {@link TraceContextCall} clears it when
+ * execution returns to it, on the same thread. Calls may end on another thread, for example
+ * when the caller closes the response body, so ending the call can't be relied on to clear it.
+ *
+ * <p>When connection timing is enabled, this also records DNS, connect and TLS events, which the
+ * interceptor adds as annotations when the span is sampled.
+ *
+ * <p>Note: Methods without {@code @Override} were added after OkHttp 3.11.
+ */
+final class TracingEventListener extends EventListener {
+  static final ThreadLocal<TracingEventListener> CURRENT = new ThreadLocal<TracingEventListener>();
+
+  static final class Factory implements EventListener.Factory {
+    final CurrentTraceContext currentTraceContext;
+    final EventListener.Factory delegate;
+    final boolean connectionTiming;
+
+    Factory(CurrentTraceContext currentTraceContext, EventListener.Factory delegate,
+      boolean connectionTiming) {
+      this.currentTraceContext = currentTraceContext;
+      this.delegate = delegate;
+      this.connectionTiming = connectionTiming;
+    }
+
+    @Override public EventListener create(Call call) {
+      return new TracingEventListener(call, currentTraceContext.get(), delegate.create(call),
+        connectionTiming);
+    }
+  }
+
+  /** Returns the listener of the call being executed on this thread, or null. */
+  @Nullable static TracingEventListener current(Call call) {
+    TracingEventListener result = CURRENT.get();
+    return result != null && result.call == call ? result : null;
+  }
+
+  final Call call;
+  @Nullable final TraceContext invocationContext;
+  final EventListener delegate;
+  final boolean connectionTiming;
+
+  // System.nanoTime() of connection events, or zero when they didn't happen
+  long dnsStart, dnsEnd, connectStart, connectEnd, tlsStart, tlsEnd;
+
+  TracingEventListener(Call call, @Nullable TraceContext invocationContext,
+    EventListener delegate, boolean connectionTiming) {
+    this.call = call;
+    this.invocationContext = invocationContext;
+    this.delegate = delegate;
+    this.connectionTiming = connectionTiming;
+  }
+
+  /**
+   * Adds annotations for connection events that happened before the span started, and moves the
+   * start of the span to the first of them. Events are only reported once per call.
+   */
+  void annotateConnectionEvents(Tracing tracing, Span span) {
+    long firstEvent = dnsStart != 0L ? dnsStart : connectStart;
+    if (firstEvent == 0L || span.isNoop()) return;
+
+    long nowNanos = System.nanoTime();
+    long nowMicros = tracing.clock(span.context()).currentTimeMicroseconds();
+    span.start(timestamp(nowMicros, nowNanos, firstEvent));
+    annotate(span, nowMicros, nowNanos, dnsStart, "dns.start");
+    annotate(span, nowMicros, nowNanos, dnsEnd, "dns.end");
+    annotate(span, nowMicros, nowNanos, connectStart, "connect.start");
+    annotate(span, nowMicros, nowNanos, tlsStart, "tls.start");
+    annotate(span, nowMicros, nowNanos, tlsEnd, "tls.end");
+    annotate(span, nowMicros, nowNanos, connectEnd, "connect.end");
+    dnsStart = dnsEnd = connectStart = connectEnd = tlsStart = tlsEnd = 0L;
+  }
+
+  static void annotate(Span span, long nowMicros, long nowNanos, long eventNanos, String value) {
+    if (eventNanos != 0L) span.annotate(timestamp(nowMicros, nowNanos, eventNanos), value);
+  }
+
+  static long timestamp(long nowMicros, long nowNanos, long eventNanos) {
+    return nowMicros - (nowNanos - eventNanos) / 1000L;
+  }
+
+  /** Clears the listener of this call, if it is current on this thread. */
+  static void clearCurrent(Call call) {
+    TracingEventListener current = CURRENT.get();
+    if (current != null && current.call == call) CURRENT.remove();
+  }
+
+  @Override public void callStart(Call call) {
+    delegate.callStart(call);
+  }
+
+  public void proxySelectStart(Call call, HttpUrl url) {
+    delegate.proxySelectStart(call, url);
+  }
+
+  public void proxySelectEnd(Call call, HttpUrl url, List<Proxy> proxies) {
+    delegate.proxySelectEnd(call, url, proxies);
+  }
+
+  @Override public void dnsStart(Call call, String domainName) {
+    if (connectionTiming && dnsStart == 0L) dnsStart = System.nanoTime();
+    delegate.dnsStart(call, domainName);
+  }
+
+  @Override public void dnsEnd(Call call, String domainName, List<InetAddress> addresses) {
+    if (connectionTiming) dnsEnd = System.nanoTime();
+    delegate.dnsEnd(call, domainName, addresses);
+  }
+
+  @Override public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+    if (connectionTiming && connectStart == 0L) connectStart = System.nanoTime();
+    delegate.connectStart(call, address, proxy);
+  }
+
+  @Override public void secureConnectStart(Call call) {
+    if (connectionTiming) tlsStart = System.nanoTime();
+    delegate.secureConnectStart(call);
+  }
+
+  @Override public void secureConnectEnd(Call call, @Nullable Handshake handshake) {
+    if (connectionTiming) tlsEnd = System.nanoTime();
+    delegate.secureConnectEnd(call, handshake);
+  }
+
+  @Override public void connectEnd(Call call, InetSocketAddress address, Proxy proxy,
+    @Nullable Protocol protocol) {
+    if (connectionTiming) connectEnd = System.nanoTime();
+    delegate.connectEnd(call, address, proxy, protocol);
+  }
+
+  @Override public void connectFailed(Call call, InetSocketAddress address, Proxy proxy,
+    @Nullable Protocol protocol, IOException ioe) {
+    delegate.connectFailed(call, address, proxy, protocol, ioe);
+  }
+
+  @Override public void connectionAcquired(Call call, Connection connection) {
+    CURRENT.set(this); // network interceptors run next, on this thread
+    delegate.connectionAcquired(call, connection);
+  }
+
+  @Override public void connectionReleased(Call call, Connection connection) {
+    delegate.connectionReleased(call, connection);
+  }
+
+  @Override public void requestHeadersStart(Call call) {
+    delegate.requestHeadersStart(call);
+  }
+
+  @Override public void requestHeadersEnd(Call call, Request request) {
+    delegate.requestHeadersEnd(call, request);
+  }
+
+  @Override public void requestBodyStart(Call call) {
+    delegate.requestBodyStart(call);
+  }
+
+  @Override public void requestBodyEnd(Call call, long byteCount) {
+    delegate.requestBodyEnd(call, byteCount);
+  }
+
+  public void requestFailed(Call call, IOException ioe) {
+    delegate.requestFailed(call, ioe);
+  }
+
+  @Override public void responseHeadersStart(Call call) {
+    delegate.responseHeadersStart(call);
+  }
+
+  @Override public void responseHeadersEnd(Call call, Response response) {
+    delegate.responseHeadersEnd(call, response);
+  }
+
+  @Override public void responseBodyStart(Call call) {
+    delegate.responseBodyStart(call);
+  }
+
+  @Override public void responseBodyEnd(Call call, long byteCount) {
+    delegate.responseBodyEnd(call, byteCount);
+  }
+
+  public void responseFailed(Call call, IOException ioe) {
+    delegate.responseFailed(call, ioe);
+  }
+
+  @Override public void callEnd(Call call) {
+    clearCurrent(call);
+    delegate.callEnd(call);
+  }
+
+  @Override public void callFailed(Call call, IOException ioe) {
+    clearCurrent(call);
+    delegate.callFailed(call, ioe);
+  }
+
+  public void canceled(Call call) {
+    delegate.canceled(call);
+  }
+
+  public void satisfactionFailure(Call call, Response response) {
+    delegate.satisfactionFailure(call, response);
+  }
+
+  public void cacheHit(Call call, Response response) {
+    delegate.cacheHit(call, response);
+  }
+
+  public void cacheMiss(Call call) {
+    delegate.cacheMiss(call);
+  }
+
+  public void cacheConditionalHit(Call call, Response cachedResponse) {
+    delegate.cacheConditionalHit(call, cachedResponse);
+  }
+}
@@ -13,7 +13,6 @@ import brave.http.HttpTracing;
 import brave.internal.Nullable;
 import brave.propagation.CurrentTraceContext;
 import brave.propagation.CurrentTraceContext.Scope;
-import brave.propagation.TraceContext;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import okhttp3.Connection;
@@ -21,8 +20,6 @@ import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
 
-import static brave.okhttp3.TracingCallFactory.NULL_SENTINEL;
-
 /**
  * This is a network-level interceptor, which creates a new span for each attempt. Note that this
  * does not work well for high traffic servers, as the span context can be lost when under backlog.
@@ -37,12 +34,14 @@ public final class TracingInterceptor implements Interceptor {
     return new TracingInterceptor(httpTracing);
   }
 
+  final Tracing tracing;
   final CurrentTraceContext currentTraceContext;
   final HttpClientHandler<HttpClientRequest, HttpClientResponse> handler;
 
   TracingInterceptor(HttpTracing httpTracing) {
     if (httpTracing == null) throw new NullPointerException("HttpTracing == null");
-    currentTraceContext = httpTracing.tracing().currentTraceContext();
+    tracing = httpTracing.tracing();
+    currentTraceContext = tracing.currentTraceContext();
     handler = HttpClientHandler.create(httpTracing);
   }
 
@@ -50,9 +49,10 @@ public final class TracingInterceptor implements Interceptor {
     RequestWrapper request = new RequestWrapper(chain.request());
 
     Span span;
-    TraceContext parent = chain.request().tag(TraceContext.class);
-    if (parent != null) { // TracingCallFactory setup this request
-      span = handler.handleSendWithParent(request, parent != NULL_SENTINEL ? parent : null);
+    TracingEventListener listener = TracingEventListener.current(chain.call());
+    if (listener != null) { // TracingCallFactory setup this call
+      span = handler.handleSendWithParent(request, listener.invocationContext);
+      if (listener.connectionTiming) listener.annotateConnectionEvents(tracing, span);
     } else { // This is using interceptors only
       span = handler.handleSend(request);
     }
@@ -5,17 +5,23 @@
 package brave.okhttp3;
 
 import brave.Span;
+import brave.handler.MutableSpan;
 import brave.propagation.CurrentTraceContext.Scope;
 import brave.propagation.SamplingFlags;
 import brave.propagation.TraceContext;
 import brave.test.http.ITHttpAsyncClient;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.Dispatcher;
+import okhttp3.EventListener;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -26,6 +32,7 @@ import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import static brave.Span.Kind.CLIENT;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class ITTracingCallFactory extends ITHttpAsyncClient<Call.Factory> { // public for src/it
@@ -105,4 +112,107 @@ public class ITTracingCallFactory extends ITHttpAsyncClient<Call.Factory> { // p
 
     testSpanHandler.takeRemoteSpan(Span.Kind.CLIENT);
   }
+
+  @Test void connectionTiming() throws IOException {
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse());
+    closeClient(client);
+
+    client = TracingCallFactory.newBuilder(httpTracing)
+      .connectionTiming(true)
+      .build(new OkHttpClient.Builder().dispatcher(dispatcher).build());
+
+    get(client, "/foo");
+    get(client, "/bar"); // reuses the pooled connection
+
+    MutableSpan newConnection = testSpanHandler.takeRemoteSpan(CLIENT);
+    assertThat(newConnection.annotations())
+      .extracting(Map.Entry::getValue)
+      .contains("connect.start", "connect.end")
+      .doesNotContain("tls.start", "tls.end"); // plaintext
+    assertThat(newConnection.annotations())
+      .extracting(Map.Entry::getKey)
+      .allSatisfy(timestamp -> assertThat(timestamp)
+        .isBetween(newConnection.startTimestamp(), newConnection.finishTimestamp()));
+
+    assertThat(testSpanHandler.takeRemoteSpan(CLIENT).annotations())
+      .isEmpty();
+  }
+
+  /** The response body is left open, so the call doesn't end on the thread that executed it. */
+  @Test void doesntLeakListenerToThread() throws Exception {
+    server.enqueue(new MockResponse().setBody("foo"));
+    server.enqueue(new MockResponse().setBody("bar"));
+    closeClient(client);
+
+    ExecutorService singleThread = Executors.newSingleThreadExecutor();
+    try {
+      client = TracingCallFactory.create(httpTracing, new OkHttpClient.Builder()
+        .dispatcher(new Dispatcher(singleThread))
+        .build());
+
+      Response response = client.newCall(new Request.Builder().url(url("/foo")).build()).execute();
+      assertThat(TracingEventListener.CURRENT.get()).isNull();
+      response.close();
+
+      BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+      client.newCall(new Request.Builder().url(url("/bar")).build()).enqueue(new Callback() {
+        @Override public void onFailure(Call call, IOException e) {
+        }
+
+        @Override public void onResponse(Call call, Response response) {
+          responses.add(response);
+        }
+      });
+      responses.take().close();
+      assertThat(singleThread.submit(TracingEventListener.CURRENT::get).get()).isNull();
+    } finally {
+      singleThread.shutdown();
+      singleThread.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    testSpanHandler.takeRemoteSpan(CLIENT);
+    testSpanHandler.takeRemoteSpan(CLIENT);
+  }
+
+  @Test void clone_keepsInvocationContext() throws Exception {
+    server.enqueue(new MockResponse());
+
+    TraceContext parent = newTraceContext(SamplingFlags.SAMPLED);
+    Call call;
+    try (Scope scope = currentTraceContext.newScope(parent)) {
+      call = client.newCall(new Request.Builder().url(url("/foo")).build());
+    }
+
+    ExecutorService otherThread = Executors.newSingleThreadExecutor();
+    try {
+      Call clone = otherThread.submit(call::clone).get();
+      clone.execute().close();
+    } finally {
+      otherThread.shutdown();
+    }
+
+    assertThat(testSpanHandler.takeRemoteSpan(CLIENT).parentId())
+      .isEqualTo(parent.spanIdString());
+  }
+
+  @Test void invokesExistingEventListener() throws IOException {
+    server.enqueue(new MockResponse());
+    closeClient(client);
+
+    StringBuilder events = new StringBuilder();
+    client = TracingCallFactory.create(httpTracing, new OkHttpClient.Builder()
+      .eventListener(new EventListener() {
+        @Override public void callStart(Call call) {
+          events.append("callStart");
+        }
+      })
+      .dispatcher(dispatcher)
+      .build());
+
+    get(client, "/foo");
+
+    assertThat(events).hasToString("callStart");
+    testSpanHandler.takeRemoteSpan(CLIENT);
+  }
 }
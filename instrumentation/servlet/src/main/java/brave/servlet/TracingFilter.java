@@ -50,7 +50,6 @@ public final class TracingFilter implements Filter {
   public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
     throws IOException, ServletException {
     HttpServletRequest req = (HttpServletRequest) request;
-    HttpServletResponse res = servlet.httpServletResponse(response);
 
     // Prevent duplicate spans for the same request
     TraceContext context = (TraceContext) request.getAttribute(TraceContext.class.getName());
@@ -66,6 +65,12 @@ public final class TracingFilter implements Filter {
     }
 
     Span span = handler.handleReceive(new HttpServletRequestWrapper(req));
+    if (span.isNoop()) { // not sampled, so there's no response data to record
+      handleNoop(span, request, response, chain);
+      return;
+    }
+
+    HttpServletResponse res = servlet.httpServletResponse(response);
 
     // Add attributes for explicit access to customization or span context
     request.setAttribute(SpanCustomizer.class.getName(), span.customizer());
@@ -104,6 +109,22 @@ public final class TracingFilter implements Filter {
     }
   }
 
+  /**
+   * Skips response wrapping, async listeners and the send handler, as a noop span records nothing.
+   * Attributes are still added, so that forwarded requests don't start another span.
+   */
+  void handleNoop(Span span, ServletRequest request, ServletResponse response, FilterChain chain)
+    throws IOException, ServletException {
+    request.setAttribute(SpanCustomizer.class.getName(), span.customizer());
+    request.setAttribute(TraceContext.class.getName(), span.context());
+    Scope scope = currentTraceContext.newScope(span.context());
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      scope.close();
+    }
+  }
+
   // Special type used to ensure handleSend is only called once
   static final class SendHandled extends AtomicBoolean {
   }
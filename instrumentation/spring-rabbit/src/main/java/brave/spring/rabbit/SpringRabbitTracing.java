@@ -39,7 +39,8 @@ public final class SpringRabbitTracing {
   static final String
     RABBIT_EXCHANGE = "rabbit.exchange",
     RABBIT_ROUTING_KEY = "rabbit.routing_key",
-    RABBIT_QUEUE = "rabbit.queue";
+    RABBIT_QUEUE = "rabbit.queue",
+    RABBIT_LINK_PREFIX = "rabbit.link.";
 
   public static SpringRabbitTracing create(Tracing tracing) {
     return newBuilder(tracing).build();
@@ -9,6 +9,8 @@ import brave.Tracer;
 import brave.Tracing;
 import brave.internal.Nullable;
 import brave.messaging.MessagingRequest;
+import brave.propagation.B3SingleFormat;
+import brave.propagation.TraceContext;
 import brave.propagation.TraceContext.Extractor;
 import brave.propagation.TraceContextOrSamplingFlags;
 import brave.sampler.SamplerFunction;
@@ -25,6 +27,7 @@ import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
 import static brave.Span.Kind.CONSUMER;
 import static brave.internal.Throwables.propagateIfFatal;
 import static brave.spring.rabbit.SpringRabbitTracing.RABBIT_EXCHANGE;
+import static brave.spring.rabbit.SpringRabbitTracing.RABBIT_LINK_PREFIX;
 import static brave.spring.rabbit.SpringRabbitTracing.RABBIT_QUEUE;
 import static brave.spring.rabbit.SpringRabbitTracing.RABBIT_ROUTING_KEY;
 
@@ -38,6 +41,15 @@ import static brave.spring.rabbit.SpringRabbitTracing.RABBIT_ROUTING_KEY;
  *
  * The spans are modeled as a duration 1 {@link Span.Kind#CONSUMER} span to represent consuming the
  * message from the rabbit broker with a child span representing the processing of the message.
+ *
+ * <h3>Batch listeners</h3>
+ * A batch can hold messages from many traces, so it isn't a child of any of them. Instead, a single
+ * consumer span named "next-batch" starts a new trace, and the listener span is its child. The
+ * trace context of each message is tagged on the batch span as {@code rabbit.link.<index>}, in B3
+ * single format without a parent ID.
+ *
+ * <p>To keep sampled traces connected, a "next-message" consumer span is also added per message,
+ * but only when that message's trace is sampled. Unsampled or untraced messages add no span.
  */
 final class TracingRabbitListenerAdvice implements MethodInterceptor {
 
@@ -62,12 +74,27 @@ final class TracingRabbitListenerAdvice implements MethodInterceptor {
    * Message)}
    */
   @Override public Object invoke(MethodInvocation methodInvocation) throws Throwable {
-    Message message = null;
-    if (methodInvocation.getArguments()[1] instanceof List) {
-      message = ((List<? extends Message>) methodInvocation.getArguments()[1]).get(0);
-    } else {
-      message = (Message) methodInvocation.getArguments()[1];
+    Object arg = methodInvocation.getArguments()[1];
+    Span listenerSpan = arg instanceof List
+      ? startBatchListenerSpan((List<? extends Message>) arg)
+      : startListenerSpan((Message) arg);
+
+    Tracer.SpanInScope scope = tracer.withSpanInScope(listenerSpan);
+    Throwable error = null;
+    try {
+      return methodInvocation.proceed();
+    } catch (Throwable t) {
+      propagateIfFatal(t);
+      error = t;
+      throw t;
+    } finally {
+      if (error != null) listenerSpan.error(error);
+      listenerSpan.finish();
+      scope.close();
     }
+  }
+
+  Span startListenerSpan(Message message) {
     MessageConsumerRequest request = new MessageConsumerRequest(message);
 
     TraceContextOrSamplingFlags extracted =
@@ -89,20 +116,50 @@ final class TracingRabbitListenerAdvice implements MethodInterceptor {
       // not using scoped span as we want to start with a pre-configured time
       listenerSpan.name("on-message").start(consumerFinish);
     }
+    return listenerSpan;
+  }
 
-    Tracer.SpanInScope scope = tracer.withSpanInScope(listenerSpan);
-    Throwable error = null;
-    try {
-      return methodInvocation.proceed();
-    } catch (Throwable t) {
-      propagateIfFatal(t);
-      error = t;
-      throw t;
-    } finally {
-      if (error != null) listenerSpan.error(error);
-      listenerSpan.finish();
-      scope.close();
+  Span startBatchListenerSpan(List<? extends Message> messages) {
+    Message first = messages.get(0);
+    MessageConsumerRequest firstRequest = new MessageConsumerRequest(first);
+    Span batchSpan = springRabbitTracing.nextMessagingSpan(sampler, firstRequest,
+      TraceContextOrSamplingFlags.EMPTY);
+    long timestamp = 0L;
+    if (!batchSpan.isNoop()) {
+      setConsumerSpan(batchSpan, first.getMessageProperties());
+      batchSpan.name("next-batch");
+      timestamp = tracing.clock(batchSpan.context()).currentTimeMicroseconds();
+    }
+
+    for (int i = 0, length = messages.size(); i < length; i++) {
+      Message message = messages.get(i);
+      MessageConsumerRequest request = i == 0 ? firstRequest : new MessageConsumerRequest(message);
+      TraceContextOrSamplingFlags extracted =
+        springRabbitTracing.extractAndClearTraceIdHeaders(extractor, request, message);
+      TraceContext producerContext = extracted.context();
+      if (producerContext == null) continue; // no trace to link or continue
+
+      if (!batchSpan.isNoop()) {
+        batchSpan.tag(RABBIT_LINK_PREFIX + i,
+          B3SingleFormat.writeB3SingleFormatWithoutParentId(producerContext));
+      }
+
+      // Only continue traces that will be recorded
+      if (!Boolean.TRUE.equals(producerContext.sampled())) continue;
+      Span messageSpan = tracer.nextSpan(extracted);
+      setConsumerSpan(messageSpan, message.getMessageProperties());
+      long messageTimestamp = timestamp != 0L
+        ? timestamp : tracing.clock(messageSpan.context()).currentTimeMicroseconds();
+      messageSpan.start(messageTimestamp).finish(messageTimestamp + 1L);
+    }
+
+    Span listenerSpan = tracer.newChild(batchSpan.context());
+    if (!batchSpan.isNoop()) {
+      long consumerFinish = timestamp + 1L; // save a clock reading
+      batchSpan.start(timestamp).finish(consumerFinish);
+      listenerSpan.name("on-message").start(consumerFinish);
     }
+    return listenerSpan;
   }
 
   void setConsumerSpan(Span span, MessageProperties properties) {
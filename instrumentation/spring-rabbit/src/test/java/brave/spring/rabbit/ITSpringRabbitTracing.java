@@ -151,7 +151,7 @@ class ITSpringRabbitTracing extends ITSpringRabbit {
     assertThat(headers.keySet()).containsExactly("not-zipkin-header");
 
     assertThat(consumerSpanHandler.takeRemoteSpan(CONSUMER).name())
-      .isEqualTo("next-message");
+      .isEqualTo("next-batch");
     assertThat(consumerSpanHandler.takeLocalSpan().name())
       .isEqualTo("on-message");
   }
@@ -25,6 +25,7 @@ import static brave.test.ITRemote.BAGGAGE_FIELD;
 import static brave.test.ITRemote.BAGGAGE_FIELD_KEY;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -203,66 +204,69 @@ public class TracingRabbitListenerAdviceTest {
       .containsExactly(CONSUMER, null);
   }
 
-  @Test void batch_continue_parent_trace() throws Throwable {
-    MessageProperties props = new MessageProperties();
-    props.setHeader("X-B3-TraceId", TRACE_ID);
-    props.setHeader("X-B3-SpanId", SPAN_ID);
-    props.setHeader("X-B3-ParentSpanId", PARENT_ID);
-    props.setHeader("X-B3-Sampled", SAMPLED);
+  @Test void batch_consumer_and_listener_have_names() throws Throwable {
+    onBatchMessageConsumed(Arrays.asList(MessageBuilder.withBody(new byte[0]).build(),
+      MessageBuilder.withBody(new byte[0]).build()));
 
-    Message message = MessageBuilder.withBody(new byte[0]).andProperties(props).build();
-    MessageProperties props2 = new MessageProperties();
-    props2.setHeader("X-B3-TraceId", TRACE_ID_2);
-    props2.setHeader("X-B3-SpanId", SPAN_ID_2);
-    props2.setHeader("X-B3-ParentSpanId", PARENT_ID_2);
-    props2.setHeader("X-B3-Sampled", SAMPLED);
-    Message message2 = MessageBuilder.withBody(new byte[0]).andProperties(props2).build();
+    assertThat(spans)
+      .extracting(MutableSpan::name)
+      .containsExactly("next-batch", "on-message");
+  }
+
+  @Test void batch_continues_each_sampled_trace() throws Throwable {
+    Message message = tracedMessage(TRACE_ID, PARENT_ID, SPAN_ID, SAMPLED);
+    Message message2 = tracedMessage(TRACE_ID_2, PARENT_ID_2, SPAN_ID_2, SAMPLED);
     onBatchMessageConsumed(Arrays.asList(message, message2));
 
     // cleared the headers to later work doesn't try to use the old parent
     assertThat(message.getMessageProperties().getHeaders()).isEmpty();
+    assertThat(message2.getMessageProperties().getHeaders()).isEmpty();
 
-    // two traced that listener continues first trace but TODO we aren't handling the second.
-    assertThat(spans.get(0))
-      .extracting(MutableSpan::parentId)
-      .isEqualTo(SPAN_ID);
+    assertThat(spans)
+      .extracting(MutableSpan::name, MutableSpan::traceId, MutableSpan::parentId)
+      .containsExactly(
+        tuple("next-message", TRACE_ID, SPAN_ID),
+        tuple("next-message", TRACE_ID_2, SPAN_ID_2),
+        tuple("next-batch", spans.get(2).traceId(), null),
+        tuple("on-message", spans.get(2).traceId(), spans.get(2).id())
+      );
   }
 
-  @Test void batch_continue_first_traced() throws Throwable {
-    MessageProperties props = new MessageProperties();
-    props.setHeader("X-B3-TraceId", TRACE_ID);
-    props.setHeader("X-B3-SpanId", SPAN_ID);
-    props.setHeader("X-B3-ParentSpanId", PARENT_ID);
-    props.setHeader("X-B3-Sampled", SAMPLED);
+  @Test void batch_links_producer_contexts() throws Throwable {
+    Message message = MessageBuilder.withBody(new byte[0]).build();
+    Message message2 = tracedMessage(TRACE_ID_2, PARENT_ID_2, SPAN_ID_2, SAMPLED);
+    onBatchMessageConsumed(Arrays.asList(message, message2));
 
-    Message message = MessageBuilder.withBody(new byte[0]).andProperties(props).build();
-    Message message2 = MessageBuilder.withBody(new byte[0]).build();
+    MutableSpan batchSpan = spans.get(1);
+    assertThat(batchSpan.name()).isEqualTo("next-batch");
+    assertThat(batchSpan.traceId()).isNotEqualTo(TRACE_ID_2);
+    assertThat(batchSpan.tags())
+      .containsOnly(entry("rabbit.link.1", TRACE_ID_2 + "-" + SPAN_ID_2 + "-1"));
+  }
+
+  @Test void batch_doesnt_continue_unsampled_traces() throws Throwable {
+    Message message = tracedMessage(TRACE_ID, PARENT_ID, SPAN_ID, "0");
+    Message message2 = tracedMessage(TRACE_ID_2, PARENT_ID_2, SPAN_ID_2, SAMPLED);
     onBatchMessageConsumed(Arrays.asList(message, message2));
 
-    // cleared the headers to later work doesn't try to use the old parent
-    assertThat(message.getMessageProperties().getHeaders()).isEmpty();
+    assertThat(spans)
+      .extracting(MutableSpan::traceId)
+      .doesNotContain(TRACE_ID);
+    assertThat(spans.get(0).parentId())
+      .isEqualTo(SPAN_ID_2);
 
-    // first traced that listener continues that trace
-    assertThat(spans.get(0))
-      .extracting(MutableSpan::parentId)
-      .isEqualTo(SPAN_ID);
+    // unsampled contexts are still linked
+    assertThat(spans.get(1).tags())
+      .containsEntry("rabbit.link.0", TRACE_ID + "-" + SPAN_ID + "-0");
   }
 
-  @Test void batch_new_trace_last_traced() throws Throwable {
+  static Message tracedMessage(String traceId, String parentId, String spanId, String sampled) {
     MessageProperties props = new MessageProperties();
-    props.setHeader("X-B3-TraceId", TRACE_ID_2);
-    props.setHeader("X-B3-SpanId", SPAN_ID_2);
-    props.setHeader("X-B3-ParentSpanId", PARENT_ID_2);
-    props.setHeader("X-B3-Sampled", SAMPLED);
-
-    Message message = MessageBuilder.withBody(new byte[0]).build();
-    Message message2 = MessageBuilder.withBody(new byte[0]).andProperties(props).build();
-    onBatchMessageConsumed(Arrays.asList(message, message2));
-
-    // new trace
-    assertThat(spans.get(0))
-      .extracting(MutableSpan::parentId)
-      .isNotEqualTo(SPAN_ID);
+    props.setHeader("X-B3-TraceId", traceId);
+    props.setHeader("X-B3-SpanId", spanId);
+    props.setHeader("X-B3-ParentSpanId", parentId);
+    props.setHeader("X-B3-Sampled", sampled);
+    return MessageBuilder.withBody(new byte[0]).andProperties(props).build();
   }
 
   void onMessageConsumed(Message message) throws Throwable {
@@ -25,6 +25,15 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *
  * <p>The hint that we need to re-attach the headers handler on re-route came from looking at
  * {@code TracingHandler} in https://github.com/opentracing-contrib/java-vertx-web
+ *
+ * <h3>Why is the span kept in the routing context?</h3>
+ * <p>An event loop interleaves callbacks of many requests, so the thread can't carry the span
+ * between them. Vert.x 3.x contexts are shared by all requests on the same event loop, so they
+ * can't either. The routing context is the only state scoped to a single request.
+ *
+ * <p>When a request is re-routed or failed from an async callback, such as an end handler, this
+ * handler is re-entered outside the original scope. The span is looked up from the routing context
+ * and placed in scope again, so the next handlers see it without wrapping each callback.
  */
 final class TracingRoutingContextHandler implements Handler<RoutingContext> {
   final HttpServerHandler<HttpServerRequest, HttpServerResponse> handler;
@@ -41,7 +50,10 @@ final class TracingRoutingContextHandler implements Handler<RoutingContext> {
       if (!context.failed()) { // re-routed, so re-attach the end handler
         context.addHeadersEndHandler(tracingHandler);
       }
-      context.next();
+      // Re-entry may be from an async callback, so restore the scope. This is a no-op otherwise.
+      try (Scope scope = currentTraceContext.maybeScope(tracingHandler.span.context())) {
+        context.next();
+      }
       return;
     }
 
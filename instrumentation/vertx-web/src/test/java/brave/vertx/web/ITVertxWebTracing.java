@@ -60,6 +60,15 @@ class ITVertxWebTracing extends ITHttpServer {
       }
       ctx.reroute("/async");
     });
+    router.route("/rerouteFromCallback").handler(ctx -> {
+      ctx.request().endHandler(v -> ctx.reroute("/currentSpan"));
+    });
+    router.route("/currentSpan").handler(ctx -> {
+      if (Tracing.currentTracer().currentSpan() == null) {
+        throw new IllegalStateException("couldn't read current span!");
+      }
+      ctx.response().end("bar");
+    });
     router.route("/baggage").handler(ctx -> {
       ctx.response().end(BAGGAGE_FIELD.getValue());
     });
@@ -117,6 +126,11 @@ class ITVertxWebTracing extends ITHttpServer {
     handlesReroute("/rerouteAsync");
   }
 
+  /** The route checks for the current span, which is restored when re-routing from a callback. */
+  @Test void handlesRerouteFromCallback() throws IOException {
+    handlesReroute("/rerouteFromCallback");
+  }
+
   @Override @Test public void httpRoute_nested() {
     // Can't currently fully resolve the route template of a sub-router
     // We get "/nested" not "/nested/items/:itemId